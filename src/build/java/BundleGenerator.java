@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+// Generates ListResourceBundle sources from .properties bundles, so the application does not parse them at runtime.
+// Run it as a single-file program: java BundleGenerator.java SOURCE_FOLDER TARGET_FOLDER PACKAGE [NAME=VALUE...],
+// every ${NAME} placeholder in values is replaced with VALUE like Maven resource filtering does.
+public class BundleGenerator {
+
+  private static final Pattern BUNDLE_FILE = Pattern.compile("(\\w+)\\.properties");
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println("Usage: java BundleGenerator.java SOURCE_FOLDER TARGET_FOLDER PACKAGE [NAME=VALUE...]");
+      System.exit(2);
+    }
+
+    var sourceFolder = Path.of(args[0]);
+    var packageName = args[2];
+    var targetFolder = Path.of(args[1]).resolve(packageName.replace('.', '/'));
+    var placeholders = new LinkedHashMap<String, String>();
+
+    for (var i = 3; i < args.length; i++) {
+      var separator = args[i].indexOf('=');
+
+      placeholders.put("${" + args[i].substring(0, separator) + '}', args[i].substring(separator + 1));
+    }
+
+    Files.createDirectories(targetFolder);
+    try (var files = Files.list(sourceFolder)) {
+      for (var file : files.sorted().toList()) {
+        var matcher = BUNDLE_FILE.matcher(file.getFileName().toString());
+
+        if (matcher.matches()) {
+          var className = matcher.group(1);
+
+          Files.writeString(targetFolder.resolve(className + ".java"),
+              generate(packageName, className, file.getFileName().toString(), read(file, placeholders)));
+        }
+      }
+    }
+  }
+
+  // keeps the order of the file, so the generated source is stable
+  private static Map<String, String> read(Path file, Map<String, String> placeholders) throws IOException {
+    var entries = new LinkedHashMap<String, String>();
+    var properties = new Properties() {
+
+      @Override
+      public synchronized Object put(Object key, Object value) {
+        var text = (String) value;
+
+        for (var placeholder : placeholders.entrySet()) {
+          text = text.replace(placeholder.getKey(), placeholder.getValue());
+        }
+        entries.put((String) key, text);
+
+        return super.put(key, value);
+      }
+
+    };
+
+    try (InputStream input = Files.newInputStream(file)) {
+      properties.load(input);
+    }
+
+    return entries;
+  }
+
+  private static String generate(String packageName, String className, String fileName, Map<String, String> entries) {
+    var lines = new ArrayList<String>();
+
+    lines.add("package " + packageName + ';');
+    lines.add("");
+    lines.add("import java.util.ListResourceBundle;");
+    lines.add("");
+    lines.add("// Generated from " + fileName + " by BundleGenerator, do not edit");
+    lines.add("public class " + className + " extends ListResourceBundle {");
+    lines.add("");
+    lines.add("  @Override");
+    lines.add("  protected Object[][] getContents() {");
+    lines.add("    return new Object[][]{");
+    entries.forEach((key, value) -> lines.add("        {" + literal(key) + ", " + literal(value) + "},"));
+    lines.add("    };");
+    lines.add("  }");
+    lines.add("");
+    lines.add("}");
+    lines.add("");
+
+    return String.join("\n", lines);
+  }
+
+  private static String literal(String text) {
+    var literal = new StringBuilder(text.length() + 2).append('"');
+
+    for (var i = 0; i < text.length(); i++) {
+      var character = text.charAt(i);
+
+      switch (character) {
+        case '"' -> literal.append("\\\"");
+        case '\\' -> literal.append("\\\\");
+        case '\n' -> literal.append("\\n");
+        case '\r' -> literal.append("\\r");
+        case '\t' -> literal.append("\\t");
+        default -> {
+          if (character < 0x20 || character > 0x7e) {
+            literal.append(String.format("\\u%04x", (int) character));
+          } else {
+            literal.append(character);
+          }
+        }
+      }
+    }
+
+    return literal.append('"').toString();
+  }
+
+}
@@ -0,0 +1,90 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The vector kernel against the scalar loops, build it with the vector profile
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class ColumnarBenchmark {
+
+  @Param({"scalar", "vector"})
+  public String kernel;
+
+  @Param({"100000"})
+  public int trips;
+
+  private double[] costs;
+  private CostKernel costKernel;
+  private double[] distances;
+  private long[] fixedPointCosts;
+  private long[] fixedPointDistances;
+  private long[] fixedPointPrices;
+  private long[] fixedPointRatios;
+  private double[] prices;
+  private double[] ratios;
+
+  @Setup
+  public void setUp() {
+    var random = new Random(20251128);
+
+    costs = new double[trips];
+    distances = new double[trips];
+    prices = new double[trips];
+    ratios = new double[trips];
+    fixedPointCosts = new long[trips];
+    fixedPointDistances = new long[trips];
+    fixedPointPrices = new long[trips];
+    fixedPointRatios = new long[trips];
+    for (int i = 0; i < trips; i++) {
+      fixedPointDistances[i] = 1 + random.nextInt(100_000);
+      fixedPointPrices[i] = 1 + random.nextInt(8_000);
+      fixedPointRatios[i] = 1 + random.nextInt(300);
+      distances[i] = fixedPointDistances[i] / 10.0;
+      prices[i] = fixedPointPrices[i] / 100.0;
+      ratios[i] = fixedPointRatios[i] / 10.0;
+    }
+    costKernel = "scalar".equals(kernel) ? new ScalarCostKernel() : ColumnarCosts.kernel();
+  }
+
+  @Benchmark
+  public double[] distancePerVolume() {
+    costKernel.estimate(RideRequest.Ratio.DISTANCE_PER_VOLUME, ratios, prices, distances,
+        Rounding.TWO_DECIMAL_PLACES, costs);
+
+    return costs;
+  }
+
+  @Benchmark
+  public double[] volumePerDistance() {
+    costKernel.estimate(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratios, prices, distances,
+        Rounding.TWO_DECIMAL_PLACES, costs);
+
+    return costs;
+  }
+
+  @Benchmark
+  public long[] volumePerDistanceFixedPoint() {
+    costKernel.estimateVolumePerDistance(fixedPointRatios, 1, fixedPointPrices, 2, fixedPointDistances, 1,
+        Rounding.TWO_DECIMAL_PLACES, fixedPointCosts);
+
+    return fixedPointCosts;
+  }
+
+}
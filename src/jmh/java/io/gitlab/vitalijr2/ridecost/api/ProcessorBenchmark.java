@@ -0,0 +1,129 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Sustained rate of the reactive stage, a slow subscriber requests one result at a time
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(ProcessorBenchmark.REQUESTS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class ProcessorBenchmark {
+
+  static final int REQUESTS = 100_000;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  @Param({"256"})
+  public int bufferSize;
+
+  @Param({"false", "true"})
+  public boolean slowSubscriber;
+
+  private ExecutorService executor;
+  private ExecutorService publisherExecutor;
+  private List<RideRequest> requests;
+  private RideCostService service;
+
+  @Setup
+  public void setUp() {
+    var random = new Random(20251128);
+
+    requests = new ArrayList<>(REQUESTS);
+    for (int i = 0; i < REQUESTS; i++) {
+      requests.add(RideRequest.volumePerDistance(new BigDecimal("4.3"), new BigDecimal("59.99"),
+          BigDecimal.valueOf(1 + random.nextInt(100_000), 1), Rounding.TWO_DECIMAL_PLACES));
+    }
+    executor = Executors.newFixedThreadPool(parallelism);
+    publisherExecutor = Executors.newSingleThreadExecutor();
+    service = RideCostService.create();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+    publisherExecutor.shutdown();
+  }
+
+  @Benchmark
+  public long process() throws ExecutionException, InterruptedException {
+    var processor = new RideCostProcessor(service, executor, parallelism, bufferSize);
+    var subscriber = new CountingSubscriber(slowSubscriber ? 1 : Long.MAX_VALUE);
+
+    processor.subscribe(subscriber);
+    try (var publisher = new SubmissionPublisher<RideRequest>(publisherExecutor, bufferSize)) {
+      publisher.subscribe(processor);
+      for (var request : requests) {
+        publisher.submit(request);
+      }
+    }
+
+    return subscriber.completion.get();
+  }
+
+  private static final class CountingSubscriber implements Flow.Subscriber<RideResult> {
+
+    private final long batch;
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+    private long count;
+    private Flow.Subscription subscription;
+
+    private CountingSubscriber(long batch) {
+      this.batch = batch;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(batch);
+    }
+
+    @Override
+    public void onNext(RideResult item) {
+      count++;
+      if (batch < Long.MAX_VALUE) {
+        subscription.request(1);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.complete(count);
+    }
+
+  }
+
+}
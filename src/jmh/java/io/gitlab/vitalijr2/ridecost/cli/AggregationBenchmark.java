@@ -0,0 +1,75 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import picocli.CommandLine;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class AggregationBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  @Param({"1000000"})
+  public int trips;
+
+  private RideCost instance;
+  private ForkJoinPool pool;
+  private Path tripLog;
+
+  @Setup
+  public void setUp() throws IOException {
+    var random = new Random(20251128);
+    var lines = new StringBuilder();
+
+    for (int i = 0; i < trips; i++) {
+      lines.append("vehicle-").append(random.nextInt(100)).append(',')
+          .append(BigDecimal.valueOf(1 + random.nextInt(100_000), 1)).append('\n');
+    }
+    tripLog = Files.createTempFile("ridecost-benchmark_", ".csv");
+    Files.writeString(tripLog, lines);
+    pool = new ForkJoinPool(parallelism);
+    instance = new RideCost();
+    instance.spec = new CommandLine(instance).getCommandSpec();
+    instance.distancePerVolume = null;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    instance.rounding = Rounding.TWO_DECIMAL_PLACES;
+    instance.resolveEngine();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    pool.shutdown();
+    Files.delete(tripLog);
+  }
+
+  @Benchmark
+  public TripAggregator.Totals aggregate() throws IOException {
+    return instance.aggregateTrips(tripLog, pool);
+  }
+
+}
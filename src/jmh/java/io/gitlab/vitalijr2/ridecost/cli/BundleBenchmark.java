@@ -0,0 +1,76 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cold start: the first bundle load in a fresh JVM, as in a single run of the tool
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(20)
+@Measurement(iterations = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 0)
+public class BundleBenchmark {
+
+  @Param({"en", "de", "pt-BR"})
+  public String languageTag;
+
+  private Locale locale;
+
+  @Setup
+  public void setUp() {
+    locale = Locale.forLanguageTag(languageTag);
+  }
+
+  @Benchmark
+  public ResourceBundle generatedClasses() {
+    return ResourceBundle.getBundle(CommandLineBundle.class.getName(), locale,
+        ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_CLASS));
+  }
+
+  // the sources of the generated classes, parsed the way the properties bundles were
+  @Benchmark
+  public ResourceBundle propertiesFiles() {
+    return ResourceBundle.getBundle("CommandLineBundle", locale, new PropertiesControl());
+  }
+
+  private static class PropertiesControl extends ResourceBundle.Control {
+
+    @Override
+    public List<String> getFormats(String baseName) {
+      return FORMAT_PROPERTIES;
+    }
+
+    @Override
+    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader,
+        boolean reload) throws IOException {
+      var file = Path.of("src", "main", "bundles", toBundleName(baseName, locale) + ".properties");
+
+      if (Files.notExists(file)) {
+        return null;
+      }
+      try (var input = Files.newInputStream(file)) {
+        return new PropertyResourceBundle(input);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,55 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class EstimationBenchmark {
+
+  @Param({"distance-per-volume", "volume-per-distance"})
+  String estimator;
+
+  @Param({"EXACT", "WHOLE", "TWO_DECIMAL_PLACES", "THREE_DECIMAL_PLACES", "FOUR_DECIMAL_PLACES"})
+  String rounding;
+
+  private RideCost instance;
+
+  @Setup
+  public void setUp() {
+    instance = new RideCost();
+    instance.distance = BigDecimal.valueOf(456);
+    instance.price = BigDecimal.valueOf(59.99);
+    if ("distance-per-volume".equals(estimator)) {
+      instance.distancePerVolume = BigDecimal.valueOf(23.2);
+      instance.volumePerDistance = null;
+    } else {
+      instance.distancePerVolume = null;
+      instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    }
+    instance.rounding = "EXACT".equals(rounding) ? null : Rounding.valueOf(rounding);
+    instance.resolveEngine();
+  }
+
+  @Benchmark
+  public BigDecimal estimateRideCost() {
+    return instance.estimateRideCost(instance.distance);
+  }
+
+}
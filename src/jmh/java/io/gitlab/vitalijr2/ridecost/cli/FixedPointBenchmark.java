@@ -0,0 +1,49 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The engine is only for fuel consumption per distance, compare with EstimationBenchmark.estimateRideCost
+// of volume-per-distance.
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class FixedPointBenchmark {
+
+  @Param({"EXACT", "WHOLE", "TWO_DECIMAL_PLACES", "THREE_DECIMAL_PLACES", "FOUR_DECIMAL_PLACES"})
+  String rounding;
+
+  private FixedPointEstimator fixedPointEstimator;
+
+  @Setup
+  public void setUp() {
+    fixedPointEstimator = FixedPointEstimator.volumeByDistance(BigDecimal.valueOf(4.3), BigDecimal.valueOf(59.99),
+        "EXACT".equals(rounding) ? null : Rounding.valueOf(rounding));
+    // without the fast path it would measure the exact estimator again
+    if (!fixedPointEstimator.isFastPath()) {
+      throw new IllegalStateException("Fixed-point engine has no fast path for the estimator");
+    }
+  }
+
+  @Benchmark
+  public BigDecimal estimateWithFixedPoint() {
+    return fixedPointEstimator.estimate(456, 0);
+  }
+
+}
@@ -0,0 +1,96 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class OutputBenchmark {
+
+  @Param({"PLAIN", "CSV", "JSON", "NDJSON"})
+  public String format;
+
+  // unscaled values, every record gets new decimals like estimated ones without a cached string
+  private final long[] costs = new long[1024];
+  private final long[] distances = new long[1024];
+
+  private int index;
+  private PrintWriter printWriter;
+  private ResultWriter resultWriter;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < costs.length; i++) {
+      distances[i] = 1 + i * 37L;
+      costs[i] = BigDecimal.valueOf(4.3).multiply(BigDecimal.valueOf(59.99))
+          .multiply(BigDecimal.valueOf(distances[i], 1)).movePointLeft(2).setScale(2, RoundingMode.HALF_UP)
+          .unscaledValue().longValueExact();
+    }
+    // like /dev/null
+    resultWriter = ResultWriter.standardOutput(new WritableByteChannel() {
+
+      @Override
+      public int write(ByteBuffer source) {
+        var length = source.remaining();
+
+        source.position(source.limit());
+
+        return length;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+
+    }, ResultWriter.Format.valueOf(format));
+    printWriter = new PrintWriter(Writer.nullWriter());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    resultWriter.close();
+  }
+
+  @Benchmark
+  public void printWriter() {
+    var cost = BigDecimal.valueOf(costs[index++ & 1023], 2);
+
+    printWriter.write(cost.toString());
+    printWriter.write('\n');
+  }
+
+  @Benchmark
+  public void resultWriter() throws IOException {
+    var i = index++ & 1023;
+
+    resultWriter.estimate(BigDecimal.valueOf(distances[i], 1), BigDecimal.valueOf(costs[i], 2));
+  }
+
+}
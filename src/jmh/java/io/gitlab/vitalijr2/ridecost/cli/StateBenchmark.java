@@ -0,0 +1,54 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class StateBenchmark {
+
+  private RideCost instance;
+  private File stateFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    stateFile = File.createTempFile("ridecost-benchmark_", ".properties");
+    instance = new RideCost();
+    instance.distancePerVolume = null;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    instance.rounding = Rounding.TWO_DECIMAL_PLACES;
+  }
+
+  @TearDown
+  public void tearDown() {
+    stateFile.delete();
+  }
+
+  @Benchmark
+  public RideCost roundTrip() throws IOException {
+    instance.saveState(stateFile);
+    instance.loadState(stateFile);
+
+    return instance;
+  }
+
+}
@@ -0,0 +1,58 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.api.RideCostService;
+import io.gitlab.vitalijr2.ridecost.api.RideRequest;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class UnitCostBenchmark {
+
+  private static final BigDecimal DISTANCE = BigDecimal.valueOf(456);
+  private static final BigDecimal PRICE = BigDecimal.valueOf(59.99);
+  private static final BigDecimal RATIO = BigDecimal.valueOf(4.3);
+
+  // fuel economy has no unit cost
+  @Param({"EXACT", "WHOLE", "TWO_DECIMAL_PLACES", "THREE_DECIMAL_PLACES", "FOUR_DECIMAL_PLACES"})
+  String rounding;
+
+  private Rounding estimateRounding;
+  private RideCostService service;
+
+  @Setup
+  public void setUp() {
+    var unitCost = UnitCost.derive(RideRequest.Ratio.VOLUME_PER_DISTANCE, RATIO, PRICE);
+
+    estimateRounding = "EXACT".equals(rounding) ? null : Rounding.valueOf(rounding);
+    // without the unit cost it would measure the exact estimator again
+    if (isNull(unitCost)) {
+      throw new IllegalStateException("Unit cost is not derived");
+    }
+    service = RideCostService.create().withUnitCost(RATIO, PRICE, unitCost.coefficient(), unitCost.roundingMode());
+  }
+
+  @Benchmark
+  public BigDecimal estimateWithUnitCost() {
+    return service.cost(RideRequest.Ratio.VOLUME_PER_DISTANCE, RATIO, PRICE, DISTANCE, estimateRounding);
+  }
+
+}
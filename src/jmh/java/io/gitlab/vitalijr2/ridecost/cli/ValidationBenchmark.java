@@ -0,0 +1,56 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class ValidationBenchmark {
+
+  private RideCost instance;
+  private RideCost routeInstance;
+
+  @Setup
+  public void setUp() {
+    instance = new RideCost();
+    instance.distance = BigDecimal.valueOf(456);
+    instance.distancePerVolume = null;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    routeInstance = new RideCost();
+    routeInstance.distancePerVolume = null;
+    routeInstance.volumePerDistance = BigDecimal.valueOf(4.3);
+    routeInstance.price = BigDecimal.valueOf(59.99);
+    routeInstance.route = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      routeInstance.route.add(new Leg(BigDecimal.valueOf(1 + i % 500), (i % 10 == 0) ? BigDecimal.valueOf(6.1) : null,
+          null));
+    }
+  }
+
+  @Benchmark
+  public void validatePositiveDecimals() {
+    instance.validatePositiveDecimals();
+  }
+
+  @Benchmark
+  public void validateRoute() {
+    routeInstance.validatePositiveDecimals();
+  }
+
+}
@@ -0,0 +1,115 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.LongBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+// Costs of trips that are kept in columns of primitive arrays, all values must be positive.
+// The vector kernel is built by the vector profile and needs --add-modules jdk.incubator.vector at runtime,
+// without either of them the scalar loops are used.
+public final class ColumnarCosts {
+
+  private static final Logger LOGGER = System.getLogger(ColumnarCosts.class.getName());
+  private static final String VECTOR_KERNEL = "io.gitlab.vitalijr2.ridecost.api.VectorCostKernel";
+  private static final CostKernel KERNEL = loadKernel(VECTOR_KERNEL);
+
+  private ColumnarCosts() {
+  }
+
+  // double lanes for both formulas: a cost is within a unit of the last decimal place of the rounding
+  public static void estimate(@NotNull RideRequest.Ratio ratioKind, double[] ratios, double[] prices,
+      double[] distances, @Nullable Rounding rounding, double[] costs) {
+    checkLengths(ratios.length, prices.length, distances.length, costs.length);
+    KERNEL.estimate(ratioKind, ratios, prices, distances, rounding, costs);
+  }
+
+  // long fixed-point lanes, a column is unscaled values with one scale; the costs are exact,
+  // unscaled at the decimal places of the rounding
+  public static void estimateVolumePerDistance(long[] ratios, int ratioScale, long[] prices, int priceScale,
+      long[] distances, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    checkLengths(ratios.length, prices.length, distances.length, costs.length);
+    checkFixedPoint(ratioScale, priceScale, distanceScale, rounding);
+    KERNEL.estimateVolumePerDistance(ratios, ratioScale, prices, priceScale, distances, distanceScale, rounding,
+        costs);
+  }
+
+  // one ratio and price for a column of distances, for example a view of a mapped file: the distances are
+  // read from the offset, as many as there are costs
+  public static void estimateVolumePerDistance(long ratio, int ratioScale, long price, int priceScale,
+      @NotNull LongBuffer distances, int offset, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    if (offset < 0 || distances.limit() - offset < costs.length) {
+      throw new IllegalArgumentException(
+          String.format("Distances from %d must hold %d values, but the limit is %d", offset, costs.length,
+              distances.limit()));
+    }
+    checkFixedPoint(ratioScale, priceScale, distanceScale, rounding);
+    KERNEL.estimateVolumePerDistance(ratio, ratioScale, price, priceScale, distances, offset, distanceScale, rounding,
+        costs);
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static CostKernel kernel() {
+    return KERNEL;
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static CostKernel loadKernel(@NotNull String className) {
+    try {
+      var kernel = (CostKernel) Class.forName(className).getDeclaredConstructor().newInstance();
+
+      LOGGER.log(Level.DEBUG, "Vector kernel is used");
+
+      return kernel;
+    } catch (ReflectiveOperationException | LinkageError exception) {
+      LOGGER.log(Level.DEBUG, "Vector kernel is not available: {0}", exception.toString());
+
+      return new ScalarCostKernel();
+    }
+  }
+
+  private static void checkFixedPoint(int ratioScale, int priceScale, int distanceScale, Rounding rounding) {
+    if (isNull(rounding)) {
+      throw new IllegalArgumentException("Fixed-point costs need a rounding");
+    }
+    if (ratioScale < 0 || priceScale < 0 || distanceScale < 0) {
+      throw new IllegalArgumentException(
+          String.format("Scales must not be negative, but got %d, %d and %d", ratioScale, priceScale, distanceScale));
+    }
+  }
+
+  private static void checkLengths(int ratios, int prices, int distances, int costs) {
+    if (ratios != costs || prices != costs || distances != costs) {
+      throw new IllegalArgumentException(
+          String.format("Columns must have the same length, but got %d, %d, %d and %d", ratios, prices, distances,
+              costs));
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Bounded LRU cache of estimated costs, services may share one, e.g. the exact and fixed-point ones.
+// Decimals are compared with their scale: exact results keep the scale of the inputs, so 1.5 and 1.50 are different.
+public final class CostCache {
+
+  private final int capacity;
+  private final LinkedHashMap<Key, BigDecimal> costs;
+
+  private long evictions;
+  private long hits;
+  private long misses;
+
+  public CostCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive, but got " + capacity);
+    }
+    this.capacity = capacity;
+    costs = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true) {
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, BigDecimal> eldest) {
+        if (size() > CostCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+
+        return false;
+      }
+
+    };
+  }
+
+  @Nullable
+  synchronized BigDecimal find(@NotNull Key key) {
+    var cost = costs.get(key);
+
+    if (isNull(cost)) {
+      misses++;
+    } else {
+      hits++;
+    }
+
+    return cost;
+  }
+
+  // the cost is estimated out of the lock, so two threads may put the same one
+  synchronized void put(@NotNull Key key, @NotNull BigDecimal cost) {
+    costs.put(key, cost);
+  }
+
+  @NotNull
+  public synchronized Statistics statistics() {
+    return new Statistics(hits, misses, evictions, costs.size());
+  }
+
+  record Key(@NotNull String estimator, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+             @Nullable Rounding rounding, @NotNull BigDecimal distance) {
+
+  }
+
+  public record Statistics(long hits, long misses, long evictions, int entries) {
+
+  }
+
+}
@@ -0,0 +1,39 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.nio.LongBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Costs of columns, the arguments are checked by ColumnarCosts.
+interface CostKernel {
+
+  void estimate(@NotNull RideRequest.Ratio ratioKind, double[] ratios, double[] prices, double[] distances,
+      @Nullable Rounding rounding, double[] costs);
+
+  void estimateVolumePerDistance(long[] ratios, int ratioScale, long[] prices, int priceScale, long[] distances,
+      int distanceScale, @NotNull Rounding rounding, long[] costs);
+
+  void estimateVolumePerDistance(long ratio, int ratioScale, long price, int priceScale, LongBuffer distances,
+      int offset, int distanceScale, @NotNull Rounding rounding, long[] costs);
+
+}
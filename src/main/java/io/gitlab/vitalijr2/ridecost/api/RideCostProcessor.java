@@ -0,0 +1,356 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+// A reactive stage of the embeddable API: requests are estimated by the service on the executor, at most
+// `parallelism` at once, and results go to the only subscriber in the order of requests.
+// At most `bufferSize` requests are held: more are requested from the publisher only when results are delivered,
+// so a slow subscriber slows down the publisher instead of filling the memory.
+public final class RideCostProcessor implements Flow.Processor<RideRequest, RideResult> {
+
+  private final int bufferSize;
+  private final Executor executor;
+  private final Object lock = new Object();
+  private final int parallelism;
+  private final ArrayDeque<Slot> pending = new ArrayDeque<>();
+  private final int requestThreshold;
+  private final RideCostService service;
+  private final ArrayDeque<Slot> window = new ArrayDeque<>();
+
+  // the fields below are guarded by the lock
+  private boolean cancelled;
+  private long demand;
+  private Throwable downstreamFailure;
+  private boolean emitting;
+  private boolean missed;
+  private long outstanding;
+  private int running;
+  private Flow.Subscriber<? super RideResult> subscriber;
+  // set only when onSubscribe has returned, no other signal may come before it
+  private boolean subscribed;
+  private boolean terminated;
+  private Flow.Subscription upstream;
+  private boolean upstreamDone;
+  private Throwable upstreamFailure;
+
+  public RideCostProcessor(@NotNull RideCostService service, @NotNull Executor executor, int parallelism,
+      int bufferSize) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive, but got " + parallelism);
+    }
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be positive, but got " + bufferSize);
+    }
+    this.service = service;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.bufferSize = bufferSize;
+    // the publisher is asked for a quarter of the buffer at least, not for every delivered result
+    requestThreshold = Math.max(1, bufferSize / 4);
+  }
+
+  @Override
+  public void subscribe(@NotNull Flow.Subscriber<? super RideResult> subscriber) {
+    synchronized (lock) {
+      if (isNull(this.subscriber)) {
+        this.subscriber = subscriber;
+        subscriber = null;
+      }
+    }
+    if (nonNull(subscriber)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+      });
+      subscriber.onError(new IllegalStateException("Processor supports only one subscriber"));
+      return;
+    }
+    this.subscriber.onSubscribe(new Downstream());
+    synchronized (lock) {
+      subscribed = true;
+    }
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(@NotNull Flow.Subscription subscription) {
+    synchronized (lock) {
+      if (isNull(upstream) && !cancelled) {
+        upstream = subscription;
+        subscription = null;
+      }
+    }
+    if (nonNull(subscription)) {
+      subscription.cancel();
+      return;
+    }
+    drain();
+  }
+
+  @Override
+  public void onNext(@NotNull RideRequest request) {
+    boolean rejected;
+
+    synchronized (lock) {
+      if (cancelled || upstreamDone) {
+        return;
+      }
+
+      var slot = new Slot(request);
+
+      outstanding = Math.max(0, outstanding - 1);
+      window.add(slot);
+      pending.add(slot);
+      schedule();
+      rejected = nonNull(downstreamFailure);
+    }
+    if (rejected) {
+      drain();
+    }
+  }
+
+  @Override
+  public void onError(@NotNull Throwable throwable) {
+    synchronized (lock) {
+      upstreamDone = true;
+      upstreamFailure = throwable;
+    }
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    synchronized (lock) {
+      upstreamDone = true;
+    }
+    drain();
+  }
+
+  // the number of requests that are received and whose results are not delivered yet
+  @VisibleForTesting
+  int buffered() {
+    synchronized (lock) {
+      return window.size();
+    }
+  }
+
+  // guarded by the lock
+  private void schedule() {
+    while (running < parallelism && running < pending.size() && isNull(downstreamFailure)) {
+      running++;
+      try {
+        executor.execute(this::estimate);
+      } catch (RejectedExecutionException exception) {
+        running--;
+        downstreamFailure = exception;
+      }
+    }
+  }
+
+  // a worker takes requests until there are no more
+  private void estimate() {
+    while (true) {
+      Slot slot;
+
+      synchronized (lock) {
+        slot = pending.poll();
+        if (isNull(slot) || cancelled) {
+          running--;
+          return;
+        }
+      }
+
+      RideResult result = null;
+      RuntimeException failure = null;
+
+      try {
+        result = service.estimate(slot.request);
+      } catch (RuntimeException exception) {
+        failure = exception;
+      }
+      synchronized (lock) {
+        slot.result = result;
+        slot.failure = failure;
+        slot.done = true;
+      }
+      drain();
+    }
+  }
+
+  // only one thread calls the subscriber, the others leave a note that there is more to do
+  private void drain() {
+    synchronized (lock) {
+      if (emitting) {
+        missed = true;
+        return;
+      }
+      emitting = true;
+    }
+    while (true) {
+      Flow.Subscriber<? super RideResult> target;
+      Flow.Subscription source;
+      List<RideResult> results = new ArrayList<>();
+      Throwable failure = null;
+      var complete = false;
+      var cancelSource = false;
+      long credit = 0;
+
+      synchronized (lock) {
+        missed = false;
+        target = subscriber;
+        source = upstream;
+        if (!subscribed || terminated) {
+          emitting = false;
+          return;
+        }
+        if (nonNull(downstreamFailure)) {
+          failure = downstreamFailure;
+          cancelSource = !upstreamDone;
+          terminate();
+        }
+        while (isNull(failure) && demand > 0 && !window.isEmpty() && window.peek().done) {
+          var slot = window.poll();
+
+          if (nonNull(slot.failure)) {
+            failure = slot.failure;
+            cancelSource = !upstreamDone;
+            terminate();
+            break;
+          }
+          results.add(slot.result);
+          demand--;
+        }
+        if (isNull(failure) && window.isEmpty() && upstreamDone) {
+          failure = upstreamFailure;
+          complete = isNull(failure);
+          terminate();
+        }
+        if (!terminated && nonNull(source) && !upstreamDone) {
+          credit = bufferSize - window.size() - outstanding;
+          if (credit >= requestThreshold || (credit > 0 && window.isEmpty() && outstanding == 0)) {
+            outstanding += credit;
+          } else {
+            credit = 0;
+          }
+        }
+      }
+      for (var result : results) {
+        target.onNext(result);
+      }
+      if (cancelSource && nonNull(source)) {
+        source.cancel();
+      } else if (credit > 0) {
+        source.request(credit);
+      }
+      if (nonNull(failure)) {
+        target.onError(failure);
+      } else if (complete) {
+        target.onComplete();
+      }
+      synchronized (lock) {
+        if (!missed || terminated) {
+          emitting = false;
+          return;
+        }
+      }
+    }
+  }
+
+  // guarded by the lock
+  private void terminate() {
+    terminated = true;
+    cancelled = true;
+    window.clear();
+    pending.clear();
+  }
+
+  private static final class Slot {
+
+    private final RideRequest request;
+
+    // guarded by the lock of the processor
+    private boolean done;
+    @Nullable
+    private RuntimeException failure;
+    @Nullable
+    private RideResult result;
+
+    private Slot(RideRequest request) {
+      this.request = request;
+    }
+
+  }
+
+  private final class Downstream implements Flow.Subscription {
+
+    @Override
+    public void request(long n) {
+      synchronized (lock) {
+        if (terminated) {
+          return;
+        }
+        if (n <= 0) {
+          downstreamFailure = new IllegalArgumentException("Request must be positive, but got " + n);
+        } else {
+          demand = (Long.MAX_VALUE - demand < n) ? Long.MAX_VALUE : demand + n;
+        }
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      Flow.Subscription source;
+
+      synchronized (lock) {
+        if (terminated) {
+          return;
+        }
+        source = upstreamDone ? null : upstream;
+        terminate();
+      }
+      if (nonNull(source)) {
+        source.cancel();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,233 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The embeddable API: immutable and safe to share between threads, it reads neither the state file nor profiles,
+// everything comes with the request. The command line is an adapter over it.
+public final class RideCostService {
+
+  @Nullable
+  private final CostCache cache;
+  private final boolean fixedPoint;
+  @Nullable
+  private final UnitCost unitCost;
+
+  // the last fixed-point engines: they are immutable, so a thread may only build an extra one
+  @Nullable
+  private volatile FixedPointEstimator distancePerVolumeEstimator;
+  @Nullable
+  private volatile FixedPointEstimator volumePerDistanceEstimator;
+
+  private RideCostService(boolean fixedPoint, @Nullable CostCache cache, @Nullable UnitCost unitCost) {
+    this.fixedPoint = fixedPoint;
+    this.cache = cache;
+    this.unitCost = unitCost;
+  }
+
+  // exact engines without a cache
+  @NotNull
+  public static RideCostService create() {
+    return new RideCostService(false, null, null);
+  }
+
+  // the fixed-point engine, the same costs in long arithmetic
+  @NotNull
+  public RideCostService withFixedPoint() {
+    return new RideCostService(true, cache, unitCost);
+  }
+
+  // a bounded LRU cache of costs shared by every thread of the service
+  @NotNull
+  public RideCostService withCache(int capacity) {
+    return withCache(new CostCache(capacity));
+  }
+
+  // a cache shared with other services, its statistics are those of all of them
+  @NotNull
+  public RideCostService withCache(@NotNull CostCache cache) {
+    return new RideCostService(fixedPoint, cache, unitCost);
+  }
+
+  // A known cost of a unit of distance for one ratio and price, e.g. saved by an earlier run: a ride with them
+  // is one multiplication and rounding, cheaper than a lookup in the cache. Only the cost of fuel consumption
+  // is linear in the distance.
+  @NotNull
+  public RideCostService withUnitCost(@NotNull BigDecimal volumePerDistance, @NotNull BigDecimal price,
+      @NotNull BigDecimal unitCost, @NotNull RoundingMode roundingMode) {
+    RideRequest.check(RideRequest.Ratio.VOLUME_PER_DISTANCE, volumePerDistance, price);
+
+    return new RideCostService(fixedPoint, cache, new UnitCost(volumePerDistance, price,
+        requireNonNull(unitCost, "Unit cost is required"), requireNonNull(roundingMode, "Rounding mode is required")));
+  }
+
+  @NotNull
+  public RideResult estimate(@NotNull RideRequest request) {
+    return new RideResult(request, cost(request.ratioKind(), request.ratio(), request.price(), request.distance(),
+        request.rounding()));
+  }
+
+  @NotNull
+  public List<RideResult> estimateAll(@NotNull Iterable<? extends RideRequest> requests) {
+    var results = new ArrayList<RideResult>();
+
+    for (var request : requests) {
+      results.add(estimate(request));
+    }
+
+    return results;
+  }
+
+  // lazy and sequential, a caller may make it parallel
+  @NotNull
+  public Stream<RideResult> estimateAll(@NotNull Spliterator<? extends RideRequest> requests) {
+    return StreamSupport.stream(requests, false).map(this::estimate);
+  }
+
+  // the cost alone, so that a batch of many rides allocates neither requests nor results
+  @NotNull
+  public BigDecimal cost(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+      @NotNull BigDecimal distance, @Nullable Rounding rounding) {
+    RideRequest.check(ratioKind, ratio, price, distance);
+
+    if (nonNull(unitCost) && unitCost.isFor(ratioKind, ratio, price)) {
+      return unitCost.estimate(distance, rounding);
+    }
+    if (isNull(cache)) {
+      return compute(ratioKind, ratio, price, distance, rounding);
+    }
+
+    // both engines give the same costs, so they share the entries
+    var key = new CostCache.Key(ratioKind.optionName(), ratio, price, rounding, distance);
+    var cost = cache.find(key);
+
+    if (isNull(cost)) {
+      cost = compute(ratioKind, ratio, price, distance, rounding);
+      cache.put(key, cost);
+    }
+
+    return cost;
+  }
+
+  // the distance as its unscaled value and scale: the fixed-point engine without a cache takes it as it is,
+  // the others get a decimal
+  @NotNull
+  public BigDecimal cost(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+      long unscaledDistance, int distanceScale, @Nullable Rounding rounding) {
+    if (!fixedPoint || nonNull(cache) || unscaledDistance <= 0) {
+      return cost(ratioKind, ratio, price, BigDecimal.valueOf(unscaledDistance, distanceScale), rounding);
+    }
+    RideRequest.check(ratioKind, ratio, price);
+
+    return engine(ratioKind, ratio, price, rounding).estimate(unscaledDistance, distanceScale);
+  }
+
+  // Whether whole columns of distances give the same costs through ColumnarCosts: only the fixed-point engine
+  // without a cache does, on its fast path for fuel consumption with rounding.
+  public boolean isColumnar(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio,
+      @NotNull BigDecimal price, @Nullable Rounding rounding) {
+    if (!fixedPoint || nonNull(cache) || RideRequest.Ratio.VOLUME_PER_DISTANCE != ratioKind || isNull(rounding)) {
+      return false;
+    }
+    RideRequest.check(ratioKind, ratio, price);
+
+    return engine(ratioKind, ratio, price, rounding).isFastPath();
+  }
+
+  // the costs of many distances at one ratio and price, they are not cached: a sweep would flood the cache
+  @NotNull
+  public UnaryOperator<BigDecimal> costOfDistance(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio,
+      @NotNull BigDecimal price, @Nullable Rounding rounding) {
+    RideRequest.check(ratioKind, ratio, price);
+
+    if (fixedPoint) {
+      return ratioKind.fixedPointEstimator(ratio, price, rounding)::estimate;
+    }
+
+    var estimator = ratioKind.estimator();
+
+    return (distance) -> estimator.estimateCostOfRide(ratio, price, distance, rounding);
+  }
+
+  private BigDecimal compute(RideRequest.Ratio ratioKind, BigDecimal ratio, BigDecimal price, BigDecimal distance,
+      Rounding rounding) {
+    if (!fixedPoint) {
+      return ratioKind.estimator().estimateCostOfRide(ratio, price, distance, rounding);
+    }
+
+    return engine(ratioKind, ratio, price, rounding).estimate(distance);
+  }
+
+  private FixedPointEstimator engine(RideRequest.Ratio ratioKind, BigDecimal ratio, BigDecimal price,
+      Rounding rounding) {
+    var volumePerDistance = ratioKind == RideRequest.Ratio.VOLUME_PER_DISTANCE;
+    var estimator = volumePerDistance ? volumePerDistanceEstimator : distancePerVolumeEstimator;
+
+    if (isNull(estimator) || !estimator.isFor(ratio, price, rounding)) {
+      estimator = ratioKind.fixedPointEstimator(ratio, price, rounding);
+      if (volumePerDistance) {
+        volumePerDistanceEstimator = estimator;
+      } else {
+        distancePerVolumeEstimator = estimator;
+      }
+    }
+
+    return estimator;
+  }
+
+  private record UnitCost(BigDecimal volumePerDistance, BigDecimal price, BigDecimal coefficient,
+                          RoundingMode roundingMode) {
+
+    BigDecimal estimate(BigDecimal distance, Rounding rounding) {
+      var cost = coefficient.multiply(distance);
+
+      if (nonNull(rounding)) {
+        return cost.setScale(rounding.decimalPlaces, roundingMode);
+      }
+
+      // the estimator moves the point of the product, that never leaves a negative scale
+      return (cost.scale() < 0) ? cost.setScale(0) : cost;
+    }
+
+    // the same ratio and price with the same scales, the coefficient has the scale of their product
+    boolean isFor(RideRequest.Ratio ratioKind, BigDecimal ratio, BigDecimal price) {
+      return RideRequest.Ratio.VOLUME_PER_DISTANCE == ratioKind && volumePerDistance.equals(ratio)
+          && this.price.equals(price);
+    }
+
+  }
+
+}
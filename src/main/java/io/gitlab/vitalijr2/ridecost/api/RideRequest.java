@@ -0,0 +1,120 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// An immutable request of the embeddable API: the ratio and its kind, the price, the distance and the rounding,
+// null rounding keeps the exact value.
+public record RideRequest(@NotNull Ratio ratioKind, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+                          @NotNull BigDecimal distance, @Nullable Rounding rounding) {
+
+  public RideRequest {
+    check(ratioKind, ratio, price, distance);
+  }
+
+  @NotNull
+  public static RideRequest distancePerVolume(@NotNull BigDecimal distancePerVolume, @NotNull BigDecimal price,
+      @NotNull BigDecimal distance, @Nullable Rounding rounding) {
+    return new RideRequest(Ratio.DISTANCE_PER_VOLUME, distancePerVolume, price, distance, rounding);
+  }
+
+  @NotNull
+  public static RideRequest volumePerDistance(@NotNull BigDecimal volumePerDistance, @NotNull BigDecimal price,
+      @NotNull BigDecimal distance, @Nullable Rounding rounding) {
+    return new RideRequest(Ratio.VOLUME_PER_DISTANCE, volumePerDistance, price, distance, rounding);
+  }
+
+  static void check(Ratio ratioKind, BigDecimal ratio, BigDecimal price, BigDecimal distance) {
+    check(ratioKind, ratio, price);
+    checkPositive("Distance", distance);
+  }
+
+  static void check(Ratio ratioKind, BigDecimal ratio, BigDecimal price) {
+    if (isNull(ratioKind)) {
+      throw new IllegalArgumentException("Ratio kind is required");
+    }
+    checkPositive("Ratio", ratio);
+    checkPositive("Price", price);
+  }
+
+  private static void checkPositive(String name, BigDecimal value) {
+    if (isNull(value) || value.signum() <= 0) {
+      throw new IllegalArgumentException(name + " must be positive, but got " + value);
+    }
+  }
+
+  public enum Ratio {
+
+    DISTANCE_PER_VOLUME("distance-per-volume") {
+      @Override
+      public RideCostEstimator estimator() {
+        return RideCostEstimator.distanceByVolumeEstimator();
+      }
+
+      @Override
+      public FixedPointEstimator fixedPointEstimator(BigDecimal ratio, BigDecimal price, Rounding rounding) {
+        return FixedPointEstimator.distanceByVolume(ratio, price, rounding);
+      }
+    },
+
+    VOLUME_PER_DISTANCE("volume-per-distance") {
+      @Override
+      public RideCostEstimator estimator() {
+        return RideCostEstimator.volumeByDistanceEstimator();
+      }
+
+      @Override
+      public FixedPointEstimator fixedPointEstimator(BigDecimal ratio, BigDecimal price, Rounding rounding) {
+        return FixedPointEstimator.volumeByDistance(ratio, price, rounding);
+      }
+    };
+
+    private final String optionName;
+
+    Ratio(String optionName) {
+      this.optionName = optionName;
+    }
+
+    // the name of the option and of the saved property
+    @NotNull
+    public String optionName() {
+      return optionName;
+    }
+
+    // the estimator of the library for this kind of ratio
+    @NotNull
+    public abstract RideCostEstimator estimator();
+
+    // the same formula in long arithmetic
+    @NotNull
+    public abstract FixedPointEstimator fixedPointEstimator(@NotNull BigDecimal ratio, @NotNull BigDecimal price,
+        @Nullable Rounding rounding);
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.nio.LongBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The plain loops: the fallback without the vector kernel, and the tail of the vector one.
+// The vector kernel computes every lane with the same operations, so both give the same doubles.
+class ScalarCostKernel implements CostKernel {
+
+  // from here on a double has no fraction digits left to round
+  static final double EXACT_LIMIT = 0x1p52;
+
+  private static final double[] SCALES = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+  static void estimate(RideRequest.Ratio ratioKind, double[] ratios, double[] prices, double[] distances,
+      @Nullable Rounding rounding, double[] costs, int from, int to) {
+    var volumePerDistance = ratioKind == RideRequest.Ratio.VOLUME_PER_DISTANCE;
+    var scale = isNull(rounding) ? 0 : scale(rounding);
+
+    for (int i = from; i < to; i++) {
+      var cost = volumePerDistance ? ratios[i] * prices[i] * distances[i] / 100.0
+          : distances[i] / ratios[i] * prices[i];
+
+      costs[i] = isNull(rounding) ? cost : round(cost, scale);
+    }
+  }
+
+  static void estimateVolumePerDistance(long[] ratios, int ratioScale, long[] prices, int priceScale,
+      long[] distances, int distanceScale, Rounding rounding, long[] costs, int from, int to) {
+    var scale = ratioScale + priceScale + distanceScale + 2;
+
+    for (int i = from; i < to; i++) {
+      costs[i] = cost(ratios[i], ratioScale, prices[i], priceScale, distances[i], distanceScale, scale, rounding);
+    }
+  }
+
+  static void estimateVolumePerDistance(long ratio, int ratioScale, long price, int priceScale, LongBuffer distances,
+      int offset, int distanceScale, Rounding rounding, long[] costs, int from, int to) {
+    var scale = ratioScale + priceScale + distanceScale + 2;
+
+    for (int i = from; i < to; i++) {
+      costs[i] = cost(ratio, ratioScale, price, priceScale, distances.get(offset + i), distanceScale, scale, rounding);
+    }
+  }
+
+  static double scale(@NotNull Rounding rounding) {
+    return SCALES[rounding.decimalPlaces];
+  }
+
+  // half up, the costs are positive
+  static double round(double cost, double scale) {
+    var scaled = cost * scale + 0.5;
+
+    return (scaled >= EXACT_LIMIT) ? cost : (long) scaled / scale;
+  }
+
+  private static long cost(long ratio, int ratioScale, long price, int priceScale, long distance, int distanceScale,
+      int scale, Rounding rounding) {
+    try {
+      return FixedPointEstimator.round(Math.multiplyExact(Math.multiplyExact(ratio, price), distance), scale,
+          rounding.decimalPlaces, FixedPointEstimator.ROUNDING_MODE);
+    } catch (ArithmeticException exception) {
+      // overflow, use BigDecimal instead
+    }
+
+    return RideCostEstimator.volumeByDistanceEstimator()
+        .estimateCostOfRide(BigDecimal.valueOf(ratio, ratioScale), BigDecimal.valueOf(price, priceScale),
+            BigDecimal.valueOf(distance, distanceScale), rounding)
+        .movePointRight(rounding.decimalPlaces).longValueExact();
+  }
+
+  @Override
+  public void estimate(@NotNull RideRequest.Ratio ratioKind, double[] ratios, double[] prices, double[] distances,
+      @Nullable Rounding rounding, double[] costs) {
+    estimate(ratioKind, ratios, prices, distances, rounding, costs, 0, costs.length);
+  }
+
+  @Override
+  public void estimateVolumePerDistance(long[] ratios, int ratioScale, long[] prices, int priceScale,
+      long[] distances, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    estimateVolumePerDistance(ratios, ratioScale, prices, priceScale, distances, distanceScale, rounding, costs, 0,
+        costs.length);
+  }
+
+  @Override
+  public void estimateVolumePerDistance(long ratio, int ratioScale, long price, int priceScale, LongBuffer distances,
+      int offset, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    estimateVolumePerDistance(ratio, ratioScale, price, priceScale, distances, offset, distanceScale, rounding, costs,
+        0, costs.length);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+
+final class AtomicFiles {
+
+  private static final Logger LOGGER = System.getLogger(AtomicFiles.class.getName());
+  private static final ReentrantLock LOCK = new ReentrantLock();
+  private static final int MAX_LINKS = 40;
+
+  private AtomicFiles() {
+  }
+
+  // the file lock is only released
+  @SuppressWarnings("try")
+  static void write(Path target, Content content) throws IOException {
+    if (Files.isDirectory(target)) {
+      throw new FileNotFoundException(target + " (Is a directory)");
+    }
+
+    var absoluteTarget = resolve(target);
+    var folder = absoluteTarget.getParent();
+
+    Files.createDirectories(folder);
+    // file locks are held by the whole JVM, so serialize our own threads first
+    LOCK.lock();
+    try (var lockChannel = FileChannel.open(folder.resolve(absoluteTarget.getFileName() + ".lock"),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE); var ignored = lockChannel.lock()) {
+      var temporaryFile = createTemporaryFile(absoluteTarget);
+
+      try {
+        try (var channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+          var output = Channels.newOutputStream(channel);
+
+          content.writeTo(output);
+          output.flush();
+          channel.force(true);
+        }
+        Files.move(temporaryFile, absoluteTarget, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+      forceFolder(folder);
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  // the file behind symbolic links is replaced, so the links stay; a dangling link gets its file
+  @NotNull
+  static Path resolve(@NotNull Path target) throws IOException {
+    var path = target.toAbsolutePath();
+
+    for (int links = 0; Files.isSymbolicLink(path); links++) {
+      if (MAX_LINKS == links) {
+        throw new FileSystemException(target.toString(), null, "Too many levels of symbolic links");
+      }
+      path = path.resolveSibling(Files.readSymbolicLink(path));
+    }
+
+    return path;
+  }
+
+  // next to the resolved target, so it is moved within one file system; unlike Files.createTempFile
+  // it gets the permissions of the replaced file or, for a new one, the default ones of the umask
+  @NotNull
+  static Path createTemporaryFile(@NotNull Path target) throws IOException {
+    while (true) {
+      var temporaryFile = target.resolveSibling(
+          target.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+
+      try {
+        Files.createFile(temporaryFile);
+      } catch (FileAlreadyExistsException exception) {
+        continue;
+      }
+      try {
+        copyPermissions(target, temporaryFile);
+      } catch (IOException | RuntimeException exception) {
+        Files.deleteIfExists(temporaryFile);
+        throw exception;
+      }
+
+      return temporaryFile;
+    }
+  }
+
+  private static void copyPermissions(Path target, Path temporaryFile) throws IOException {
+    if (Files.exists(target) && Files.getFileStore(temporaryFile)
+        .supportsFileAttributeView(PosixFileAttributeView.class)) {
+      Files.setPosixFilePermissions(temporaryFile, Files.getPosixFilePermissions(target));
+    }
+  }
+
+  private static void forceFolder(Path folder) {
+    try (var channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException exception) {
+      LOGGER.log(Level.DEBUG, "Cannot sync the folder {0}: {1}", folder, exception.getMessage());
+    }
+  }
+
+  @FunctionalInterface
+  interface Content {
+
+    void writeTo(OutputStream output) throws IOException;
+
+  }
+
+}
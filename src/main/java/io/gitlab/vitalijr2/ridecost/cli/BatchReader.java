@@ -0,0 +1,106 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Reads lines like BufferedReader.readLine() but keeps the byte offset of every line in UTF-8,
+// so a rejected record can be found in the input. A line ends with LF, the CR of CRLF stays in the line.
+final class BatchReader {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+  private final char[] chars = new char[BUFFER_SIZE];
+  private final StringBuilder line = new StringBuilder();
+
+  private int position;
+  private int limit;
+  private long lineNumber;
+  private long lineOffset;
+  private long offset;
+
+  BatchReader(@NotNull Reader reader) {
+    this.reader = reader;
+  }
+
+  private static int utf8Length(char character) {
+    if (character < 0x80) {
+      return 1;
+    }
+    // a decoder gives surrogates in pairs: a code point of four bytes, two for each half
+    if (character < 0x800 || Character.isSurrogate(character)) {
+      return 2;
+    }
+
+    return 3;
+  }
+
+  long lineNumber() {
+    return lineNumber;
+  }
+
+  long lineOffset() {
+    return lineOffset;
+  }
+
+  @Nullable
+  String readLine() throws IOException {
+    var read = false;
+
+    line.setLength(0);
+    lineOffset = offset;
+    while (true) {
+      if (position == limit) {
+        limit = reader.read(chars, 0, chars.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          if (!read) {
+            return null;
+          }
+          break;
+        }
+      }
+      read = true;
+
+      var start = position;
+
+      while (position < limit && chars[position] != '\n') {
+        offset += utf8Length(chars[position]);
+        position++;
+      }
+      line.append(chars, start, position - start);
+      if (position < limit) {
+        // skip the line feed
+        position++;
+        offset++;
+        break;
+      }
+    }
+    lineNumber++;
+
+    return line.toString();
+  }
+
+}
@@ -0,0 +1,229 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import io.gitlab.vitalijr2.ridecost.api.ColumnarCosts;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Sums the costs of a columnar trip file like TripAggregator does with a trip log, the blocks are summed in parallel.
+// The distances are passed to the estimator straight from the mapped columns, without parsing or copying,
+// and a block that cannot match the conditions is skipped by its statistics without mapping it.
+// With the fixed-point engine and a rounding the costs of a block are computed at once by ColumnarCosts.
+final class ColumnarTripAggregator {
+
+  private final List<DistanceCondition> conditions;
+  private final DistanceCost distanceCost;
+  private final FixedPointCosts fixedPointCosts;
+  private final AtomicInteger skippedBlocks = new AtomicInteger();
+
+  ColumnarTripAggregator(@NotNull DistanceCost distanceCost, @NotNull List<DistanceCondition> conditions) {
+    this(distanceCost, conditions, null);
+  }
+
+  ColumnarTripAggregator(@NotNull DistanceCost distanceCost, @NotNull List<DistanceCondition> conditions,
+      @Nullable FixedPointCosts fixedPointCosts) {
+    this.distanceCost = distanceCost;
+    this.conditions = conditions;
+    this.fixedPointCosts = fixedPointCosts;
+  }
+
+  private static TripAggregator.Totals empty() {
+    return new TripAggregator.Totals(BigDecimal.ZERO, new TreeMap<>(), 0);
+  }
+
+  @NotNull
+  TripAggregator.Totals aggregate(@NotNull ColumnarTripFile file, @NotNull ForkJoinPool pool) throws IOException {
+    try {
+      return pool.invoke(new BlockTask(file, 0, file.blocks().size()));
+    } catch (UncheckedIOException exception) {
+      throw exception.getCause();
+    }
+  }
+
+  int skippedBlocks() {
+    return skippedBlocks.get();
+  }
+
+  @FunctionalInterface
+  interface DistanceCost {
+
+    @NotNull BigDecimal estimate(long unscaledDistance, int distanceScale);
+
+  }
+
+  // the fuel consumption per distance and the price must not have negative scales,
+  // the engine has its fast path only for them
+  record FixedPointCosts(@NotNull BigDecimal volumePerDistance, @NotNull BigDecimal price,
+                         @NotNull Rounding rounding) {
+
+  }
+
+  private final class BlockTask extends RecursiveTask<TripAggregator.Totals> {
+
+    private static final long serialVersionUID = 2716354984302259163L;
+
+    private final ColumnarTripFile file;
+    private final int from;
+    private final int to;
+
+    BlockTask(ColumnarTripFile file, int from, int to) {
+      this.file = file;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected TripAggregator.Totals compute() {
+      if (from == to) {
+        return empty();
+      }
+      if (to - from > 1) {
+        var middle = (from + to) >>> 1;
+        var left = new BlockTask(file, from, middle);
+
+        left.fork();
+
+        var right = new BlockTask(file, middle, to).compute();
+
+        return left.join().merge(right);
+      }
+      try {
+        return aggregateBlock(file.blocks().get(from));
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    private TripAggregator.Totals aggregateBlock(ColumnarTripFile.BlockIndex block) throws IOException {
+      var bounds = DistanceCondition.bounds(conditions, block.scale());
+
+      if (!bounds.containsAny(block.min(), block.max())) {
+        skippedBlocks.incrementAndGet();
+        return empty();
+      }
+
+      var columns = file.map(block);
+      // the conditions are checked trip by trip only if the block is partly in the bounds
+      var everyTrip = bounds.containsAll(block.min(), block.max());
+
+      if (nonNull(fixedPointCosts)) {
+        return aggregateColumn(block, columns, everyTrip, bounds);
+      }
+
+      var subtotals = new BigDecimal[file.vehicles()];
+      var total = BigDecimal.ZERO;
+      var trips = 0L;
+
+      for (int i = 0; i < block.trips(); i++) {
+        var distance = columns.distance(i);
+
+        if (everyTrip || bounds.contains(distance)) {
+          var cost = distanceCost.estimate(distance, block.scale());
+          var vehicle = columns.vehicle(i);
+
+          total = total.add(cost);
+          if (ColumnarTripFile.NO_VEHICLE != vehicle) {
+            subtotals[vehicle] = isNull(subtotals[vehicle]) ? cost : subtotals[vehicle].add(cost);
+          }
+          trips++;
+        }
+      }
+
+      return totals(subtotals, total, trips);
+    }
+
+    // a full column of longs is read in place, a narrow or filtered one is gathered first
+    private TripAggregator.Totals aggregateColumn(ColumnarTripFile.BlockIndex block, ColumnarTripFile.Columns columns,
+        boolean everyTrip, DistanceCondition.Bounds bounds) {
+      LongBuffer distances;
+      int[] vehicles = null;
+      var trips = block.trips();
+
+      if (everyTrip && Long.BYTES == columns.distanceWidth()) {
+        distances = columns.distances().asLongBuffer();
+      } else {
+        var gathered = new long[block.trips()];
+
+        vehicles = new int[block.trips()];
+        trips = 0;
+        for (int i = 0; i < block.trips(); i++) {
+          var distance = columns.distance(i);
+
+          if (everyTrip || bounds.contains(distance)) {
+            gathered[trips] = distance;
+            vehicles[trips] = columns.vehicle(i);
+            trips++;
+          }
+        }
+        distances = LongBuffer.wrap(gathered);
+      }
+
+      var volumePerDistance = fixedPointCosts.volumePerDistance();
+      var price = fixedPointCosts.price();
+      var decimalPlaces = fixedPointCosts.rounding().decimalPlaces;
+      var costs = new long[trips];
+      var subtotals = new BigDecimal[file.vehicles()];
+      var total = BigDecimal.ZERO;
+
+      ColumnarCosts.estimateVolumePerDistance(volumePerDistance.unscaledValue().longValueExact(),
+          volumePerDistance.scale(), price.unscaledValue().longValueExact(), price.scale(), distances, 0,
+          block.scale(), fixedPointCosts.rounding(), costs);
+      for (int i = 0; i < trips; i++) {
+        var cost = BigDecimal.valueOf(costs[i], decimalPlaces);
+        var vehicle = isNull(vehicles) ? columns.vehicle(i) : vehicles[i];
+
+        total = total.add(cost);
+        if (ColumnarTripFile.NO_VEHICLE != vehicle) {
+          subtotals[vehicle] = isNull(subtotals[vehicle]) ? cost : subtotals[vehicle].add(cost);
+        }
+      }
+
+      return totals(subtotals, total, trips);
+    }
+
+    private TripAggregator.Totals totals(BigDecimal[] subtotals, BigDecimal total, long trips) {
+      var vehicleSubtotals = new TreeMap<String, BigDecimal>();
+
+      for (int i = 0; i < subtotals.length; i++) {
+        if (nonNull(subtotals[i])) {
+          vehicleSubtotals.put(file.vehicle(i), subtotals[i]);
+        }
+      }
+
+      return new TripAggregator.Totals(total, vehicleSubtotals, trips);
+    }
+
+  }
+
+}
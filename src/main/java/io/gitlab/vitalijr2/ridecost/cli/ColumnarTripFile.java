@@ -0,0 +1,237 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// A trip log in columns, written by ColumnarTripWriter. Every number is little-endian:
+//   header      magic, version, block size, trips, blocks, vehicles, offsets of the dictionary and the index
+//   blocks      distances unscaled with the scale of the block, then vehicles, -1 is none;
+//               every block starts at a multiple of 8
+//   dictionary  vehicle names: length int, UTF-8 bytes
+//   index       per block: offset long, trips int, scale int, min and max of the unscaled distances long,
+//               widths of a distance and a vehicle in bytes, two reserved bytes
+// The columns are of fixed width, but every block takes the narrowest widths its values fit in.
+// A block is mapped only when it is read, and the values are read straight from the mapping.
+final class ColumnarTripFile implements Closeable {
+
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+  static final int HEADER_SIZE = 48;
+  static final int INDEX_ENTRY_SIZE = 36;
+  static final byte[] MAGIC = "RIDETRIP".getBytes(US_ASCII);
+  static final int NO_VEHICLE = -1;
+  static final int VERSION = 1;
+
+  private final List<BlockIndex> blocks;
+  private final int blockSize;
+  private final FileChannel channel;
+  private final long trips;
+  private final String[] vehicles;
+
+  private ColumnarTripFile(FileChannel channel, int blockSize, long trips, String[] vehicles,
+      List<BlockIndex> blocks) {
+    this.channel = channel;
+    this.blockSize = blockSize;
+    this.trips = trips;
+    this.vehicles = vehicles;
+    this.blocks = blocks;
+  }
+
+  static boolean isColumnar(@NotNull Path file) throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var magic = ByteBuffer.allocate(MAGIC.length);
+
+      return MAGIC.length == channel.read(magic, 0) && Arrays.equals(MAGIC, magic.array());
+    }
+  }
+
+  @NotNull
+  static ColumnarTripFile open(@NotNull Path file) throws IOException {
+    var channel = FileChannel.open(file, StandardOpenOption.READ);
+
+    try {
+      var header = read(channel, 0, HEADER_SIZE, file);
+      var magic = new byte[MAGIC.length];
+
+      header.get(magic);
+      if (!Arrays.equals(MAGIC, magic)) {
+        throw new IOException(file + " is not a columnar trip file");
+      }
+
+      var version = header.getInt();
+
+      if (VERSION != version) {
+        throw new IOException("Unsupported version " + version + " of the columnar trip file " + file);
+      }
+
+      var blockSize = header.getInt();
+      var trips = header.getLong();
+      var blockCount = header.getInt();
+      var vehicleCount = header.getInt();
+      var dictionaryOffset = header.getLong();
+      var indexOffset = header.getLong();
+
+      return new ColumnarTripFile(channel, blockSize, trips,
+          readDictionary(channel, dictionaryOffset, indexOffset, vehicleCount, file),
+          readIndex(channel, indexOffset, blockCount, file));
+    } catch (IOException | RuntimeException exception) {
+      channel.close();
+      throw exception;
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long offset, long size, Path file) throws IOException {
+    if (offset < 0 || size < 0 || size > Integer.MAX_VALUE || offset + size > channel.size()) {
+      throw new IOException(file + " is truncated or corrupted");
+    }
+
+    var buffer = ByteBuffer.allocate((int) size).order(BYTE_ORDER);
+
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException(file + " is truncated or corrupted");
+      }
+    }
+
+    return buffer.flip();
+  }
+
+  private static String[] readDictionary(FileChannel channel, long offset, long end, int count, Path file)
+      throws IOException {
+    var dictionary = read(channel, offset, end - offset, file);
+    var names = new String[count];
+
+    for (int i = 0; i < count; i++) {
+      var name = new byte[dictionary.getInt()];
+
+      dictionary.get(name);
+      names[i] = new String(name, UTF_8);
+    }
+
+    return names;
+  }
+
+  private static List<BlockIndex> readIndex(FileChannel channel, long offset, int count, Path file)
+      throws IOException {
+    var index = read(channel, offset, (long) count * INDEX_ENTRY_SIZE, file);
+    var blocks = new ArrayList<BlockIndex>(count);
+
+    for (int i = 0; i < count; i++) {
+      var block = new BlockIndex(index.getLong(), index.getInt(), index.getInt(), index.getLong(), index.getLong(),
+          index.get(), index.get());
+
+      index.getShort();
+      if (!isWidth(block.distanceWidth(), Integer.BYTES, Long.BYTES)
+          || !isWidth(block.vehicleWidth(), Byte.BYTES, Short.BYTES, Integer.BYTES) || block.trips() < 0
+          || block.trips() > ColumnarTripWriter.MAX_BLOCK_SIZE || block.offset() < HEADER_SIZE
+          || block.offset() + block.size() > offset) {
+        throw new IOException(file + " is truncated or corrupted");
+      }
+      blocks.add(block);
+    }
+
+    return List.copyOf(blocks);
+  }
+
+  private static boolean isWidth(int width, int... widths) {
+    return Arrays.stream(widths).anyMatch((expected) -> expected == width);
+  }
+
+  int blockSize() {
+    return blockSize;
+  }
+
+  @NotNull
+  List<BlockIndex> blocks() {
+    return blocks;
+  }
+
+  long trips() {
+    return trips;
+  }
+
+  @Nullable
+  String vehicle(int id) {
+    return (NO_VEHICLE == id) ? null : vehicles[id];
+  }
+
+  int vehicles() {
+    return vehicles.length;
+  }
+
+  @NotNull
+  Columns map(@NotNull BlockIndex block) throws IOException {
+    var mapping = channel.map(MapMode.READ_ONLY, block.offset(), block.size());
+    var distancesSize = block.trips() * block.distanceWidth();
+    var vehiclesSize = block.trips() * block.vehicleWidth();
+
+    return new Columns(mapping.slice(0, distancesSize).order(BYTE_ORDER), block.distanceWidth(),
+        mapping.slice(distancesSize, vehiclesSize).order(BYTE_ORDER), block.vehicleWidth());
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  // the statistics are enough to skip a block without mapping it
+  record BlockIndex(long offset, int trips, int scale, long min, long max, int distanceWidth, int vehicleWidth) {
+
+    int size() {
+      return trips * (distanceWidth + vehicleWidth);
+    }
+
+  }
+
+  // the width is the same for the whole column, so the branches are always taken the same way
+  record Columns(@NotNull ByteBuffer distances, int distanceWidth, @NotNull ByteBuffer vehicles,
+      int vehicleWidth) {
+
+    long distance(int trip) {
+      return (Long.BYTES == distanceWidth) ? distances.getLong(trip * Long.BYTES)
+          : distances.getInt(trip * Integer.BYTES);
+    }
+
+    int vehicle(int trip) {
+      return switch (vehicleWidth) {
+        case Byte.BYTES -> vehicles.get(trip);
+        case Short.BYTES -> vehicles.getShort(trip * Short.BYTES);
+        default -> vehicles.getInt(trip * Integer.BYTES);
+      };
+    }
+
+  }
+
+}
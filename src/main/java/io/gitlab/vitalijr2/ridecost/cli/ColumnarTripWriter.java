@@ -0,0 +1,271 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static io.gitlab.vitalijr2.ridecost.cli.ColumnarTripFile.BYTE_ORDER;
+import static io.gitlab.vitalijr2.ridecost.cli.ColumnarTripFile.HEADER_SIZE;
+import static io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator.POWERS_OF_TEN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+// Converts a trip log, one [VEHICLE,]DISTANCE per line, into a columnar trip file.
+// A block takes the largest scale of its distances, a distance that does not fit it starts the next block,
+// and the narrowest widths of its columns.
+// The file is written to a temporary one and moved when the whole log is converted.
+final class ColumnarTripWriter {
+
+  static final int DEFAULT_BLOCK_SIZE = 65_536;
+  static final int MAX_BLOCK_SIZE = 1 << 24;
+
+  private final int blockSize;
+
+  ColumnarTripWriter(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  // the unscaled value must not overflow at the larger scale
+  private static boolean fits(long unscaled, int exponent) {
+    return exponent < POWERS_OF_TEN.length && unscaled <= Long.MAX_VALUE / POWERS_OF_TEN[exponent];
+  }
+
+  @NotNull
+  Summary convert(@NotNull Path tripLog, @NotNull Path output) throws IOException {
+    var target = AtomicFiles.resolve(output);
+    var temporaryFile = AtomicFiles.createTemporaryFile(target);
+
+    try {
+      Summary summary;
+
+      try (var input = FileChannel.open(tripLog, StandardOpenOption.READ); var channel = FileChannel.open(
+          temporaryFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        var blocks = new BlockWriter(channel);
+
+        try {
+          new MappedTripReader(input).read(0, input.size(), blocks::add);
+        } catch (UncheckedIOException exception) {
+          throw exception.getCause();
+        }
+        summary = blocks.finish();
+      }
+      Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+      return summary;
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  record Summary(long trips, int blocks, int vehicles) {
+
+  }
+
+  private final class BlockWriter {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(blockSize * (Long.BYTES + Integer.BYTES))
+        .order(BYTE_ORDER);
+    private final FileChannel channel;
+    private final long[] distances = new long[blockSize];
+    private final List<ColumnarTripFile.BlockIndex> index = new ArrayList<>();
+    private final Map<String, Integer> vehicleIds = new HashMap<>();
+    private final List<String> vehicleNames = new ArrayList<>();
+    private final int[] vehicles = new int[blockSize];
+
+    private int count;
+    private int lastVehicle;
+    private long max;
+    private long min;
+    private long position = HEADER_SIZE;
+    private int scale;
+    private long trips;
+
+    BlockWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void add(MappedTripReader.Trip trip) {
+      var unscaled = trip.unscaled();
+      var tripScale = trip.scale();
+
+      if (!trip.isFixedPoint()) {
+        // too many digits or an exponent: keep the significant digits only
+        var distance = trip.distance().stripTrailingZeros();
+
+        if (distance.scale() < 0) {
+          distance = distance.setScale(0);
+        }
+        if (distance.unscaledValue().bitLength() >= Long.SIZE) {
+          throw new MappedTripReader.InvalidTripException(trip.offset(), "convert.too-many-digits",
+              distance.toPlainString());
+        }
+        unscaled = distance.unscaledValue().longValue();
+        tripScale = distance.scale();
+      }
+      try {
+        if (count == blockSize || (0 < count && !fits(unscaled, tripScale))) {
+          flush();
+        }
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      if (0 == count) {
+        scale = tripScale;
+        min = Long.MAX_VALUE;
+        max = 0;
+        lastVehicle = ColumnarTripFile.NO_VEHICLE;
+      } else if (scale < tripScale) {
+        rescale(tripScale);
+      }
+      distances[count] = unscaled * POWERS_OF_TEN[scale - tripScale];
+      vehicles[count] = vehicleId(trip.vehicle());
+      lastVehicle = Math.max(lastVehicle, vehicles[count]);
+      min = Math.min(min, distances[count]);
+      max = Math.max(max, distances[count]);
+      count++;
+    }
+
+    Summary finish() throws IOException {
+      flush();
+
+      var dictionaryOffset = position;
+      var dictionarySize = 0;
+      var names = new ArrayList<byte[]>(vehicleNames.size());
+
+      for (var vehicleName : vehicleNames) {
+        var name = vehicleName.getBytes(UTF_8);
+
+        names.add(name);
+        dictionarySize += Integer.BYTES + name.length;
+      }
+
+      var dictionary = ByteBuffer.allocate(dictionarySize).order(BYTE_ORDER);
+
+      names.forEach((name) -> dictionary.putInt(name.length).put(name));
+      write(dictionary.flip());
+
+      var indexOffset = position;
+      var indexEntries = ByteBuffer.allocate(index.size() * ColumnarTripFile.INDEX_ENTRY_SIZE).order(BYTE_ORDER);
+
+      index.forEach((block) -> indexEntries.putLong(block.offset()).putInt(block.trips()).putInt(block.scale())
+          .putLong(block.min()).putLong(block.max()).put((byte) block.distanceWidth())
+          .put((byte) block.vehicleWidth()).putShort((short) 0));
+      write(indexEntries.flip());
+
+      // the header is the last, a file is valid only when it is complete
+      position = 0;
+      write(ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER).put(ColumnarTripFile.MAGIC)
+          .putInt(ColumnarTripFile.VERSION).putInt(blockSize).putLong(trips).putInt(index.size())
+          .putInt(vehicleNames.size()).putLong(dictionaryOffset).putLong(indexOffset).flip());
+
+      return new Summary(trips, index.size(), vehicleNames.size());
+    }
+
+    // both the block and the distance must take the larger scale
+    private boolean fits(long unscaled, int tripScale) {
+      var largerScale = Math.max(scale, tripScale);
+
+      return ColumnarTripWriter.fits(max, largerScale - scale) && ColumnarTripWriter.fits(unscaled,
+          largerScale - tripScale);
+    }
+
+    private void flush() throws IOException {
+      if (0 == count) {
+        return;
+      }
+      // the columns of a block are aligned to their width
+      position = (position + Long.BYTES - 1) & -Long.BYTES;
+
+      var block = new ColumnarTripFile.BlockIndex(position, count, scale, min, max,
+          (Integer.MAX_VALUE < max) ? Long.BYTES : Integer.BYTES, vehicleWidth());
+
+      index.add(block);
+      buffer.clear();
+      for (int i = 0; i < count; i++) {
+        if (Long.BYTES == block.distanceWidth()) {
+          buffer.putLong(distances[i]);
+        } else {
+          buffer.putInt((int) distances[i]);
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        switch (block.vehicleWidth()) {
+          case Byte.BYTES -> buffer.put((byte) vehicles[i]);
+          case Short.BYTES -> buffer.putShort((short) vehicles[i]);
+          default -> buffer.putInt(vehicles[i]);
+        }
+      }
+      write(buffer.flip());
+      trips += count;
+      count = 0;
+    }
+
+    private void rescale(int tripScale) {
+      var factor = POWERS_OF_TEN[tripScale - scale];
+
+      for (int i = 0; i < count; i++) {
+        distances[i] *= factor;
+      }
+      min *= factor;
+      max *= factor;
+      scale = tripScale;
+    }
+
+    private int vehicleWidth() {
+      if (Byte.MAX_VALUE >= lastVehicle) {
+        return Byte.BYTES;
+      }
+
+      return (Short.MAX_VALUE >= lastVehicle) ? Short.BYTES : Integer.BYTES;
+    }
+
+    private int vehicleId(String vehicle) {
+      if (isNull(vehicle)) {
+        return ColumnarTripFile.NO_VEHICLE;
+      }
+
+      return vehicleIds.computeIfAbsent(vehicle, (name) -> {
+        vehicleNames.add(name);
+
+        return vehicleNames.size() - 1;
+      });
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        position += channel.write(bytes, position);
+      }
+    }
+
+  }
+
+}
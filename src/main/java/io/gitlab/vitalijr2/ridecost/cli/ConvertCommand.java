@@ -0,0 +1,79 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+@Command(name = "convert", mixinStandardHelpOptions = true)
+class ConvertCommand implements Runnable {
+
+  static final String OUTPUT_SUFFIX = ".columns";
+
+  @Spec
+  CommandSpec spec;
+
+  @Parameters(index = "0", paramLabel = "TRIP_LOG", descriptionKey = "convert.trip-log")
+  File tripLog;
+
+  @Parameters(index = "1", paramLabel = "FILE", descriptionKey = "convert.output", arity = "0..1")
+  File output;
+
+  @Option(names = "--block-size", paramLabel = "TRIPS", descriptionKey = "convert.block-size")
+  int blockSize = ColumnarTripWriter.DEFAULT_BLOCK_SIZE;
+
+  @Override
+  public void run() {
+    if (1 > blockSize || ColumnarTripWriter.MAX_BLOCK_SIZE < blockSize) {
+      throw new InvalidRangeException(spec.commandLine(),
+          String.format(RideCost.getCommandLineBundle().getString("convert.invalid-block-size"),
+              ColumnarTripWriter.MAX_BLOCK_SIZE, blockSize));
+    }
+
+    var outputPath = isNull(output) ? Path.of(tripLog.getPath() + OUTPUT_SUFFIX) : output.toPath();
+    ColumnarTripWriter.Summary summary;
+
+    try {
+      summary = new ColumnarTripWriter(blockSize).convert(tripLog.toPath(), outputPath);
+    } catch (MappedTripReader.InvalidTripException exception) {
+      throw new InvalidRecordException(spec.commandLine(),
+          String.format(RideCost.getCommandLineBundle().getString("aggregate.invalid-record"), exception.offset(),
+              String.format(RideCost.getCommandLineBundle().getString(exception.reasonKey()), exception.value())));
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+
+    var out = spec.commandLine().getOut();
+
+    out.println(String.format(RideCost.getCommandLineBundle().getString("convert.summary"), summary.trips(),
+        summary.blocks(), summary.vehicles(), outputPath));
+    out.flush();
+  }
+
+}
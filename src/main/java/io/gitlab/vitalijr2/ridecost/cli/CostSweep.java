@@ -0,0 +1,183 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+// The cost grid of price x ratio x distance. Blocks of cells are estimated in parallel,
+// and a bounded window of them is written in the grid order, so the grid is never held in memory.
+final class CostSweep {
+
+  static final String DISTANCE = "distance";
+  static final String PRICE = "price";
+
+  private static final int BLOCKS_PER_WORKER = 4;
+  private static final int MAX_BLOCK_SIZE = 4096;
+
+  private final Range prices;
+  private final Range ratios;
+  private final Range distances;
+  private final RowEstimator rowEstimator;
+  private final int blockSize;
+
+  CostSweep(@NotNull Range prices, @NotNull Range ratios, @NotNull Range distances,
+      @NotNull RowEstimator rowEstimator) {
+    this(prices, ratios, distances, rowEstimator, MAX_BLOCK_SIZE);
+  }
+
+  @VisibleForTesting
+  CostSweep(@NotNull Range prices, @NotNull Range ratios, @NotNull Range distances,
+      @NotNull RowEstimator rowEstimator, int blockSize) {
+    this.prices = prices;
+    this.ratios = ratios;
+    this.distances = distances;
+    this.rowEstimator = rowEstimator;
+    this.blockSize = blockSize;
+  }
+
+  // a block is a part of one row: the same price and ratio, consecutive distances
+  long sweep(@NotNull ForkJoinPool pool, @NotNull ResultWriter results) throws IOException {
+    var window = pool.getParallelism() * BLOCKS_PER_WORKER;
+    var pending = new ArrayDeque<ForkJoinTask<Block>>(window);
+    var cells = 0L;
+
+    try {
+      for (long priceIndex = 0; priceIndex < prices.count(); priceIndex++) {
+        var price = prices.value(priceIndex);
+
+        for (long ratioIndex = 0; ratioIndex < ratios.count(); ratioIndex++) {
+          var ratio = ratios.value(ratioIndex);
+          var distanceCost = rowEstimator.forRow(price, ratio);
+
+          for (long first = 0; first < distances.count(); first += blockSize) {
+            if (pending.size() == window) {
+              cells += write(pending.remove().join(), results);
+            }
+
+            var start = first;
+
+            pending.add(pool.submit(() -> estimate(price, ratio, distanceCost, start)));
+          }
+        }
+      }
+      while (!pending.isEmpty()) {
+        cells += write(pending.remove().join(), results);
+      }
+    } finally {
+      pending.forEach((block) -> block.cancel(false));
+    }
+
+    return cells;
+  }
+
+  private Block estimate(BigDecimal price, BigDecimal ratio, DistanceCost distanceCost, long first) {
+    var size = (int) Math.min(blockSize, distances.count() - first);
+    var blockDistances = new BigDecimal[size];
+    var costs = new BigDecimal[size];
+
+    for (int i = 0; i < size; i++) {
+      blockDistances[i] = distances.value(first + i);
+      costs[i] = distanceCost.estimate(blockDistances[i]);
+    }
+
+    return new Block(price, ratio, first + size == distances.count(), blockDistances, costs);
+  }
+
+  private int write(Block block, ResultWriter results) throws IOException {
+    var last = block.costs().length - 1;
+
+    for (int i = 0; i <= last; i++) {
+      results.sweep(block.price(), block.ratio(), block.distances()[i], block.costs()[i],
+          block.rowEnd() && i == last);
+    }
+
+    return block.costs().length;
+  }
+
+  @FunctionalInterface
+  interface RowEstimator {
+
+    @NotNull DistanceCost forRow(@NotNull BigDecimal price, @NotNull BigDecimal ratio);
+
+  }
+
+  @FunctionalInterface
+  interface DistanceCost {
+
+    @NotNull BigDecimal estimate(@NotNull BigDecimal distance);
+
+  }
+
+  // FROM:TO:STEP, or a single value; the values are FROM + k * STEP up to TO, exactly
+  record Range(@NotNull BigDecimal from, @NotNull BigDecimal step, long count) {
+
+    @Nullable
+    static Range parse(@NotNull String text) {
+      var parts = text.split(":", -1);
+
+      try {
+        if (1 == parts.length) {
+          var value = new BigDecimal(parts[0].strip());
+
+          return (0 < value.signum()) ? single(value) : null;
+        }
+        if (3 != parts.length) {
+          return null;
+        }
+
+        var from = new BigDecimal(parts[0].strip());
+        var to = new BigDecimal(parts[1].strip());
+        var step = new BigDecimal(parts[2].strip());
+
+        if (0 >= from.signum() || 0 >= step.signum() || 0 > to.compareTo(from)) {
+          return null;
+        }
+
+        return new Range(from, step, to.subtract(from).divideToIntegralValue(step).longValueExact() + 1);
+      } catch (ArithmeticException | NumberFormatException exception) {
+        return null;
+      }
+    }
+
+    @NotNull
+    static Range single(@NotNull BigDecimal value) {
+      return new Range(value, BigDecimal.ONE, 1);
+    }
+
+    @NotNull
+    BigDecimal value(long index) {
+      return (0 == index) ? from : from.add(step.multiply(BigDecimal.valueOf(index)));
+    }
+
+  }
+
+  private record Block(BigDecimal price, BigDecimal ratio, boolean rowEnd, BigDecimal[] distances,
+                       BigDecimal[] costs) {
+
+  }
+
+}
@@ -0,0 +1,196 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import org.jetbrains.annotations.NotNull;
+
+// A request is the number of arguments and the arguments. The response is streamed while the command runs:
+// frames of the standard output and errors, then the exit code. A string is its length and UTF-8 bytes,
+// the lengths a peer sends are bounded before anything is allocated for them.
+final class DaemonProtocol {
+
+  static final int MAX_ARGUMENTS = 1024;
+  static final int MAX_STRING_BYTES = 64 << 10;
+
+  private static final byte EXIT = 0;
+  private static final byte OUTPUT = 1;
+  private static final byte ERRORS = 2;
+  // three bytes of UTF-8 at most for a char, so a frame fits in a string
+  private static final int FRAME_CHARS = MAX_STRING_BYTES / 3;
+
+  private DaemonProtocol() {
+  }
+
+  @NotNull
+  static String[] readRequest(DataInputStream input) throws IOException {
+    var arguments = new String[checkLength(input.readInt(), MAX_ARGUMENTS, "arguments")];
+
+    for (var i = 0; i < arguments.length; i++) {
+      arguments[i] = readString(input);
+    }
+
+    return arguments;
+  }
+
+  // copies the frames to the writers as they come, returns the exit code
+  static int readResponse(DataInputStream input, Writer output, Writer errors) throws IOException {
+    while (true) {
+      var kind = input.readByte();
+
+      switch (kind) {
+        case EXIT -> {
+          return input.readInt();
+        }
+        case OUTPUT -> {
+          output.write(readString(input));
+          output.flush();
+        }
+        case ERRORS -> {
+          errors.write(readString(input));
+          errors.flush();
+        }
+        default -> throw new ProtocolException("Unknown frame: " + kind);
+      }
+    }
+  }
+
+  static void writeRequest(DataOutputStream output, String[] arguments) throws IOException {
+    output.writeInt(arguments.length);
+    for (var argument : arguments) {
+      writeString(output, argument);
+    }
+    output.flush();
+  }
+
+  // the output and errors of one response share the stream
+  @NotNull
+  static Writer outputWriter(DataOutputStream output) {
+    return new FrameWriter(output, OUTPUT);
+  }
+
+  @NotNull
+  static Writer errorsWriter(DataOutputStream output) {
+    return new FrameWriter(output, ERRORS);
+  }
+
+  static void writeErrors(DataOutputStream output, String errors) throws IOException {
+    try (var writer = errorsWriter(output)) {
+      writer.write(errors);
+    }
+  }
+
+  static void writeExit(DataOutputStream output, int exitCode) throws IOException {
+    synchronized (output) {
+      output.writeByte(EXIT);
+      output.writeInt(exitCode);
+      output.flush();
+    }
+  }
+
+  private static int checkLength(int length, int maxLength, String what) throws ProtocolException {
+    if (length < 0 || length > maxLength) {
+      throw new ProtocolException(String.format("Too many %s: %d, the limit is %d", what, length, maxLength));
+    }
+
+    return length;
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    var bytes = new byte[checkLength(input.readInt(), MAX_STRING_BYTES, "bytes in a string")];
+
+    input.readFully(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  // every write is one frame or more, a surrogate pair is never split between them
+  private static final class FrameWriter extends Writer {
+
+    private final byte kind;
+    private final DataOutputStream output;
+
+    private char highSurrogate;
+
+    private FrameWriter(DataOutputStream output, byte kind) {
+      this.output = output;
+      this.kind = kind;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+      var text = new StringBuilder(length + 1);
+
+      if (0 != highSurrogate) {
+        text.append(highSurrogate);
+        highSurrogate = 0;
+      }
+      text.append(buffer, offset, length);
+      if (0 < text.length() && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+        highSurrogate = text.charAt(text.length() - 1);
+        text.setLength(text.length() - 1);
+      }
+      writeFrames(text);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (0 != highSurrogate) {
+        writeFrames(String.valueOf(highSurrogate));
+        highSurrogate = 0;
+      }
+      flush();
+    }
+
+    private void writeFrames(CharSequence text) throws IOException {
+      synchronized (output) {
+        for (var start = 0; start < text.length(); ) {
+          var end = Math.min(text.length(), start + FRAME_CHARS);
+
+          if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+          }
+          output.writeByte(kind);
+          writeString(output, text.subSequence(start, end).toString());
+          start = end;
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,133 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// A condition of --where on the distance of a trip, e.g. distance>100.
+// It is turned into bounds of unscaled distances at the scale of a block,
+// so the statistics of the block tell whether all, some or none of its trips match.
+record DistanceCondition(@NotNull Operator operator, @NotNull BigDecimal value) {
+
+  private static final BigDecimal MAX_UNSCALED = BigDecimal.valueOf(Long.MAX_VALUE);
+  private static final String FIELD = "distance";
+
+  // two-character operators go first, so <= is not read as <
+  @Nullable
+  static DistanceCondition parse(@NotNull String text) {
+    var condition = text.strip();
+
+    if (!condition.startsWith(FIELD)) {
+      return null;
+    }
+    condition = condition.substring(FIELD.length()).strip();
+    for (var operator : Operator.values()) {
+      if (condition.startsWith(operator.symbol)) {
+        try {
+          return new DistanceCondition(operator, new BigDecimal(condition.substring(operator.symbol.length())
+              .strip()));
+        } catch (NumberFormatException exception) {
+          return null;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  // all the conditions must match
+  @NotNull
+  static Bounds bounds(@NotNull List<DistanceCondition> conditions, int scale) {
+    var bounds = Bounds.ALL;
+
+    for (var condition : conditions) {
+      bounds = bounds.intersect(condition.bounds(scale));
+    }
+
+    return bounds;
+  }
+
+  private static Bounds bounds(BigDecimal min, BigDecimal max) {
+    if (min.compareTo(MAX_UNSCALED) > 0 || max.signum() < 0 || min.compareTo(max) > 0) {
+      return Bounds.NONE;
+    }
+
+    return new Bounds(min.max(BigDecimal.ZERO).longValue(), max.min(MAX_UNSCALED).longValue());
+  }
+
+  @NotNull
+  Bounds bounds(int scale) {
+    var unscaled = value.movePointRight(scale);
+    var floor = unscaled.setScale(0, RoundingMode.FLOOR);
+    var ceiling = unscaled.setScale(0, RoundingMode.CEILING);
+
+    return switch (operator) {
+      case LESS -> bounds(BigDecimal.ZERO, ceiling.subtract(BigDecimal.ONE));
+      case LESS_OR_EQUAL -> bounds(BigDecimal.ZERO, floor);
+      case EQUAL -> bounds(ceiling, floor);
+      case GREATER_OR_EQUAL -> bounds(ceiling, MAX_UNSCALED);
+      case GREATER -> bounds(floor.add(BigDecimal.ONE), MAX_UNSCALED);
+    };
+  }
+
+  enum Operator {
+
+    LESS_OR_EQUAL("<="), GREATER_OR_EQUAL(">="), LESS("<"), EQUAL("="), GREATER(">");
+
+    private final String symbol;
+
+    Operator(String symbol) {
+      this.symbol = symbol;
+    }
+
+  }
+
+  // unscaled distances from min to max, both included
+  record Bounds(long min, long max) {
+
+    static final Bounds ALL = new Bounds(0, Long.MAX_VALUE);
+    static final Bounds NONE = new Bounds(1, 0);
+
+    boolean contains(long distance) {
+      return min <= distance && distance <= max;
+    }
+
+    boolean containsAll(long from, long to) {
+      return min <= from && to <= max;
+    }
+
+    boolean containsAny(long from, long to) {
+      return min <= to && from <= max;
+    }
+
+    @NotNull
+    Bounds intersect(@NotNull Bounds other) {
+      var intersection = new Bounds(Math.max(min, other.min), Math.min(max, other.max));
+
+      return (intersection.min > intersection.max) ? NONE : intersection;
+    }
+
+  }
+
+}
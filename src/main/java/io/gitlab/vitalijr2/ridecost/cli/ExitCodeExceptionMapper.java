@@ -19,12 +19,28 @@
  */
 package io.gitlab.vitalijr2.ridecost.cli;
 
+import org.jetbrains.annotations.NotNull;
 import picocli.CommandLine.ExitCode;
 import picocli.CommandLine.IExitCodeExceptionMapper;
 import picocli.CommandLine.ParameterException;
 
+// All exit codes of the tool: of an exception, and of a run that has not thrown one.
 public class ExitCodeExceptionMapper implements IExitCodeExceptionMapper {
 
+  // the run is complete, but some records are in the rejects file
+  static final int COMPLETED_WITH_REJECTS = 3;
+  // some input files are estimated, the others failed
+  static final int PARTIAL_SUCCESS = 4;
+
+  static int getExitCode(@NotNull Outcome outcome) {
+    return switch (outcome) {
+      case SUCCESS -> ExitCode.OK;
+      case COMPLETED_WITH_REJECTS -> COMPLETED_WITH_REJECTS;
+      case PARTIAL_SUCCESS -> PARTIAL_SUCCESS;
+      case FAILURE -> ExitCode.SOFTWARE;
+    };
+  }
+
   @Override
   public int getExitCode(Throwable throwable) {
     if (throwable instanceof ParameterException) {
@@ -33,4 +49,14 @@ public class ExitCodeExceptionMapper implements IExitCodeExceptionMapper {
     return ExitCode.SOFTWARE;
   }
 
+  enum Outcome {
+
+    SUCCESS,
+    COMPLETED_WITH_REJECTS,
+    PARTIAL_SUCCESS,
+    // no input file is estimated
+    FAILURE
+
+  }
+
 }
@@ -0,0 +1,100 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import java.nio.ByteBuffer;
+
+final class FixedPointDecimal {
+
+  static final int MAX_DIGITS = FixedPointEstimator.MAX_DIGITS;
+
+  private int scale;
+  private long unscaled;
+
+  int scale() {
+    return scale;
+  }
+
+  long unscaled() {
+    return unscaled;
+  }
+
+  boolean parse(CharSequence text) {
+    return parse(text, 0, text.length());
+  }
+
+  boolean parse(CharSequence text, int start, int end) {
+    return parse(text::charAt, start, end);
+  }
+
+  // read straight from the bytes of a mapped file
+  boolean parse(ByteBuffer buffer, int start, int end) {
+    return parse(buffer::get, start, end);
+  }
+
+  // one grammar for characters and bytes
+  private boolean parse(Characters text, int start, int end) {
+    var negative = false;
+    var position = start;
+
+    if (position < end && (text.at(position) == '-' || text.at(position) == '+')) {
+      negative = text.at(position) == '-';
+      position++;
+    }
+
+    var digits = 0;
+    var fractionDigits = -1;
+    var value = 0L;
+
+    for (; position < end; position++) {
+      var character = text.at(position);
+
+      if (character == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else if (character >= '0' && character <= '9') {
+        if (++digits > MAX_DIGITS) {
+          return false;
+        }
+        value = value * 10 + (character - '0');
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else {
+        return false;
+      }
+    }
+    if (digits == 0) {
+      return false;
+    }
+    unscaled = negative ? -value : value;
+    scale = Math.max(fractionDigits, 0);
+
+    return true;
+  }
+
+  @FunctionalInterface
+  private interface Characters {
+
+    int at(int position);
+
+  }
+
+}
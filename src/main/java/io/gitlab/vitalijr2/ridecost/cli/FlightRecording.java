@@ -0,0 +1,112 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Path;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+final class FlightRecording {
+
+  static final String JFR_OPTION = "--jfr";
+  static final String JFR_FILE_OPTION = "--jfr-file";
+
+  private static final Logger LOGGER = System.getLogger(FlightRecording.class.getName());
+
+  private final Recording recording;
+  private final Path destination;
+
+  private FlightRecording(Recording recording, Path destination) {
+    this.recording = recording;
+    this.destination = destination;
+  }
+
+  // the recording has to cover state loading, which happens before picocli parses the options
+  @Nullable
+  static FlightRecording start(String[] args) {
+    var destination = destination(args);
+
+    if (isNull(destination)) {
+      return null;
+    }
+    try {
+      var recording = new Recording(Configuration.getConfiguration("profile"));
+
+      recording.setName("ridecost");
+      recording.setDestination(destination);
+      recording.setDumpOnExit(true);
+      recording.start();
+      LOGGER.log(Level.DEBUG, "Flight recording is started: {0}", destination);
+
+      return new FlightRecording(recording, destination);
+    } catch (IOException | ParseException | RuntimeException exception) {
+      LOGGER.log(Level.WARNING, "Cannot start flight recording: {0}", exception.getMessage());
+
+      return null;
+    }
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static Path destination(String[] args) {
+    var enabled = false;
+    Path destination = null;
+
+    for (int i = 0; i < args.length; i++) {
+      if (JFR_OPTION.equals(args[i])) {
+        enabled = true;
+      } else if (JFR_FILE_OPTION.equals(args[i]) && i + 1 < args.length) {
+        destination = Path.of(args[++i]);
+      } else if (args[i].startsWith(JFR_FILE_OPTION + '=')) {
+        destination = Path.of(args[i].substring(JFR_FILE_OPTION.length() + 1));
+      }
+    }
+    if (nonNull(destination)) {
+      return destination;
+    }
+
+    return enabled ? Path.of("ridecost-" + ProcessHandle.current().pid() + ".jfr") : null;
+  }
+
+  @NotNull
+  Path getDestination() {
+    return destination;
+  }
+
+  void stop() {
+    try (recording) {
+      recording.stop();
+      LOGGER.log(Level.DEBUG, "Flight recording is written: {0}", destination);
+    } catch (IllegalStateException exception) {
+      LOGGER.log(Level.WARNING, "Cannot write flight recording: {0}", exception.getMessage());
+    }
+  }
+
+}
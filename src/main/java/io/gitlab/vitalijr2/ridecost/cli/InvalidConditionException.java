@@ -0,0 +1,35 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.Serial;
+import picocli.CommandLine;
+import picocli.CommandLine.ParameterException;
+
+public class InvalidConditionException extends ParameterException {
+
+  @Serial
+  private static final long serialVersionUID = -6120544381797012385L;
+
+  public InvalidConditionException(CommandLine commandLine, String msg) {
+    super(commandLine, msg);
+  }
+
+}
@@ -0,0 +1,59 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.nonNull;
+
+import java.math.BigDecimal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// A leg of the route: DISTANCE[:RATIO[:PRICE]], an empty or missing ratio or price is the one of the whole ride.
+record Leg(@NotNull BigDecimal distance, @Nullable BigDecimal ratio, @Nullable BigDecimal price) {
+
+  boolean hasOverrides() {
+    return nonNull(ratio) || nonNull(price);
+  }
+
+  // returns null if the text is not a leg
+  @Nullable
+  static Leg parse(@NotNull String text) {
+    var ratioStart = text.indexOf(':');
+
+    try {
+      if (ratioStart < 0) {
+        return new Leg(new BigDecimal(text), null, null);
+      }
+
+      var priceStart = text.indexOf(':', ratioStart + 1);
+      var ratioEnd = (priceStart < 0) ? text.length() : priceStart;
+
+      return new Leg(new BigDecimal(text.substring(0, ratioStart)), parseOptional(text, ratioStart + 1, ratioEnd),
+          (priceStart < 0) ? null : parseOptional(text, priceStart + 1, text.length()));
+    } catch (NumberFormatException exception) {
+      return null;
+    }
+  }
+
+  private static BigDecimal parseOptional(String text, int start, int end) {
+    return (start == end) ? null : new BigDecimal(text.substring(start, end));
+  }
+
+}
@@ -0,0 +1,354 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+final class MappedTripReader {
+
+  // a mapping is limited to Integer.MAX_VALUE bytes, larger files are mapped window by window
+  static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+  private final Trip trip = new Trip();
+  private final VehicleNames vehicleNames = new VehicleNames();
+  private final long windowSize;
+
+  private long lines;
+
+  MappedTripReader(@NotNull FileChannel channel) {
+    this(channel, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  MappedTripReader(@NotNull FileChannel channel, long windowSize) {
+    this.channel = channel;
+    this.windowSize = windowSize;
+  }
+
+  private static boolean isBlank(byte character) {
+    return character == ' ' || character == '\t' || character == '\r';
+  }
+
+  // lines read so far, blank lines and comments included
+  long lines() {
+    return lines;
+  }
+
+  void read(long start, long end, @NotNull TripVisitor visitor) throws IOException {
+    read(start, end, visitor, null);
+  }
+
+  // without a reject visitor the first invalid trip stops the reading
+  void read(long start, long end, @NotNull TripVisitor visitor, @Nullable RejectVisitor rejectVisitor)
+      throws IOException {
+    var windowStart = start;
+
+    while (windowStart < end) {
+      var windowEnd = Math.min(end, windowStart + windowSize);
+      var window = channel.map(MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+      var limit = window.limit();
+      var lineStart = 0;
+
+      for (int i = 0; i < limit; i++) {
+        if (window.get(i) == '\n') {
+          readLine(window, lineStart, i, windowStart, visitor, rejectVisitor);
+          lineStart = i + 1;
+        }
+      }
+      if (windowEnd == end) {
+        if (lineStart < limit) {
+          readLine(window, lineStart, limit, windowStart, visitor, rejectVisitor);
+        }
+        break;
+      }
+      if (0 == lineStart) {
+        throw new IOException("The line at byte " + windowStart + " is longer than " + windowSize + " bytes");
+      }
+      // the next window starts at the incomplete line
+      windowStart += lineStart;
+    }
+  }
+
+  private void readLine(ByteBuffer window, int start, int end, long windowStart, TripVisitor visitor,
+      RejectVisitor rejectVisitor) {
+    var from = start;
+
+    lines++;
+    var to = end;
+
+    while (from < to && isBlank(window.get(from))) {
+      from++;
+    }
+    while (to > from && isBlank(window.get(to - 1))) {
+      to--;
+    }
+    if (from == to || window.get(from) == '#') {
+      return;
+    }
+
+    var comma = from;
+
+    while (comma < to && window.get(comma) != ',') {
+      comma++;
+    }
+
+    String vehicle = null;
+    var distanceFrom = from;
+
+    if (comma < to) {
+      var vehicleTo = comma;
+
+      while (vehicleTo > from && isBlank(window.get(vehicleTo - 1))) {
+        vehicleTo--;
+      }
+      vehicle = vehicleNames.get(window, from, vehicleTo);
+      distanceFrom = comma + 1;
+      while (distanceFrom < to && isBlank(window.get(distanceFrom))) {
+        distanceFrom++;
+      }
+    }
+    try {
+      trip.read(window, distanceFrom, to, windowStart + start, vehicle);
+    } catch (InvalidTripException exception) {
+      if (isNull(rejectVisitor)) {
+        throw exception;
+      }
+      rejectVisitor.reject(lines, exception);
+      return;
+    }
+    visitor.visit(trip);
+  }
+
+  @FunctionalInterface
+  interface TripVisitor {
+
+    void visit(@NotNull Trip trip);
+
+  }
+
+  @FunctionalInterface
+  interface RejectVisitor {
+
+    void reject(long line, @NotNull InvalidTripException exception);
+
+  }
+
+  static final class InvalidTripException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 3407825906021146297L;
+
+    private final long offset;
+    private final String reasonKey;
+    private final String value;
+
+    InvalidTripException(long offset, String reasonKey, String value) {
+      super(reasonKey + ": " + value, null, false, false);
+      this.offset = offset;
+      this.reasonKey = reasonKey;
+      this.value = value;
+    }
+
+    long offset() {
+      return offset;
+    }
+
+    String reasonKey() {
+      return reasonKey;
+    }
+
+    String value() {
+      return value;
+    }
+
+  }
+
+  // one instance per reader, it is refilled for every line
+  static final class Trip {
+
+    private final FixedPointDecimal fixedPointDistance = new FixedPointDecimal();
+
+    private BigDecimal distance;
+    private boolean fixedPoint;
+    private long offset;
+    private String vehicle;
+
+    @NotNull
+    BigDecimal distance() {
+      if (isNull(distance)) {
+        distance = BigDecimal.valueOf(fixedPointDistance.unscaled(), fixedPointDistance.scale());
+      }
+
+      return distance;
+    }
+
+    boolean isFixedPoint() {
+      return fixedPoint;
+    }
+
+    long offset() {
+      return offset;
+    }
+
+    int scale() {
+      return fixedPointDistance.scale();
+    }
+
+    long unscaled() {
+      return fixedPointDistance.unscaled();
+    }
+
+    @Nullable
+    String vehicle() {
+      return vehicle;
+    }
+
+    private void read(ByteBuffer window, int from, int to, long offset, String vehicle) {
+      this.offset = offset;
+      this.vehicle = vehicle;
+      distance = null;
+      fixedPoint = fixedPointDistance.parse(window, from, to);
+      if (fixedPoint) {
+        if (fixedPointDistance.unscaled() <= 0) {
+          throw new InvalidTripException(offset, "value.non-positive", text(window, from, to));
+        }
+        return;
+      }
+
+      // too many digits or an exponent: the rare case goes through a string
+      var text = text(window, from, to);
+
+      try {
+        distance = new BigDecimal(text);
+      } catch (NumberFormatException exception) {
+        throw new InvalidTripException(offset, "value.not-a-number", text);
+      }
+      if (distance.signum() <= 0) {
+        throw new InvalidTripException(offset, "value.non-positive", text);
+      }
+    }
+
+    private String text(ByteBuffer window, int from, int to) {
+      var bytes = new byte[to - from];
+
+      window.get(from, bytes);
+
+      return new String(bytes, UTF_8);
+    }
+
+  }
+
+  // vehicle names repeat, so every name is decoded once per reader
+  private static final class VehicleNames {
+
+    private byte[][] names = new byte[64][];
+    private String[] values = new String[64];
+    private int size;
+
+    private static boolean equals(byte[] name, ByteBuffer window, int from, int to) {
+      if (name.length != to - from) {
+        return false;
+      }
+      for (int i = 0; i < name.length; i++) {
+        if (name[i] != window.get(from + i)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private static int hash(byte[] name) {
+      var hash = 1;
+
+      for (var character : name) {
+        hash = 31 * hash + character;
+      }
+
+      return hash ^ (hash >>> 16);
+    }
+
+    String get(ByteBuffer window, int from, int to) {
+      var hash = 1;
+
+      for (int i = from; i < to; i++) {
+        hash = 31 * hash + window.get(i);
+      }
+      hash ^= hash >>> 16;
+
+      var slot = hash & (names.length - 1);
+
+      while (nonNull(names[slot])) {
+        if (equals(names[slot], window, from, to)) {
+          return values[slot];
+        }
+        slot = (slot + 1) & (names.length - 1);
+      }
+
+      var name = new byte[to - from];
+
+      window.get(from, name);
+
+      var value = new String(name, UTF_8);
+
+      names[slot] = name;
+      values[slot] = value;
+      if (++size * 2 > names.length) {
+        resize();
+      }
+
+      return value;
+    }
+
+    private void resize() {
+      var oldNames = names;
+      var oldValues = values;
+
+      names = new byte[oldNames.length * 2][];
+      values = new String[oldNames.length * 2];
+      for (int i = 0; i < oldNames.length; i++) {
+        if (nonNull(oldNames[i])) {
+          var slot = hash(oldNames[i]) & (names.length - 1);
+
+          while (nonNull(names[slot])) {
+            slot = (slot + 1) & (names.length - 1);
+          }
+          names[slot] = oldNames[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,240 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+final class Metrics {
+
+  static final String METRICS_OPTION = "--metrics";
+
+  private static final Metrics DISABLED = new Metrics(null);
+  private static final Phase NO_PHASE = () -> {
+  };
+  private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+  private final Path metricsFile;
+  private final Map<String, long[]> phases = new LinkedHashMap<>();
+  private final com.sun.management.ThreadMXBean threads;
+
+  private CostCache.Statistics cache;
+  private long records = -1;
+
+  private Metrics(@Nullable Path metricsFile) {
+    this.metricsFile = metricsFile;
+    if (nonNull(metricsFile) && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported()) {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      threads = bean;
+    } else {
+      threads = null;
+    }
+  }
+
+  @NotNull
+  static Metrics disabled() {
+    return DISABLED;
+  }
+
+  @NotNull
+  static Metrics enabled(@NotNull Path metricsFile) {
+    return new Metrics(metricsFile);
+  }
+
+  // the state is loaded before picocli parses the options, so the option is looked up in advance
+  @NotNull
+  static Metrics of(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (METRICS_OPTION.equals(args[i]) && i + 1 < args.length) {
+        return enabled(Path.of(args[i + 1]));
+      } else if (args[i].startsWith(METRICS_OPTION + '=')) {
+        return enabled(Path.of(args[i].substring(METRICS_OPTION.length() + 1)));
+      }
+    }
+
+    var metricsFileName = System.getenv("RIDECOST_METRICS");
+
+    return isNull(metricsFileName) ? DISABLED : enabled(Path.of(metricsFileName));
+  }
+
+  boolean isEnabled() {
+    return nonNull(metricsFile);
+  }
+
+  @NotNull
+  Phase phase(@NotNull String name) {
+    if (!isEnabled()) {
+      return NO_PHASE;
+    }
+
+    var startNanos = System.nanoTime();
+    var startBytes = allocatedBytes();
+
+    return () -> record(name, System.nanoTime() - startNanos, (0 > startBytes) ? -1 : allocatedBytes() - startBytes);
+  }
+
+  void record(@NotNull String name, long nanos, long allocatedBytes) {
+    if (isEnabled()) {
+      phases.put(name, new long[]{nanos, allocatedBytes});
+    }
+  }
+
+  void cache(CostCache.Statistics statistics) {
+    cache = statistics;
+  }
+
+  void records(long count) {
+    records = count;
+  }
+
+  // the JVM phase covers everything before main()
+  void recordStartup() {
+    if (isEnabled()) {
+      record("jvm", ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L, -1);
+    }
+  }
+
+  void write(int exitCode) throws IOException {
+    if (!isEnabled()) {
+      return;
+    }
+
+    var text = metricsFile.getFileName().toString().endsWith(".json") ? toJson(exitCode) : toPrometheus(exitCode);
+
+    // the textfile collector may read at any moment, so the file is replaced atomically
+    AtomicFiles.write(metricsFile, (output) -> output.write(text.getBytes(UTF_8)));
+  }
+
+  @VisibleForTesting
+  @NotNull
+  String toJson(int exitCode) {
+    var json = new StringBuilder("{\"phases\":{");
+    var first = true;
+
+    for (var phase : phases.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      json.append('"').append(phase.getKey()).append("\":{\"seconds\":").append(seconds(phase.getValue()[0]));
+      if (0 <= phase.getValue()[1]) {
+        json.append(",\"allocatedBytes\":").append(phase.getValue()[1]);
+      }
+      json.append('}');
+    }
+    json.append('}');
+    if (0 <= records) {
+      json.append(",\"records\":").append(records);
+      if (phases.containsKey("estimation")) {
+        json.append(",\"recordsPerSecond\":").append(recordsPerSecond());
+      }
+    }
+    if (nonNull(cache)) {
+      json.append(",\"cache\":{\"hits\":").append(cache.hits()).append(",\"misses\":").append(cache.misses())
+          .append(",\"evictions\":").append(cache.evictions()).append(",\"entries\":").append(cache.entries())
+          .append('}');
+    }
+    json.append(",\"exitCode\":").append(exitCode).append("}\n");
+
+    return json.toString();
+  }
+
+  @VisibleForTesting
+  @NotNull
+  String toPrometheus(int exitCode) {
+    var text = new StringBuilder();
+
+    text.append("# HELP ridecost_phase_seconds Duration of the phase of the last run.\n")
+        .append("# TYPE ridecost_phase_seconds gauge\n");
+    phases.forEach((name, sample) -> text.append("ridecost_phase_seconds{phase=\"").append(name).append("\"} ")
+        .append(seconds(sample[0])).append('\n'));
+    text.append("# HELP ridecost_phase_allocated_bytes Bytes allocated by the main thread in the phase.\n")
+        .append("# TYPE ridecost_phase_allocated_bytes gauge\n");
+    phases.forEach((name, sample) -> {
+      if (0 <= sample[1]) {
+        text.append("ridecost_phase_allocated_bytes{phase=\"").append(name).append("\"} ").append(sample[1])
+            .append('\n');
+      }
+    });
+    if (0 <= records) {
+      text.append("# HELP ridecost_records Records estimated by the last run.\n")
+          .append("# TYPE ridecost_records gauge\n").append("ridecost_records ").append(records).append('\n');
+      if (phases.containsKey("estimation")) {
+        text.append("# HELP ridecost_records_per_second Throughput of the estimation phase.\n")
+            .append("# TYPE ridecost_records_per_second gauge\n").append("ridecost_records_per_second ")
+            .append(recordsPerSecond()).append('\n');
+      }
+    }
+    if (nonNull(cache)) {
+      text.append("# HELP ridecost_cache_hits_total Estimated costs found in the cache.\n")
+          .append("# TYPE ridecost_cache_hits_total counter\n").append("ridecost_cache_hits_total ")
+          .append(cache.hits()).append('\n');
+      text.append("# HELP ridecost_cache_misses_total Estimated costs missing in the cache.\n")
+          .append("# TYPE ridecost_cache_misses_total counter\n").append("ridecost_cache_misses_total ")
+          .append(cache.misses()).append('\n');
+      text.append("# HELP ridecost_cache_evictions_total Least recently used costs evicted from the cache.\n")
+          .append("# TYPE ridecost_cache_evictions_total counter\n").append("ridecost_cache_evictions_total ")
+          .append(cache.evictions()).append('\n');
+      text.append("# HELP ridecost_cache_entries Estimated costs held by the cache.\n")
+          .append("# TYPE ridecost_cache_entries gauge\n").append("ridecost_cache_entries ").append(cache.entries())
+          .append('\n');
+    }
+    text.append("# HELP ridecost_exit_code Exit code of the last run.\n").append("# TYPE ridecost_exit_code gauge\n")
+        .append("ridecost_exit_code ").append(exitCode).append('\n');
+
+    return text.toString();
+  }
+
+  private long allocatedBytes() {
+    return isNull(threads) ? -1 : threads.getCurrentThreadAllocatedBytes();
+  }
+
+  private String recordsPerSecond() {
+    var nanos = phases.get("estimation")[0];
+
+    return (0 == nanos) ? "0" : String.format(Locale.ROOT, "%.3f", records * NANOS_PER_SECOND / nanos);
+  }
+
+  private String seconds(long nanos) {
+    return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PER_SECOND);
+  }
+
+  @FunctionalInterface
+  interface Phase extends AutoCloseable {
+
+    @Override
+    void close();
+
+  }
+
+}
@@ -0,0 +1,237 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Estimates the batch files concurrently, every one into its own FILE.costs.
+// A worker holds two descriptors, so the number of workers caps the open files.
+// A file is written to a temporary one and moved on success: a failed file leaves no partial results
+// and does not stop the others.
+final class MultiFileBatch {
+
+  static final String OUTPUT_SUFFIX = ".costs";
+
+  private static final Logger LOGGER = System.getLogger(MultiFileBatch.class.getName());
+  // see AtomicFiles.createTemporaryFile
+  private static final Pattern OUTPUT_TEMPORARY_FILE = Pattern.compile(
+      ".*" + Pattern.quote(OUTPUT_SUFFIX) + "\\.\\d+\\.tmp");
+
+  private final BatchEstimator estimator;
+  private final ResultWriter.Format format;
+  private final int openFiles;
+  @Nullable
+  private final Path outputFolder;
+
+  MultiFileBatch(@NotNull BatchEstimator estimator, @NotNull ResultWriter.Format format, int openFiles,
+      @Nullable Path outputFolder) {
+    this.estimator = estimator;
+    this.format = format;
+    this.openFiles = openFiles;
+    this.outputFolder = outputFolder;
+  }
+
+  // the glob is for file names only, e.g. dir/*.csv; the outputs of an earlier run are not inputs
+  @NotNull
+  static List<Path> match(@NotNull String glob) throws IOException {
+    var pattern = Path.of(glob);
+    var folder = isNull(pattern.getParent()) ? Path.of(".") : pattern.getParent();
+    var inputs = new ArrayList<Path>();
+
+    try (var entries = Files.newDirectoryStream(folder, pattern.getFileName().toString())) {
+      for (var entry : entries) {
+        if (Files.isRegularFile(entry) && !isOutput(entry)) {
+          inputs.add(entry);
+        }
+      }
+    }
+    Collections.sort(inputs);
+
+    return inputs;
+  }
+
+  private static boolean isOutput(Path file) {
+    var fileName = file.getFileName().toString();
+
+    return fileName.endsWith(OUTPUT_SUFFIX) || OUTPUT_TEMPORARY_FILE.matcher(fileName).matches();
+  }
+
+  @NotNull
+  Path outputOf(@NotNull Path input) {
+    var fileName = input.getFileName() + OUTPUT_SUFFIX;
+
+    return isNull(outputFolder) ? input.resolveSibling(fileName) : outputFolder.resolve(fileName);
+  }
+
+  // the results are in the order of the inputs
+  @NotNull
+  Summary estimate(@NotNull List<Path> inputs) throws InterruptedException {
+    if (inputs.isEmpty()) {
+      return new Summary(List.of());
+    }
+
+    var threadNumber = new AtomicInteger();
+    var executor = Executors.newFixedThreadPool(Math.min(openFiles, inputs.size()), (task) -> {
+      var thread = new Thread(task, "ridecost-file-" + threadNumber.incrementAndGet());
+
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    try {
+      var futures = new ArrayList<Future<FileResult>>(inputs.size());
+      var files = new ArrayList<FileResult>(inputs.size());
+
+      for (var input : inputs) {
+        futures.add(executor.submit(() -> estimate(input)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          files.add(futures.get(i).get());
+        } catch (ExecutionException exception) {
+          files.add(failed(inputs.get(i), exception.getCause()));
+        }
+      }
+
+      return new Summary(files);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private FileResult estimate(Path input) {
+    var output = outputOf(input);
+    Path temporaryFile = null;
+
+    try {
+      var target = AtomicFiles.resolve(output);
+
+      temporaryFile = AtomicFiles.createTemporaryFile(target);
+
+      long records;
+
+      try (var batchInput = Files.newBufferedReader(input); var results = ResultWriter.of(
+          FileChannel.open(temporaryFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), format)) {
+        records = estimator.estimate(batchInput, results);
+      }
+      Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      temporaryFile = null;
+
+      return new FileResult(input, output, records, null);
+    } catch (IOException | RuntimeException exception) {
+      return failed(input, exception);
+    } finally {
+      if (nonNull(temporaryFile)) {
+        try {
+          Files.deleteIfExists(temporaryFile);
+        } catch (IOException exception) {
+          LOGGER.log(Level.DEBUG, "Cannot delete {0}: {1}", temporaryFile, exception.getMessage());
+        }
+      }
+    }
+  }
+
+  private FileResult failed(Path input, Throwable exception) {
+    var reason = isNull(exception.getMessage()) ? exception.getClass().getSimpleName() : exception.getMessage();
+
+    LOGGER.log(Level.DEBUG, "{0} is not estimated: {1}", input, reason);
+
+    return new FileResult(input, outputOf(input), 0, reason);
+  }
+
+  @FunctionalInterface
+  interface BatchEstimator {
+
+    // returns the number of estimated records
+    long estimate(@NotNull BufferedReader batchInput, @NotNull ResultWriter results) throws IOException;
+
+  }
+
+  // the failure is null if the file is estimated
+  record FileResult(@NotNull Path input, @NotNull Path output, long records, @Nullable String failure) {
+
+    boolean isFailed() {
+      return nonNull(failure);
+    }
+
+  }
+
+  record Summary(@NotNull List<FileResult> files) {
+
+    long failed() {
+      return files.stream().filter(FileResult::isFailed).count();
+    }
+
+    long records() {
+      return files.stream().mapToLong(FileResult::records).sum();
+    }
+
+    @NotNull
+    ExitCodeExceptionMapper.Outcome outcome() {
+      var failed = failed();
+
+      if (0 == failed) {
+        return ExitCodeExceptionMapper.Outcome.SUCCESS;
+      }
+
+      return (failed == files.size()) ? ExitCodeExceptionMapper.Outcome.FAILURE
+          : ExitCodeExceptionMapper.Outcome.PARTIAL_SUCCESS;
+    }
+
+    // the failed files go to the errors, the summary to the output
+    void report(@NotNull PrintWriter output, @NotNull PrintWriter errors) {
+      var bundle = RideCost.getCommandLineBundle();
+
+      for (var file : files) {
+        if (file.isFailed()) {
+          errors.println(String.format(bundle.getString("inputs.failed"), file.input(), file.failure()));
+        }
+      }
+      output.println(String.format(bundle.getString("inputs.summary"), files.size() - failed(), files.size(),
+          records()));
+      output.flush();
+    }
+
+  }
+
+}
@@ -0,0 +1,88 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+@Command(name = "profile", mixinStandardHelpOptions = true)
+class ProfileCommand implements Runnable {
+
+  @Spec
+  CommandSpec spec;
+
+  @Override
+  public void run() {
+    throw new RequiredParameterException(spec.commandLine(),
+        RideCost.getCommandLineBundle().getString("required.profile-command"));
+  }
+
+  @Command(name = "list", mixinStandardHelpOptions = true)
+  void list() throws IOException {
+    var out = spec.commandLine().getOut();
+
+    ProfileStore.open(RideCost.getProfileStoreFile()).names().forEach(out::println);
+    out.flush();
+  }
+
+  @Command(name = "show", mixinStandardHelpOptions = true)
+  void show(@Parameters(paramLabel = "NAME", descriptionKey = "profile.name") String name) throws IOException {
+    var profile = ProfileStore.open(RideCost.getProfileStoreFile()).find(name);
+
+    if (isNull(profile)) {
+      throw unknownProfile(name);
+    }
+
+    var out = spec.commandLine().getOut();
+
+    if (nonNull(profile.distancePerVolume())) {
+      out.println("distancePerVolume=" + profile.distancePerVolume());
+    }
+    if (nonNull(profile.volumePerDistance())) {
+      out.println("volumePerDistance=" + profile.volumePerDistance());
+    }
+    if (nonNull(profile.price())) {
+      out.println("price=" + profile.price());
+    }
+    if (nonNull(profile.rounding())) {
+      out.println("roundTo=" + profile.rounding().decimalPlaces);
+    }
+    out.flush();
+  }
+
+  @Command(name = "delete", mixinStandardHelpOptions = true)
+  void delete(@Parameters(paramLabel = "NAME", descriptionKey = "profile.name") String name) throws IOException {
+    if (!ProfileStore.delete(RideCost.getProfileStoreFile(), name)) {
+      throw unknownProfile(name);
+    }
+  }
+
+  private UnknownProfileException unknownProfile(String name) {
+    return new UnknownProfileException(spec.commandLine(),
+        String.format(RideCost.getCommandLineBundle().getString("profile.unknown"), name));
+  }
+
+}
@@ -0,0 +1,268 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+final class ProfileStore {
+
+  // header: magic, version, reserved, slot count, profile count;
+  // then the open-addressing index of (name hash, record offset) slots and the records themselves
+  @VisibleForTesting
+  static final int MAGIC = 0x52435053;
+  @VisibleForTesting
+  static final short VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+  private static final int SLOT_SIZE = 8;
+  private static final int MIN_SLOTS = 8;
+  private static final int MAX_NAME_LENGTH = 0xFFFF;
+  private static final int MAX_DECIMAL_LENGTH = 0xFF;
+  private static final byte NO_ROUNDING = -1;
+
+  private final ByteBuffer buffer;
+  private final int slotCount;
+  private final int profileCount;
+
+  private ProfileStore(ByteBuffer buffer, Path storeFile) throws IOException {
+    if (buffer.limit() < HEADER_SIZE || MAGIC != buffer.getInt(0) || VERSION != buffer.getShort(4)) {
+      throw new IOException("Not a profile store: " + storeFile);
+    }
+    slotCount = buffer.getInt(8);
+    profileCount = buffer.getInt(12);
+    if (0 >= slotCount || 0 != (slotCount & (slotCount - 1))
+        || buffer.limit() < HEADER_SIZE + (long) slotCount * SLOT_SIZE) {
+      throw new IOException("Broken profile store index: " + storeFile);
+    }
+    this.buffer = buffer;
+  }
+
+  @NotNull
+  static ProfileStore open(@NotNull Path storeFile) throws IOException {
+    if (Files.notExists(storeFile)) {
+      return new ProfileStore(encode(Collections.emptyMap()), storeFile);
+    }
+    try (var channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+      return new ProfileStore(channel.map(MapMode.READ_ONLY, 0, channel.size()), storeFile);
+    }
+  }
+
+  static void save(@NotNull Path storeFile, @NotNull String name, @NotNull Profile profile) throws IOException {
+    // the store is read under the writer lock, so concurrent saves of different profiles don't lose each other
+    AtomicFiles.write(storeFile, (output) -> {
+      var profiles = open(storeFile).profiles();
+
+      profiles.put(name, profile);
+      writeTo(output, profiles);
+    });
+  }
+
+  static boolean delete(@NotNull Path storeFile, @NotNull String name) throws IOException {
+    if (Files.notExists(storeFile)) {
+      return false;
+    }
+
+    var deleted = new AtomicBoolean();
+
+    AtomicFiles.write(storeFile, (output) -> {
+      var profiles = open(storeFile).profiles();
+
+      deleted.set(null != profiles.remove(name));
+      writeTo(output, profiles);
+    });
+
+    return deleted.get();
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static ByteBuffer encode(@NotNull Map<String, Profile> profiles) throws IOException {
+    var slotCount = MIN_SLOTS;
+
+    while (slotCount < profiles.size() * 2) {
+      slotCount <<= 1;
+    }
+
+    var recordsStart = HEADER_SIZE + slotCount * SLOT_SIZE;
+    var slots = ByteBuffer.allocate(slotCount * SLOT_SIZE);
+    var records = new ByteArrayOutputStream();
+    var recordOutput = new DataOutputStream(records);
+
+    for (var entry : profiles.entrySet()) {
+      var nameBytes = entry.getKey().getBytes(UTF_8);
+
+      if (nameBytes.length > MAX_NAME_LENGTH) {
+        throw new IllegalArgumentException("Profile name is too long");
+      }
+
+      var hash = hash(nameBytes);
+      var slot = hash & (slotCount - 1);
+
+      while (0 != slots.getInt(slot * SLOT_SIZE + 4)) {
+        slot = (slot + 1) & (slotCount - 1);
+      }
+      slots.putInt(slot * SLOT_SIZE, hash).putInt(slot * SLOT_SIZE + 4, recordsStart + recordOutput.size());
+      recordOutput.writeShort(nameBytes.length);
+      recordOutput.write(nameBytes);
+      writeDecimal(recordOutput, entry.getValue().distancePerVolume());
+      writeDecimal(recordOutput, entry.getValue().volumePerDistance());
+      writeDecimal(recordOutput, entry.getValue().price());
+      recordOutput.writeByte(isNull(entry.getValue().rounding()) ? NO_ROUNDING
+          : entry.getValue().rounding().decimalPlaces);
+    }
+
+    var store = ByteBuffer.allocate(recordsStart + recordOutput.size());
+
+    store.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(slotCount).putInt(profiles.size());
+    store.put(slots.array()).put(records.toByteArray());
+
+    return store.flip();
+  }
+
+  private static int hash(byte[] nameBytes) {
+    var hash = Arrays.hashCode(nameBytes);
+
+    return hash ^ (hash >>> 16);
+  }
+
+  private static void writeDecimal(DataOutputStream output, @Nullable BigDecimal value) throws IOException {
+    if (isNull(value)) {
+      output.writeByte(0);
+      return;
+    }
+
+    var unscaled = value.unscaledValue().toByteArray();
+
+    if (unscaled.length > MAX_DECIMAL_LENGTH) {
+      throw new IllegalArgumentException("Value is too long: " + value);
+    }
+    output.writeByte(unscaled.length);
+    output.writeInt(value.scale());
+    output.write(unscaled);
+  }
+
+  private static void writeTo(OutputStream output, Map<String, Profile> profiles) throws IOException {
+    var store = encode(profiles);
+
+    output.write(store.array(), 0, store.limit());
+  }
+
+  @Nullable
+  Profile find(@NotNull String name) {
+    var nameBytes = name.getBytes(UTF_8);
+    var hash = hash(nameBytes);
+    var slot = hash & (slotCount - 1);
+
+    for (int probe = 0; probe < slotCount; probe++, slot = (slot + 1) & (slotCount - 1)) {
+      var slotPosition = HEADER_SIZE + slot * SLOT_SIZE;
+      var offset = buffer.getInt(slotPosition + 4);
+
+      if (0 == offset) {
+        return null;
+      }
+      if (hash == buffer.getInt(slotPosition) && (buffer.getShort(offset) & MAX_NAME_LENGTH) == nameBytes.length
+          && buffer.slice(offset + 2, nameBytes.length).equals(ByteBuffer.wrap(nameBytes))) {
+        return readProfile(buffer.duplicate().position(offset + 2 + nameBytes.length));
+      }
+    }
+
+    return null;
+  }
+
+  @NotNull
+  List<String> names() {
+    return new ArrayList<>(profiles().keySet());
+  }
+
+  int size() {
+    return profileCount;
+  }
+
+  private SortedMap<String, Profile> profiles() {
+    var profiles = new TreeMap<String, Profile>();
+
+    for (int slot = 0; slot < slotCount; slot++) {
+      var offset = buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4);
+
+      if (0 != offset) {
+        var record = buffer.duplicate().position(offset);
+        var nameBytes = new byte[record.getShort() & MAX_NAME_LENGTH];
+
+        record.get(nameBytes);
+        profiles.put(new String(nameBytes, UTF_8), readProfile(record));
+      }
+    }
+
+    return profiles;
+  }
+
+  private Profile readProfile(ByteBuffer record) {
+    var distancePerVolume = readDecimal(record);
+    var volumePerDistance = readDecimal(record);
+    var price = readDecimal(record);
+    var decimalPlaces = record.get();
+
+    return new Profile(distancePerVolume, volumePerDistance, price,
+        (NO_ROUNDING == decimalPlaces) ? null : Rounding.valueOf(decimalPlaces));
+  }
+
+  @Nullable
+  private BigDecimal readDecimal(ByteBuffer record) {
+    var length = record.get() & MAX_DECIMAL_LENGTH;
+
+    if (0 == length) {
+      return null;
+    }
+
+    var scale = record.getInt();
+    var unscaled = new byte[length];
+
+    record.get(unscaled);
+
+    return new BigDecimal(new BigInteger(unscaled), scale);
+  }
+
+}
@@ -0,0 +1,108 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import picocli.CommandLine;
+
+// A distance on every line of a batch, empty lines and comments are skipped. An invalid record goes to the rejects
+// file or stops the batch. Without the rejects it keeps no state, so the files of --inputs are estimated concurrently.
+final class RecordBatch implements MultiFileBatch.BatchEstimator {
+
+  private final CommandLine commandLine;
+  private final RideCosts costs;
+  private final RejectWriter rejects;
+
+  RecordBatch(@NotNull RideCosts costs, @Nullable RejectWriter rejects, @NotNull CommandLine commandLine) {
+    this.costs = costs;
+    this.rejects = rejects;
+    this.commandLine = commandLine;
+  }
+
+  @Override
+  public long estimate(@NotNull BufferedReader batchInput, @NotNull ResultWriter results) throws IOException {
+    var batchDistance = new FixedPointDecimal();
+    var batchEvent = new RideCostEvents.Batch();
+    var batchReader = new BatchReader(batchInput);
+    var recordCount = 0L;
+    String line;
+
+    batchEvent.begin();
+    while (nonNull(line = batchReader.readLine())) {
+      line = line.strip();
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        continue;
+      }
+
+      if (costs.takesUnscaled() && batchDistance.parse(line) && batchDistance.unscaled() > 0) {
+        results.estimate(batchDistance.unscaled(), batchDistance.scale(),
+            costs.cost(batchDistance.unscaled(), batchDistance.scale()));
+      } else {
+        var recordDistance = parseDistance(line, batchReader);
+
+        if (isNull(recordDistance)) {
+          continue;
+        }
+        results.estimate(recordDistance, costs.cost(recordDistance));
+      }
+      recordCount++;
+    }
+    costs.commit(batchEvent, recordCount);
+
+    return recordCount;
+  }
+
+  // returns null if the record is rejected
+  private BigDecimal parseDistance(String line, BatchReader batchReader) throws IOException {
+    BigDecimal batchDistance = null;
+    String reasonKey = null;
+
+    try {
+      batchDistance = new BigDecimal(line);
+      if (batchDistance.signum() <= 0) {
+        reasonKey = "value.non-positive";
+      }
+    } catch (NumberFormatException exception) {
+      reasonKey = "value.not-a-number";
+    }
+    if (isNull(reasonKey)) {
+      return batchDistance;
+    }
+
+    var reason = String.format(RideCost.getCommandLineBundle().getString(reasonKey), line);
+
+    if (isNull(rejects)) {
+      throw new InvalidRecordException(commandLine,
+          String.format(RideCost.getCommandLineBundle().getString("batch.invalid-record"), batchReader.lineNumber(),
+              reason));
+    }
+    rejects.reject(batchReader.lineNumber(), batchReader.lineOffset(), line, reason);
+
+    return null;
+  }
+
+}
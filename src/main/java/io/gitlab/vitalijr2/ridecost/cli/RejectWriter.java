@@ -0,0 +1,103 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+
+// Invalid records of a batch or a trip log go to a CSV file instead of stopping the run.
+final class RejectWriter implements Closeable {
+
+  private final Writer writer;
+
+  private long rejects;
+
+  RejectWriter(@NotNull Writer writer) throws IOException {
+    this(writer, true);
+  }
+
+  private RejectWriter(Writer writer, boolean header) throws IOException {
+    this.writer = writer;
+    if (header) {
+      writer.write("line,offset,value,reason\n");
+    }
+  }
+
+  @NotNull
+  static RejectWriter open(@NotNull Path rejectsFile) throws IOException {
+    return new RejectWriter(Files.newBufferedWriter(rejectsFile, UTF_8));
+  }
+
+  // a followed log keeps the rejects of the previous runs, the header is written once
+  @NotNull
+  static RejectWriter append(@NotNull Path rejectsFile) throws IOException {
+    var header = Files.notExists(rejectsFile) || 0 == Files.size(rejectsFile);
+
+    return new RejectWriter(Files.newBufferedWriter(rejectsFile, UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND), header);
+  }
+
+  private static String quote(String field) {
+    if (field.indexOf('"') < 0 && field.indexOf(',') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+      return field;
+    }
+
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  long rejects() {
+    return rejects;
+  }
+
+  void reject(long line, long offset, @NotNull String value, @NotNull String reason) throws IOException {
+    writer.write(Long.toString(line));
+    writer.write(',');
+    writer.write(Long.toString(offset));
+    writer.write(',');
+    writer.write(quote(value));
+    writer.write(',');
+    writer.write(quote(reason));
+    writer.write('\n');
+    rejects++;
+  }
+
+  // the reason of a rejected trip is a message of the command line
+  void reject(@NotNull TripAggregator.Reject reject) throws IOException {
+    reject(reject.line(), reject.offset(), reject.value(),
+        String.format(RideCost.getCommandLineBundle().getString(reject.reasonKey()), reject.value()));
+  }
+
+  void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+}
@@ -0,0 +1,580 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+// Formats results straight into a byte buffer that is written out only when it fills up or on close.
+// Records are never split between writes, so a character sink never sees a part of a UTF-8 sequence.
+final class ResultWriter implements Closeable {
+
+  @VisibleForTesting
+  static final int BUFFER_SIZE = 1 << 16;
+
+  private static final byte[] CSV_DAY_TOTALS_HEADER = "day,vehicle,cost\n".getBytes(UTF_8);
+  private static final byte[] CSV_ESTIMATE_HEADER = "distance,cost\n".getBytes(UTF_8);
+  private static final byte[] CSV_LEG_HEADER = "distance,ratio,price,cost\n".getBytes(UTF_8);
+  private static final byte[] CSV_SWEEP_HEADER = "price,ratio,distance,cost\n".getBytes(UTF_8);
+  private static final byte[] CSV_TOTALS_HEADER = "vehicle,cost\n".getBytes(UTF_8);
+  private static final byte[] JSON_COST = ",\"cost\":".getBytes(UTF_8);
+  private static final byte[] JSON_DAY = "\"day\":".getBytes(UTF_8);
+  private static final byte[] JSON_DISTANCE = "{\"distance\":".getBytes(UTF_8);
+  private static final byte[] JSON_LEG_PRICE = ",\"price\":".getBytes(UTF_8);
+  private static final byte[] JSON_LEGS = "{\"legs\":[".getBytes(UTF_8);
+  private static final byte[] JSON_PRICE = "{\"price\":".getBytes(UTF_8);
+  private static final byte[] JSON_RATIO = ",\"ratio\":".getBytes(UTF_8);
+  private static final byte[] JSON_ROUTE_TOTAL = "],\"total\":".getBytes(UTF_8);
+  private static final byte[] JSON_SWEEP_DISTANCE = ",\"distance\":".getBytes(UTF_8);
+  private static final byte[] JSON_TOTAL = "\"total\":".getBytes(UTF_8);
+  private static final byte[] JSON_VEHICLE = "\"vehicle\":".getBytes(UTF_8);
+  private static final byte[] JSON_VEHICLES = "\"vehicles\":{".getBytes(UTF_8);
+  // a long with a sign, a point and up to six leading zeros of a fraction
+  private static final int MAX_DECIMAL_LENGTH = 28;
+  private static final int MAX_ESTIMATE_LENGTH = 2 * MAX_DECIMAL_LENGTH + 24;
+  private static final int MAX_SWEEP_LENGTH = 4 * MAX_DECIMAL_LENGTH + 48;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final byte[] bytes = buffer.array();
+  private final WritableByteChannel channel;
+  private final boolean closeChannel;
+  private final Format format;
+
+  private boolean array;
+  private int position;
+  private long records;
+
+  private ResultWriter(WritableByteChannel channel, boolean closeChannel, Format format) {
+    this.channel = channel;
+    this.closeChannel = closeChannel;
+    this.format = format;
+  }
+
+  // the channel is closed with the writer
+  @NotNull
+  static ResultWriter of(@NotNull WritableByteChannel channel, @NotNull Format format) {
+    return new ResultWriter(channel, true, format);
+  }
+
+  // the standard output stays open
+  @NotNull
+  static ResultWriter standardOutput(@NotNull WritableByteChannel channel, @NotNull Format format) {
+    return new ResultWriter(channel, false, format);
+  }
+
+  // the writer is flushed but stays open: it is the standard output of picocli or the socket of the daemon
+  @NotNull
+  static ResultWriter of(@NotNull Writer writer, @NotNull Format format) {
+    return new ResultWriter(new CharacterChannel(writer), true, format);
+  }
+
+  long records() {
+    return records;
+  }
+
+  void estimate(@NotNull BigDecimal distance, @NotNull BigDecimal cost) throws IOException {
+    startRecord(MAX_ESTIMATE_LENGTH, CSV_ESTIMATE_HEADER);
+    switch (format) {
+      case PLAIN -> writeDecimal(cost);
+      case CSV -> {
+        writeDecimal(distance);
+        bytes[position++] = ',';
+        writeDecimal(cost);
+      }
+      case JSON, NDJSON -> {
+        write(JSON_DISTANCE);
+        writeDecimal(distance);
+        write(JSON_COST);
+        writeDecimal(cost);
+        bytes[position++] = '}';
+      }
+    }
+    endRecord();
+  }
+
+  void estimate(long distanceUnscaled, int distanceScale, @NotNull BigDecimal cost) throws IOException {
+    startRecord(MAX_ESTIMATE_LENGTH, CSV_ESTIMATE_HEADER);
+    switch (format) {
+      case PLAIN -> writeDecimal(cost);
+      case CSV -> {
+        writeDecimal(distanceUnscaled, distanceScale);
+        bytes[position++] = ',';
+        writeDecimal(cost);
+      }
+      case JSON, NDJSON -> {
+        write(JSON_DISTANCE);
+        writeDecimal(distanceUnscaled, distanceScale);
+        write(JSON_COST);
+        writeDecimal(cost);
+        bytes[position++] = '}';
+      }
+    }
+    endRecord();
+  }
+
+  // the plain format is the matrix: a line of costs for every price and ratio, CSV is one cell per line
+  void sweep(@NotNull BigDecimal price, @NotNull BigDecimal ratio, @NotNull BigDecimal distance,
+      @NotNull BigDecimal cost, boolean rowEnd) throws IOException {
+    if (Format.PLAIN == format) {
+      reserve(MAX_DECIMAL_LENGTH + 1);
+      writeDecimal(cost);
+      bytes[position++] = rowEnd ? (byte) '\n' : (byte) ' ';
+      records++;
+      return;
+    }
+    startRecord(MAX_SWEEP_LENGTH, CSV_SWEEP_HEADER);
+    if (Format.CSV == format) {
+      writeDecimal(price);
+      bytes[position++] = ',';
+      writeDecimal(ratio);
+      bytes[position++] = ',';
+      writeDecimal(distance);
+      bytes[position++] = ',';
+      writeDecimal(cost);
+    } else {
+      write(JSON_PRICE);
+      writeDecimal(price);
+      write(JSON_RATIO);
+      writeDecimal(ratio);
+      write(JSON_SWEEP_DISTANCE);
+      writeDecimal(distance);
+      write(JSON_COST);
+      writeDecimal(cost);
+      bytes[position++] = '}';
+    }
+    endRecord();
+  }
+
+  // the legs of a route are followed by its total, JSON is one object with the array of legs
+  void leg(@NotNull BigDecimal distance, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+      @NotNull BigDecimal cost) throws IOException {
+    reserve(MAX_SWEEP_LENGTH);
+    switch (format) {
+      case PLAIN -> {
+        writeDecimal(distance);
+        bytes[position++] = ',';
+        writeDecimal(cost);
+      }
+      case CSV -> {
+        if (0 == records) {
+          write(CSV_LEG_HEADER);
+          reserve(MAX_SWEEP_LENGTH);
+        }
+        writeDecimal(distance);
+        bytes[position++] = ',';
+        writeDecimal(ratio);
+        bytes[position++] = ',';
+        writeDecimal(price);
+        bytes[position++] = ',';
+        writeDecimal(cost);
+      }
+      case JSON, NDJSON -> {
+        if (Format.JSON == format) {
+          if (0 == records) {
+            write(JSON_LEGS);
+            reserve(MAX_SWEEP_LENGTH);
+          } else {
+            bytes[position++] = ',';
+          }
+        }
+        write(JSON_DISTANCE);
+        writeDecimal(distance);
+        write(JSON_RATIO);
+        writeDecimal(ratio);
+        write(JSON_LEG_PRICE);
+        writeDecimal(price);
+        write(JSON_COST);
+        writeDecimal(cost);
+        bytes[position++] = '}';
+      }
+    }
+    if (Format.JSON != format) {
+      bytes[position++] = '\n';
+    }
+    records++;
+  }
+
+  void route(@NotNull BigDecimal total) throws IOException {
+    reserve(MAX_DECIMAL_LENGTH + 16);
+    switch (format) {
+      case PLAIN -> writeDecimal(total);
+      case CSV -> {
+        bytes[position++] = ',';
+        bytes[position++] = ',';
+        bytes[position++] = ',';
+        writeDecimal(total);
+      }
+      case JSON -> {
+        write(JSON_ROUTE_TOTAL);
+        writeDecimal(total);
+        bytes[position++] = '}';
+      }
+      case NDJSON -> {
+        bytes[position++] = '{';
+        write(JSON_TOTAL);
+        writeDecimal(total);
+        bytes[position++] = '}';
+      }
+    }
+    bytes[position++] = '\n';
+    records++;
+  }
+
+  void totals(@NotNull TripAggregator.Totals totals) throws IOException {
+    if (Format.CSV == format) {
+      write(CSV_TOTALS_HEADER);
+    }
+    writeTotals(null, totals);
+    records = totals.subtotals().size() + 1;
+  }
+
+  // the follow mode writes the totals of a day after every update, each of them is flushed at once
+  void totals(@NotNull String day, @NotNull TripAggregator.Totals totals) throws IOException {
+    if (Format.CSV == format && 0 == records) {
+      write(CSV_DAY_TOTALS_HEADER);
+    }
+    writeTotals(day, totals);
+    records += totals.subtotals().size() + 1;
+    flush();
+  }
+
+  private void writeTotals(String day, TripAggregator.Totals totals) throws IOException {
+    switch (format) {
+      case PLAIN, CSV -> {
+        for (Map.Entry<String, BigDecimal> subtotal : totals.subtotals().entrySet()) {
+          writeDay(day);
+          writeVehicle(subtotal.getKey());
+          bytes[position++] = ',';
+          writeDecimal(subtotal.getValue());
+          bytes[position++] = '\n';
+        }
+        writeDay(day);
+        reserve(MAX_DECIMAL_LENGTH + 2);
+        if (Format.CSV == format) {
+          bytes[position++] = ',';
+        }
+        writeDecimal(totals.total());
+      }
+      case JSON -> {
+        write('{');
+        writeDay(day);
+        write(JSON_VEHICLES);
+        var first = true;
+
+        for (Map.Entry<String, BigDecimal> subtotal : totals.subtotals().entrySet()) {
+          if (!first) {
+            write(',');
+          }
+          writeJsonString(subtotal.getKey());
+          write(':');
+          reserve(MAX_DECIMAL_LENGTH);
+          writeDecimal(subtotal.getValue());
+          first = false;
+        }
+        reserve(MAX_DECIMAL_LENGTH + 16);
+        bytes[position++] = '}';
+        bytes[position++] = ',';
+        write(JSON_TOTAL);
+        writeDecimal(totals.total());
+        bytes[position++] = '}';
+      }
+      case NDJSON -> {
+        for (Map.Entry<String, BigDecimal> subtotal : totals.subtotals().entrySet()) {
+          write('{');
+          writeDay(day);
+          write(JSON_VEHICLE);
+          writeJsonString(subtotal.getKey());
+          reserve(MAX_DECIMAL_LENGTH + 16);
+          write(JSON_COST);
+          writeDecimal(subtotal.getValue());
+          bytes[position++] = '}';
+          bytes[position++] = '\n';
+        }
+        write('{');
+        writeDay(day);
+        reserve(MAX_DECIMAL_LENGTH + 16);
+        write(JSON_TOTAL);
+        writeDecimal(totals.total());
+        bytes[position++] = '}';
+      }
+    }
+    write('\n');
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (Format.JSON == format) {
+        if (0 == records) {
+          write('[');
+          write(']');
+          write('\n');
+        } else if (array) {
+          write('\n');
+          write(']');
+          write('\n');
+        }
+      }
+      flush();
+    } finally {
+      if (closeChannel) {
+        channel.close();
+      }
+    }
+  }
+
+  private static int digits(long unscaled) {
+    var digits = 1;
+
+    for (var value = Math.abs(unscaled / 10); value > 0; value /= 10) {
+      digits++;
+    }
+
+    return digits;
+  }
+
+  // BigDecimal.toString() switches to the scientific notation when the exponent is less than -6
+  private static boolean isPlain(int precision, int scale) {
+    return 0 <= scale && precision - scale - 1 >= -6;
+  }
+
+  private void startRecord(int maxLength, byte[] csvHeader) throws IOException {
+    reserve(maxLength);
+    if (0 == records) {
+      array = true;
+      switch (format) {
+        case CSV -> write(csvHeader);
+        case JSON -> {
+          bytes[position++] = '[';
+          bytes[position++] = '\n';
+        }
+        default -> {
+        }
+      }
+    } else if (Format.JSON == format) {
+      bytes[position++] = ',';
+      bytes[position++] = '\n';
+    }
+  }
+
+  private void endRecord() {
+    if (Format.JSON != format) {
+      bytes[position++] = '\n';
+    }
+    records++;
+  }
+
+  private void writeDecimal(BigDecimal value) throws IOException {
+    var precision = value.precision();
+
+    if (precision <= FixedPointDecimal.MAX_DIGITS && isPlain(precision, value.scale())) {
+      writePlain(value.unscaledValue().longValue(), value.scale());
+    } else {
+      writeAscii(value.toString());
+    }
+  }
+
+  private void writeDecimal(long unscaled, int scale) throws IOException {
+    if (unscaled != Long.MIN_VALUE && isPlain(digits(unscaled), scale)) {
+      writePlain(unscaled, scale);
+    } else {
+      writeAscii(BigDecimal.valueOf(unscaled, scale).toString());
+    }
+  }
+
+  // digits are written backwards from the end of the number
+  private void writePlain(long unscaled, int scale) {
+    var value = Math.abs(unscaled);
+    var digits = digits(unscaled);
+    var length = Math.max(digits, scale + 1) + ((0 < scale) ? 1 : 0) + ((0 > unscaled) ? 1 : 0);
+    var end = position + length;
+    var index = end;
+
+    for (int i = 0; i < scale; i++) {
+      bytes[--index] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    if (0 < scale) {
+      bytes[--index] = '.';
+    }
+    do {
+      bytes[--index] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (0 < value);
+    if (0 > unscaled) {
+      bytes[--index] = '-';
+    }
+    position = end;
+  }
+
+  // a record reserves room for decimals of MAX_DECIMAL_LENGTH, so a longer one reserves the rest of the record again
+  private void writeAscii(String text) throws IOException {
+    write(text.getBytes(US_ASCII));
+    if (MAX_DECIMAL_LENGTH < text.length()) {
+      reserve(MAX_SWEEP_LENGTH);
+    }
+  }
+
+  // the day is the first field or property
+  private void writeDay(String day) throws IOException {
+    if (isNull(day)) {
+      return;
+    }
+    if (Format.PLAIN == format || Format.CSV == format) {
+      write(day.getBytes(UTF_8));
+    } else {
+      write(JSON_DAY);
+      writeJsonString(day);
+    }
+    write(',');
+  }
+
+  // the plain format keeps the name as it is, CSV quotes it if needed
+  private void writeVehicle(String vehicle) throws IOException {
+    var quoted = Format.CSV == format && (vehicle.indexOf('"') >= 0 || vehicle.indexOf(',') >= 0);
+
+    write((quoted ? '"' + vehicle.replace("\"", "\"\"") + '"' : vehicle).getBytes(UTF_8));
+    reserve(MAX_DECIMAL_LENGTH + 2);
+  }
+
+  private void writeJsonString(String text) throws IOException {
+    var json = new StringBuilder(text.length() + 2).append('"');
+
+    for (int i = 0; i < text.length(); i++) {
+      var character = text.charAt(i);
+
+      if (character == '"' || character == '\\') {
+        json.append('\\').append(character);
+      } else if (character < 0x20) {
+        json.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+      } else {
+        json.append(character);
+      }
+    }
+    write(json.append('"').toString().getBytes(UTF_8));
+  }
+
+  private void write(int character) throws IOException {
+    reserve(1);
+    bytes[position++] = (byte) character;
+  }
+
+  // a chunk longer than the buffer is written straight to the channel
+  private void write(byte[] chunk) throws IOException {
+    if (chunk.length > BUFFER_SIZE) {
+      flush();
+      writeFully(ByteBuffer.wrap(chunk));
+      return;
+    }
+    reserve(chunk.length);
+    System.arraycopy(chunk, 0, bytes, position, chunk.length);
+    position += chunk.length;
+  }
+
+  private void reserve(int length) throws IOException {
+    if (BUFFER_SIZE - position < length) {
+      flush();
+    }
+  }
+
+  void flush() throws IOException {
+    if (0 < position) {
+      writeFully(buffer.limit(position).position(0));
+      buffer.clear();
+      position = 0;
+    }
+  }
+
+  private void writeFully(ByteBuffer chunk) throws IOException {
+    while (chunk.hasRemaining()) {
+      channel.write(chunk);
+    }
+  }
+
+  enum Format {
+
+    PLAIN, CSV, JSON, NDJSON;
+
+    // picocli converters are case-sensitive for enums
+    static class Converter implements ITypeConverter<Format> {
+
+      @Override
+      public Format convert(String value) {
+        try {
+          return Format.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+          throw new TypeConversionException(
+              String.format(RideCost.getCommandLineBundle().getString("output.unknown-format"), value));
+        }
+      }
+
+    }
+
+  }
+
+  private static class CharacterChannel implements WritableByteChannel {
+
+    private final Writer writer;
+
+    private boolean open = true;
+
+    CharacterChannel(Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+      var length = source.remaining();
+
+      writer.write(UTF_8.decode(source).toString());
+      // the buffer is written out when it is full or on a flush, so the writer is flushed too
+      writer.flush();
+
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+      open = false;
+      writer.flush();
+    }
+
+  }
+
+}
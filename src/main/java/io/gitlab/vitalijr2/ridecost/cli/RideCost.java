@@ -24,42 +24,68 @@ import static io.gitlab.vitalijr2.ridecost.cli.RideCostVersion.VERSION;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import io.gitlab.vitalijr2.ridecost.api.RideRequest;
 import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
 import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.math.BigDecimal;
-import java.util.Objects;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.ResourceBundle.Control;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.VisibleForTesting;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.IExitCodeGenerator;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParseResult;
 import picocli.CommandLine.Spec;
 
 @Command(name = COMMAND_NAME, mixinStandardHelpOptions = true, requiredOptionMarker = '*', version = {
     COMMAND_NAME + ' ' + VERSION, "picocli " + CommandLine.VERSION,
     "JVM: ${java.version} (${java.vendor} ${java.vm.name} ${java.vm.version})",
-    "OS: ${os.name} ${os.version} ${os.arch}"})
-public class RideCost implements Runnable {
+    "OS: ${os.name} ${os.version} ${os.arch}"}, subcommands = {ProfileCommand.class,
+    ConvertCommand.class})
+public class RideCost implements Runnable, IExitCodeGenerator {
 
   private static final Logger LOGGER = System.getLogger(RideCost.class.getName());
-  private static final ResourceBundle COMMAND_LINE_BUNDLE = ResourceBundle.getBundle("CommandLineBundle");
+  private static final String DISTANCE_PER_VOLUME = "distance-per-volume";
+  private static final String VOLUME_PER_DISTANCE = "volume-per-distance";
+  private static volatile long bundleNanos = -1;
 
   @Spec
   CommandSpec spec;
 
-  @Parameters(index = "0", paramLabel = "DISTANCE", descriptionKey = "distance", arity = "0")
-  BigDecimal distance;
+  @Parameters(index = "0..*", paramLabel = "DISTANCE", descriptionKey = "distance", arity = "0..*")
+  List<String> legs;
 
   @Option(names = {"--miles-per-gallon", "-m", "--kilometres-per-litre", "-k", "--mpg",
       "--kpl"}, paramLabel = "RATIO", descriptionKey = "mileage.distance-per-volume")
@@ -84,26 +110,251 @@ public class RideCost implements Runnable {
   @Option(names = "-4", descriptionKey = "round.four")
   boolean fourDigits;
 
+  @Option(names = "--round-total", descriptionKey = "round.total")
+  boolean roundTotal;
+
   @Option(names = {"--save", "-s"}, descriptionKey = "state.save")
   boolean saveState;
 
+  @Option(names = "--profile", paramLabel = "NAME", descriptionKey = "profile")
+  String profile;
+
+  @Option(names = {"--batch", "-b"}, descriptionKey = "batch")
+  boolean batch;
+
+  @Option(names = {"--input", "-i"}, paramLabel = "FILE", descriptionKey = "batch.input")
+  File input;
+
+  @Option(names = "--inputs", paramLabel = "GLOB", descriptionKey = "inputs")
+  String inputs;
+
+  @Option(names = "--output-folder", paramLabel = "FOLDER", descriptionKey = "inputs.output-folder")
+  File outputFolder;
+
+  @Option(names = "--open-files", paramLabel = "COUNT", descriptionKey = "inputs.open-files")
+  int openFiles = 16;
+
+  @Option(names = "--aggregate", paramLabel = "FILE", descriptionKey = "aggregate")
+  File aggregate;
+
+  @Option(names = "--where", paramLabel = "CONDITION", descriptionKey = "where")
+  List<String> where;
+
+  @Option(names = "--rejects", paramLabel = "FILE", descriptionKey = "rejects")
+  File rejects;
+
+  @Option(names = "--follow", paramLabel = "FILE", descriptionKey = "follow")
+  File follow;
+
+  @Option(names = "--checkpoint", paramLabel = "FILE", descriptionKey = "follow.checkpoint")
+  File checkpoint;
+
+  @Option(names = "--sweep", paramLabel = "DIMENSION=RANGE", descriptionKey = "sweep")
+  Map<String, String> sweep;
+
+  @Option(names = "--fixed-point", descriptionKey = "engine.fixed-point")
+  boolean fixedPoint;
+
+  @Option(names = "--cache", paramLabel = "ENTRIES", descriptionKey = "cache")
+  int cacheSize;
+
+  @Option(names = "--format", paramLabel = "FORMAT", descriptionKey = "output.format",
+      converter = ResultWriter.Format.Converter.class)
+  ResultWriter.Format format = ResultWriter.Format.PLAIN;
+
+  @Option(names = {"--output", "-o"}, paramLabel = "FILE", descriptionKey = "output")
+  File output;
+
+  @Option(names = Metrics.METRICS_OPTION, paramLabel = "FILE", descriptionKey = "metrics")
+  File metricsFile;
+
+  @Option(names = FlightRecording.JFR_OPTION, descriptionKey = "jfr")
+  boolean jfr;
+
+  @Option(names = FlightRecording.JFR_FILE_OPTION, paramLabel = "FILE", descriptionKey = "jfr.file")
+  File jfrFile;
+
+  @Option(names = "--daemon", descriptionKey = "daemon")
+  boolean daemon;
+
+  @Option(names = "--remote", descriptionKey = "daemon.remote")
+  boolean remote;
+
+  @Option(names = "--idle-timeout", paramLabel = "SECONDS", descriptionKey = "daemon.idle-timeout")
+  long idleTimeout = 600;
+
+  @Option(names = "--daemon-threads", paramLabel = "COUNT", descriptionKey = "daemon.threads")
+  int daemonThreads = Runtime.getRuntime().availableProcessors();
+
+  // a single distance without overrides, several legs are a route
+  @VisibleForTesting
+  BigDecimal distance;
+
   @VisibleForTesting
   RideCostEstimator.Rounding rounding;
 
+  @VisibleForTesting
+  boolean served;
+
+  @VisibleForTesting
+  CostCache cache;
+
+  @VisibleForTesting
+  UnitCost unitCost;
+
+  // built by resolveEngine, before any worker estimates with it
+  @VisibleForTesting
+  RideCosts costs;
+
+  @VisibleForTesting
+  WritableByteChannel standardOutput;
+
+  @VisibleForTesting
+  List<Leg> route;
+
+  private List<DistanceCondition> conditions = List.of();
+  private ExitCodeExceptionMapper.Outcome outcome = ExitCodeExceptionMapper.Outcome.SUCCESS;
+  // the daemon has mapped the exit code of a remote run already
+  private Integer remoteExitCode;
+  private long estimatedRecords;
+  private Metrics metrics;
+  private RejectWriter rejectWriter;
+  private Rounding routeRounding;
+  private Map<String, CostSweep.Range> sweepRanges;
+  private UnitCost savedUnitCost;
+
   public RideCost() {
-    try {
+    this(Metrics.disabled());
+  }
+
+  // a metrics phase is only closed
+  @SuppressWarnings("try")
+  RideCost(Metrics metrics) {
+    this.metrics = metrics;
+    try (var ignored = metrics.phase("load_state")) {
       loadState();
     } catch (IOException exception) {
       LOGGER.log(Level.WARNING, exception.getMessage());
     }
   }
 
+  RideCost(Properties stateProperties) {
+    metrics = Metrics.disabled();
+    restoreState(stateProperties);
+  }
+
   public static void main(String[] args) {
-    var commandLine = new CommandLine(new RideCost());
+    if (RideCostClient.isRemote(args)) {
+      System.exit(RideCostClient.forward(getSocketPath(), args));
+    }
+
+    var recording = FlightRecording.start(args);
+    var metrics = Metrics.of(args);
+
+    metrics.recordStartup();
+
+    var rideCost = new RideCost(metrics);
+
+    // results bypass the character encoder of System.out
+    rideCost.standardOutput = new FileOutputStream(FileDescriptor.out).getChannel();
+    var parsing = metrics.phase("parse");
+    var commandLine = commandLine(rideCost);
+    var executionStrategy = commandLine.getExecutionStrategy();
+
+    commandLine.setExecutionStrategy((parseResult) -> {
+      parsing.close();
+      return executionStrategy.execute(parseResult);
+    });
+
+    var exitCode = commandLine.execute(args);
+
+    if (bundleNanos >= 0) {
+      metrics.record("bundle", bundleNanos, -1);
+    }
+    rideCost.writeMetrics(exitCode);
+    if (nonNull(recording)) {
+      recording.stop();
+    }
+    System.exit(exitCode);
+  }
+
+  @NotNull
+  static CommandLine commandLine(RideCost rideCost) {
+    var commandLine = new CommandLine(rideCost);
+    var executionStrategy = commandLine.getExecutionStrategy();
+    var parameterExceptionHandler = commandLine.getParameterExceptionHandler();
 
     commandLine.setExitCodeExceptionMapper(new ExitCodeExceptionMapper());
-    commandLine.setResourceBundle(COMMAND_LINE_BUNDLE);
-    System.exit(commandLine.execute(args));
+    // picocli reads the whole bundle when it is set, so that is done only before printing the usage help
+    commandLine.setExecutionStrategy((parseResult) -> {
+      if (isUsageHelpRequested(parseResult)) {
+        commandLine.setResourceBundle(getCommandLineBundle());
+      }
+      return executionStrategy.execute(parseResult);
+    });
+    commandLine.setParameterExceptionHandler((exception, args) -> {
+      commandLine.setResourceBundle(getCommandLineBundle());
+      return parameterExceptionHandler.handleParseException(exception, args);
+    });
+
+    return commandLine;
+  }
+
+  @NotNull
+  static ResourceBundle getCommandLineBundle() {
+    return CommandLineBundleHolder.BUNDLE;
+  }
+
+  // the bundles are classes only, looking up properties files for every candidate locale takes longer than loading
+  @VisibleForTesting
+  @NotNull
+  static ResourceBundle loadCommandLineBundle(Locale locale) {
+    var baseName = CommandLineBundle.class.getName();
+
+    if (RideCost.class.getModule().isNamed()) {
+      // a custom control is not supported in named modules
+      return ResourceBundle.getBundle(baseName, locale);
+    }
+
+    return ResourceBundle.getBundle(baseName, locale, Control.getNoFallbackControl(Control.FORMAT_CLASS));
+  }
+
+  private static boolean isUsageHelpRequested(ParseResult parseResult) {
+    for (var result = parseResult; nonNull(result); result = result.subcommand()) {
+      if (result.isUsageHelpRequested()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static Path getSocketPath() {
+    var socketFileName = System.getenv("RIDECOST_SOCKET");
+
+    if (nonNull(socketFileName)) {
+      return Path.of(socketFileName);
+    }
+
+    var runtimeFolder = System.getenv().getOrDefault("XDG_RUNTIME_DIR", System.getProperty("java.io.tmpdir"));
+
+    return Path.of(runtimeFolder, "ridecost-" + System.getProperty("user.name") + ".sock");
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static Path getProfileStoreFile() {
+    var storeFileName = System.getenv("RIDECOST_PROFILES");
+
+    if (nonNull(storeFileName)) {
+      return Path.of(storeFileName);
+    }
+
+    var stateFolder = System.getenv().getOrDefault("XDG_STATE_HOME", System.getProperty("user.home") + "/.local/state");
+
+    return Path.of(stateFolder, "ridecost.profiles");
   }
 
   @VisibleForTesting
@@ -131,13 +382,74 @@ public class RideCost implements Runnable {
   }
 
   @Override
+  public int getExitCode() {
+    return nonNull(remoteExitCode) ? remoteExitCode : ExitCodeExceptionMapper.getExitCode(outcome);
+  }
+
+  @Override
+  @SuppressWarnings("try")
   public void run() {
-    validateOptions();
-    validatePositiveDecimals();
-    resolveRounding();
-    System.out.println(estimateRideCost());
+    if (daemon || remote) {
+      runDaemonOrClient();
+      return;
+    }
+    // before the metrics, so that a relative path is not written in the working folder of the daemon
+    if (served) {
+      validateServedOptions();
+    }
+    if (nonNull(metricsFile) && !metrics.isEnabled()) {
+      metrics = Metrics.enabled(metricsFile.toPath());
+    }
+    // the daemon shares its cache with every request
+    if (isNull(cache) && cacheSize > 0) {
+      cache = new CostCache(cacheSize);
+    }
+    try (var ignored = metrics.phase("validation")) {
+      var validationEvent = new RideCostEvents.Validation();
 
-    try {
+      validationEvent.begin();
+      applyProfile();
+      resolveMileage();
+      resolveLegs();
+      resolveSweep();
+      resolveConditions();
+      validateOptions();
+      validatePositiveDecimals();
+      if (validationEvent.shouldCommit()) {
+        validationEvent.estimator = getRatioName();
+        validationEvent.commit();
+      }
+      resolveRounding();
+      // the legs of the route are exact, only their sum is rounded
+      if (roundTotal && nonNull(route)) {
+        routeRounding = rounding;
+        rounding = null;
+      }
+      resolveEngine();
+    }
+    try (var ignored = metrics.phase("estimation")) {
+      if (nonNull(inputs)) {
+        estimateFiles();
+      } else {
+        estimate();
+      }
+    }
+    if (nonNull(rejectWriter) && 0 < rejectWriter.rejects()) {
+      outcome = ExitCodeExceptionMapper.Outcome.COMPLETED_WITH_REJECTS;
+      spec.commandLine().getErr().println(String.format(getCommandLineBundle().getString("rejects.summary"),
+          rejectWriter.rejects(), rejects, estimatedRecords));
+    }
+    if (nonNull(routeRounding)) {
+      rounding = routeRounding;
+    }
+    if (nonNull(cache)) {
+      var statistics = cache.statistics();
+
+      metrics.cache(statistics);
+      LOGGER.log(Level.DEBUG, "Cache: {0} hits, {1} misses, {2} evictions, {3} entries", statistics.hits(),
+          statistics.misses(), statistics.evictions(), statistics.entries());
+    }
+    try (var ignored = metrics.phase("save_state")) {
       if (saveState) {
         saveState();
       }
@@ -146,25 +458,193 @@ public class RideCost implements Runnable {
     }
   }
 
+  void writeMetrics(int exitCode) {
+    try {
+      metrics.write(exitCode);
+    } catch (IOException exception) {
+      LOGGER.log(Level.WARNING, "Cannot write metrics: {0}", exception.getMessage());
+    }
+  }
+
+  // the rejects writer is reached through its field, here it is only closed
+  @SuppressWarnings("try")
+  private void estimate() {
+    try (var results = openResultWriter(); var ignored = openRejectWriter()) {
+      if (nonNull(sweepRanges)) {
+        sweepCosts(results, ForkJoinPool.commonPool());
+      } else if (nonNull(aggregate)) {
+        results.totals(aggregateTrips(aggregate.toPath(), ForkJoinPool.commonPool()));
+      } else if (nonNull(follow)) {
+        followTrips(results, Clock.systemDefaultZone());
+      } else if (nonNull(route)) {
+        var legCount = new Route(route, routeRounding).estimate(costs, results);
+
+        metrics.records(legCount);
+        LOGGER.log(Level.DEBUG, "Route legs estimated: {0}", legCount);
+      } else if (isBatch()) {
+        try (var batchInput = openBatchInput()) {
+          estimateBatch(batchInput, results);
+        }
+      } else {
+        results.estimate(distance, estimateRideCost());
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private void estimateFiles() {
+    var multiFileBatch = new MultiFileBatch(new RecordBatch(costs, null, spec.commandLine()), format, openFiles,
+        isNull(outputFolder) ? null : outputFolder.toPath());
+    MultiFileBatch.Summary summary;
+
+    try {
+      var files = MultiFileBatch.match(inputs);
+
+      if (files.isEmpty()) {
+        throw new NoInputFilesException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("inputs.no-files"), inputs));
+      }
+      summary = multiFileBatch.estimate(files);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    summary.report(spec.commandLine().getOut(), spec.commandLine().getErr());
+    recordEstimated(summary.records());
+    outcome = summary.outcome();
+  }
+
+  private void recordEstimated(long records) {
+    metrics.records(records);
+    estimatedRecords = records;
+  }
+
+  private RejectWriter openRejectWriter() throws IOException {
+    if (isNull(rejects)) {
+      rejectWriter = null;
+    } else if (nonNull(follow)) {
+      rejectWriter = RejectWriter.append(rejects.toPath());
+    } else {
+      rejectWriter = RejectWriter.open(rejects.toPath());
+    }
+
+    return rejectWriter;
+  }
+
+  private ResultWriter openResultWriter() throws IOException {
+    if (nonNull(output)) {
+      return ResultWriter.of(FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING), format);
+    }
+    if (nonNull(standardOutput)) {
+      spec.commandLine().getOut().flush();
+      return ResultWriter.standardOutput(standardOutput, format);
+    }
+
+    return ResultWriter.of(spec.commandLine().getOut(), format);
+  }
+
   @VisibleForTesting
   @NotNull BigDecimal estimateRideCost() {
-    BigDecimal cost;
+    var cost = estimateRideCost(distance);
 
     if (isNull(volumePerDistance)) {
-      cost = RideCostEstimator.distanceByVolumeEstimator()
-          .estimateCostOfRide(distancePerVolume, price, distance, rounding);
       LOGGER.log(Level.DEBUG, "Estimated cost for distance per volume is " + cost);
     } else {
-      cost = RideCostEstimator.volumeByDistanceEstimator()
-          .estimateCostOfRide(volumePerDistance, price, distance, rounding);
       LOGGER.log(Level.DEBUG, "Estimated cost for volume per distance is " + cost);
     }
 
     return cost;
   }
 
+  @VisibleForTesting
+  @NotNull BigDecimal estimateRideCost(@NotNull BigDecimal distance) {
+    return costs.cost(distance);
+  }
+
+  private RideRequest.Ratio getRatioKind() {
+    return isNull(volumePerDistance) ? RideRequest.Ratio.DISTANCE_PER_VOLUME : RideRequest.Ratio.VOLUME_PER_DISTANCE;
+  }
+
+  private BigDecimal getRatio() {
+    return isNull(volumePerDistance) ? distancePerVolume : volumePerDistance;
+  }
+
+  private String getRatioName() {
+    return getRatioKind().optionName();
+  }
+
+  @VisibleForTesting
+  void estimateBatch(BufferedReader batchInput, Writer output) throws IOException {
+    try (var results = ResultWriter.of(output, ResultWriter.Format.PLAIN)) {
+      estimateBatch(batchInput, results);
+    }
+  }
+
+  private void estimateBatch(BufferedReader batchInput, ResultWriter results) throws IOException {
+    var recordCount = new RecordBatch(costs, rejectWriter, spec.commandLine()).estimate(batchInput, results);
+
+    recordEstimated(recordCount);
+    LOGGER.log(Level.DEBUG, "Batch records estimated: {0}", recordCount);
+  }
+
+  @VisibleForTesting
+  @NotNull TripAggregator.Totals aggregateTrips(Path tripLog, ForkJoinPool pool) throws IOException {
+    var totals = new TripAggregation(costs, conditions, rejectWriter, spec.commandLine()).aggregate(tripLog, pool);
+
+    recordEstimated(totals.trips());
+
+    return totals;
+  }
+
+  // runs until the thread is interrupted
+  @VisibleForTesting
+  void followTrips(ResultWriter results, Clock clock) throws IOException {
+    var follower = new TripFollower(follow.toPath(), getCheckpointPath(), costs::tripCost,
+        isNull(rejectWriter) ? null : this::followReject, clock);
+
+    follower.restore();
+    follower.follow(results, ForkJoinPool.commonPool());
+  }
+
+  // the checkpoint moves past a rejected line, so it must be on the disk before
+  private void followReject(TripAggregator.Reject reject) throws IOException {
+    rejectWriter.reject(reject);
+    rejectWriter.flush();
+  }
+
+  private Path getCheckpointPath() {
+    if (nonNull(checkpoint)) {
+      return checkpoint.toPath();
+    }
+
+    return Path.of(follow.getPath() + ".checkpoint");
+  }
+
+  private void sweepCosts(ResultWriter results, ForkJoinPool pool) throws IOException {
+    var batchEvent = new RideCostEvents.Batch();
+    var costSweep = new CostSweep(sweepRanges.getOrDefault(CostSweep.PRICE, CostSweep.Range.single(price)),
+        sweepRanges.getOrDefault(getRatioName(), CostSweep.Range.single(getRatio())),
+        sweepRanges.getOrDefault(CostSweep.DISTANCE, CostSweep.Range.single(distance)), costs::rowCost);
+
+    batchEvent.begin();
+
+    var cells = costSweep.sweep(pool, results);
+
+    costs.commit(batchEvent, cells);
+    metrics.records(cells);
+    LOGGER.log(Level.DEBUG, "Cells swept: {0}", cells);
+  }
+
   @VisibleForTesting
   void resolveRounding() {
+    var event = new RideCostEvents.RoundingResolution();
+
+    event.begin();
     if (zeroDigits) {
       rounding = Rounding.WHOLE;
     } else if (twoDigits) {
@@ -179,52 +659,295 @@ public class RideCost implements Runnable {
     } else {
       LOGGER.log(Level.DEBUG, "Exact value is used");
     }
+    if (event.shouldCommit()) {
+      event.rounding = RideCosts.roundingName(rounding);
+      event.commit();
+    }
+  }
+
+  @VisibleForTesting
+  void resolveEngine() {
+    if (fixedPoint) {
+      unitCost = null;
+      LOGGER.log(Level.DEBUG, "Fixed-point engine is used");
+    } else if (nonNull(savedUnitCost) && savedUnitCost.isBasedOn(getRatioKind(), getRatio(), price)) {
+      // the saved coefficient is stale if the ratio or price from the command line or a profile differs
+      unitCost = savedUnitCost;
+      LOGGER.log(Level.DEBUG, "Saved unit cost is used: {0}", unitCost.coefficient());
+    } else {
+      unitCost = null;
+    }
+    costs = new RideCosts(getRatioKind(), getRatio(), price, rounding, fixedPoint, cache, unitCost);
+  }
+
+  private void applyProfile() {
+    if (isNull(profile)) {
+      return;
+    }
+
+    Profile storedProfile;
+
+    try {
+      storedProfile = ProfileStore.open(getProfileStoreFile()).find(profile);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    if (isNull(storedProfile)) {
+      if (!saveState) {
+        throw new UnknownProfileException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("profile.unknown"), profile));
+      }
+      LOGGER.log(Level.DEBUG, "New profile: {0}", profile);
+      return;
+    }
+    LOGGER.log(Level.DEBUG, "Restore profile: {0}", profile);
+
+    var mileageMatched = isMatched("--miles-per-gallon", "--litres-per-ton-kilometres");
+
+    // options from the command line take precedence over the profile
+    restoreProfile(new Profile(mileageMatched ? null : storedProfile.distancePerVolume(),
+        mileageMatched ? null : storedProfile.volumePerDistance(),
+        isMatched("--price") ? null : storedProfile.price(), storedProfile.rounding()));
+  }
+
+  private void resolveMileage() {
+    if (isNull(distancePerVolume) || isNull(volumePerDistance)) {
+      return;
+    }
+
+    var distancePerVolumeMatched = isMatched("--miles-per-gallon");
+    var volumePerDistanceMatched = isMatched("--litres-per-ton-kilometres");
+
+    // a saved ratio gives way to the other one from the command line
+    if (distancePerVolumeMatched && !volumePerDistanceMatched) {
+      volumePerDistance = null;
+      LOGGER.log(Level.DEBUG, "Saved volume per distance is overridden");
+    } else if (volumePerDistanceMatched && !distancePerVolumeMatched) {
+      distancePerVolume = null;
+      LOGGER.log(Level.DEBUG, "Saved distance per volume is overridden");
+    }
+  }
+
+  // a single leg without overrides is the plain distance, so its output doesn't change
+  private void resolveLegs() {
+    if (isNull(legs) || legs.isEmpty()) {
+      route = null;
+      return;
+    }
+    var parsedLegs = new ArrayList<Leg>(legs.size());
+
+    for (var text : legs) {
+      var leg = Leg.parse(text);
+
+      if (isNull(leg)) {
+        throw new InvalidLegException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("leg.invalid"), text));
+      }
+      parsedLegs.add(leg);
+    }
+    if (1 == parsedLegs.size() && !parsedLegs.get(0).hasOverrides()) {
+      distance = parsedLegs.get(0).distance();
+      route = null;
+    } else {
+      distance = null;
+      route = parsedLegs;
+    }
+  }
+
+  // a swept value takes the first value of its range, so the usual validation applies
+  private void resolveSweep() {
+    if (isNull(sweep) || sweep.isEmpty()) {
+      sweepRanges = null;
+      return;
+    }
+    if (isBatch()) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.sweep-and-batch"));
+    }
+    if (nonNull(route)) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.sweep-and-route"));
+    }
+    if (sweep.containsKey(DISTANCE_PER_VOLUME) && sweep.containsKey(VOLUME_PER_DISTANCE)) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.two-mileages-simultaneously"));
+    }
+    sweepRanges = new HashMap<>();
+    sweep.forEach((dimension, value) -> {
+      var range = CostSweep.Range.parse(value);
+
+      if (isNull(range)) {
+        throw new InvalidRangeException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("sweep.invalid-range"), dimension, value));
+      }
+      switch (dimension) {
+        case CostSweep.PRICE -> {
+          checkNotSwept(dimension, isMatched("--price"));
+          price = range.from();
+        }
+        case DISTANCE_PER_VOLUME -> {
+          checkNotSwept(dimension, isMatched("--miles-per-gallon", "--litres-per-ton-kilometres"));
+          distancePerVolume = range.from();
+          volumePerDistance = null;
+        }
+        case VOLUME_PER_DISTANCE -> {
+          checkNotSwept(dimension, isMatched("--miles-per-gallon", "--litres-per-ton-kilometres"));
+          distancePerVolume = null;
+          volumePerDistance = range.from();
+        }
+        case CostSweep.DISTANCE -> {
+          checkNotSwept(dimension, nonNull(distance));
+          distance = range.from();
+        }
+        default -> throw new InvalidRangeException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("sweep.unknown-dimension"), dimension));
+      }
+      sweepRanges.put(dimension, range);
+    });
+  }
+
+  private void resolveConditions() {
+    if (isNull(where) || where.isEmpty()) {
+      conditions = List.of();
+      return;
+    }
+    if (isNull(aggregate)) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.where-without-columns"));
+    }
+
+    var parsedConditions = new ArrayList<DistanceCondition>(where.size());
+
+    for (var text : where) {
+      var condition = DistanceCondition.parse(text);
+
+      if (isNull(condition)) {
+        throw new InvalidConditionException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("where.invalid-condition"), text));
+      }
+      parsedConditions.add(condition);
+    }
+    conditions = List.copyOf(parsedConditions);
+  }
+
+  private void checkNotSwept(String dimension, boolean given) {
+    if (given) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          String.format(getCommandLineBundle().getString("exclusive.sweep-and-value"), dimension));
+    }
+  }
+
+  private boolean isMatched(String... optionNames) {
+    var parseResult = spec.commandLine().getParseResult();
+
+    return nonNull(parseResult) && Stream.of(optionNames).anyMatch(parseResult::hasMatchedOption);
+  }
+
+  private void runDaemonOrClient() {
+    if (served) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.daemon-request"));
+    }
+    if (daemon) {
+      try {
+        var sharedCache = (cacheSize > 0) ? new CostCache(cacheSize) : null;
+
+        new RideCostDaemon(getSocketPath(), daemonThreads, idleTimeout, sharedCache).serve();
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    } else {
+      remoteExitCode = RideCostClient.forward(getSocketPath(), spec.commandLine().getParseResult().originalArgs()
+          .toArray(String[]::new), spec.commandLine().getOut(), spec.commandLine().getErr());
+    }
+  }
+
+  private boolean isBatch() {
+    return batch || nonNull(input) || nonNull(aggregate) || nonNull(follow) || nonNull(inputs);
+  }
+
+  private BufferedReader openBatchInput() throws IOException {
+    if (isNull(input) || "-".equals(input.getPath())) {
+      return new BufferedReader(new InputStreamReader(System.in));
+    }
+
+    return Files.newBufferedReader(input.toPath());
   }
 
   private void loadState() throws IOException {
-    var stateFile = getStateFile();
+    loadState(getStateFile());
+  }
 
+  @VisibleForTesting
+  void loadState(File stateFile) throws IOException {
     if (!stateFile.exists()) {
       return;
     }
 
+    var event = new RideCostEvents.StateLoading();
     var stateProperties = new Properties();
 
-    stateProperties.load(new FileReader(stateFile));
-    restoreMileage(stateProperties);
-    restorePrice(stateProperties);
-    restoreRounding(stateProperties);
+    event.begin();
+    try (var stateReader = new FileReader(stateFile)) {
+      stateProperties.load(stateReader);
+    }
+    restoreState(stateProperties);
+    if (event.shouldCommit()) {
+      event.stateFile = stateFile.getPath();
+      event.commit();
+    }
+  }
+
+  private void restoreState(Properties stateProperties) {
+    restoreProfile(readProfile(stateProperties));
+    savedUnitCost = UnitCost.read(stateProperties);
   }
 
-  private void restoreMileage(Properties stateProperties) {
+  private Profile readProfile(Properties stateProperties) {
+    BigDecimal storedDistancePerVolume = null;
+    BigDecimal storedVolumePerDistance = null;
+    BigDecimal storedPrice = null;
+    Rounding storedRounding = null;
+
     if (stateProperties.containsKey("distancePerVolume")) {
-      distancePerVolume = new BigDecimal(stateProperties.getProperty("distancePerVolume"));
-      LOGGER.log(Level.DEBUG, "Restore distance per volume: {0}", distancePerVolume);
+      storedDistancePerVolume = new BigDecimal(stateProperties.getProperty("distancePerVolume"));
     } else if (stateProperties.containsKey("volumePerDistance")) {
-      volumePerDistance = new BigDecimal(stateProperties.getProperty("volumePerDistance"));
-      LOGGER.log(Level.DEBUG, "Restore volume per distance: {0}", volumePerDistance);
+      storedVolumePerDistance = new BigDecimal(stateProperties.getProperty("volumePerDistance"));
     }
-  }
-
-  private void restorePrice(Properties stateProperties) {
     if (stateProperties.containsKey("price")) {
-      price = new BigDecimal(stateProperties.getProperty("price"));
-      LOGGER.log(Level.DEBUG, "Restore price: {0}", price);
+      storedPrice = new BigDecimal(stateProperties.getProperty("price"));
     }
-  }
-
-  private void restoreRounding(Properties stateProperties) {
     try {
-      rounding = Rounding.valueOf(Integer.parseInt(stateProperties.getProperty("roundTo", "*")));
-      if (isNull(rounding)) {
+      storedRounding = Rounding.valueOf(Integer.parseInt(stateProperties.getProperty("roundTo", "*")));
+      if (isNull(storedRounding)) {
         LOGGER.log(Level.DEBUG, "Inappropriate rounding: {0}",
             Integer.parseInt(stateProperties.getProperty("roundTo")));
-      } else {
-        LOGGER.log(Level.DEBUG, rounding.roundingDescription + " is restored");
       }
     } catch (NumberFormatException exception) {
       LOGGER.log(Level.DEBUG, "Rounding isn't saved");
     }
+
+    return new Profile(storedDistancePerVolume, storedVolumePerDistance, storedPrice, storedRounding);
+  }
+
+  private void restoreProfile(Profile storedProfile) {
+    if (nonNull(storedProfile.distancePerVolume())) {
+      distancePerVolume = storedProfile.distancePerVolume();
+      volumePerDistance = null;
+      LOGGER.log(Level.DEBUG, "Restore distance per volume: {0}", distancePerVolume);
+    } else if (nonNull(storedProfile.volumePerDistance())) {
+      distancePerVolume = null;
+      volumePerDistance = storedProfile.volumePerDistance();
+      LOGGER.log(Level.DEBUG, "Restore volume per distance: {0}", volumePerDistance);
+    }
+    if (nonNull(storedProfile.price())) {
+      price = storedProfile.price();
+      LOGGER.log(Level.DEBUG, "Restore price: {0}", price);
+    }
+    rounding = storedProfile.rounding();
+    if (nonNull(rounding)) {
+      LOGGER.log(Level.DEBUG, rounding.roundingDescription + " is restored");
+    }
   }
 
   private void saveMileage(Properties stateProperties) {
@@ -249,11 +972,44 @@ public class RideCost implements Runnable {
     }
   }
 
+  private void saveUnitCost(Properties stateProperties) {
+    var savingUnitCost = unitCost;
+
+    if (isNull(savingUnitCost)) {
+      savingUnitCost = UnitCost.derive(getRatioKind(), getRatio(), price);
+    }
+    if (nonNull(savingUnitCost)) {
+      savingUnitCost.write(stateProperties);
+      LOGGER.log(Level.DEBUG, "Save unit cost: {0}", savingUnitCost.coefficient());
+    }
+  }
+
   private void saveState() throws IOException {
-    var stateFile = getStateFile();
+    var event = new RideCostEvents.StateSaving();
+    String target;
+
+    event.begin();
+    if (nonNull(profile)) {
+      target = getProfileStoreFile() + "#" + profile;
+      ProfileStore.save(getProfileStoreFile(), profile,
+          new Profile(distancePerVolume, volumePerDistance, price, rounding));
+      LOGGER.log(Level.DEBUG, "Save profile: {0}", profile);
+    } else {
+      var stateFile = getStateFile();
 
-    if (stateFile.createNewFile()) {
-      LOGGER.log(Level.DEBUG, "New state file created: {0}", stateFile.getCanonicalFile());
+      target = stateFile.getPath();
+      saveState(stateFile);
+    }
+    if (event.shouldCommit()) {
+      event.target = target;
+      event.commit();
+    }
+  }
+
+  @VisibleForTesting
+  void saveState(File stateFile) throws IOException {
+    if (!stateFile.exists()) {
+      LOGGER.log(Level.DEBUG, "New state file: {0}", stateFile.getCanonicalFile());
     } else if (stateFile.canWrite()) {
       LOGGER.log(Level.DEBUG, "Re-use state file: {0}", stateFile.getCanonicalFile());
     } else {
@@ -266,31 +1022,114 @@ public class RideCost implements Runnable {
     saveMileage(stateProperties);
     savePrice(stateProperties);
     saveRounding(stateProperties);
-    stateProperties.store(new FileWriter(stateFile), COMMAND_NAME + ' ' + VERSION);
+    saveUnitCost(stateProperties);
+    // readers never lock: they see either the previous or the new file, never a partial one
+    AtomicFiles.write(stateFile.toPath(), (output) -> stateProperties.store(
+        new OutputStreamWriter(output, Charset.defaultCharset()), COMMAND_NAME + ' ' + VERSION));
   }
 
-  private void validatePositiveDecimals() {
-    Stream.of(distance, price, distancePerVolume, volumePerDistance).filter(Objects::nonNull).forEach((value) -> {
-      if (value.compareTo(BigDecimal.ZERO) <= 0) {
-        throw new NonPositiveDecimalException(spec.commandLine(),
-            String.format(COMMAND_LINE_BUNDLE.getString("value.non-positive"), value));
+  // no streams or iterators: a route of thousands of legs is checked without allocations
+  @VisibleForTesting
+  void validatePositiveDecimals() {
+    checkPositive(distance);
+    checkPositive(price);
+    checkPositive(distancePerVolume);
+    checkPositive(volumePerDistance);
+    if (nonNull(route)) {
+      for (int i = 0; i < route.size(); i++) {
+        var leg = route.get(i);
+
+        checkPositive(leg.distance());
+        checkPositive(leg.ratio());
+        checkPositive(leg.price());
       }
-    });
+    }
+  }
+
+  private void checkPositive(BigDecimal value) {
+    if (nonNull(value) && value.signum() <= 0) {
+      throw new NonPositiveDecimalException(spec.commandLine(),
+          String.format(getCommandLineBundle().getString("value.non-positive"), value));
+    }
   }
 
   private void validateOptions() {
     if (nonNull(distancePerVolume) && nonNull(volumePerDistance)) {
       throw new ExclusiveOptionException(spec.commandLine(),
-          COMMAND_LINE_BUNDLE.getString("exclusive.two-mileages-simultaneously"));
+          getCommandLineBundle().getString("exclusive.two-mileages-simultaneously"));
     } else if (isNull(distancePerVolume) && isNull(volumePerDistance)) {
-      throw new RequiredOptionException(spec.commandLine(), COMMAND_LINE_BUNDLE.getString("required.any-mileage"));
+      throw new RequiredOptionException(spec.commandLine(), getCommandLineBundle().getString("required.any-mileage"));
     }
     if (isNull(price)) {
-      throw new RequiredOptionException(spec.commandLine(), COMMAND_LINE_BUNDLE.getString("required.price"));
+      throw new RequiredOptionException(spec.commandLine(), getCommandLineBundle().getString("required.price"));
+    }
+    if (nonNull(aggregate) && (batch || nonNull(input))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.batch-and-aggregate"));
+    }
+    if (nonNull(inputs) && (batch || nonNull(input) || nonNull(aggregate) || nonNull(follow) || nonNull(rejects)
+        || nonNull(output))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.inputs-and-batch"));
+    }
+    if (nonNull(inputs) && openFiles < 1) {
+      throw new NonPositiveDecimalException(spec.commandLine(),
+          String.format(getCommandLineBundle().getString("value.non-positive"), openFiles));
+    }
+    if (roundTotal && isNull(route)) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.round-total-without-route"));
+    }
+    if (nonNull(rejects) && !(batch || nonNull(input) || nonNull(aggregate) || nonNull(follow))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.rejects-without-batch"));
+    }
+    if (nonNull(follow) && (batch || nonNull(input) || nonNull(aggregate))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.follow-and-batch"));
     }
-    if (isNull(distance)) {
-      throw new RequiredParameterException(spec.commandLine(), COMMAND_LINE_BUNDLE.getString("required.distance"));
+    if (nonNull(follow) && served) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.daemon-follow"));
+    }
+    if (isBatch() && (nonNull(distance) || nonNull(route))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.distance-and-batch"));
+    } else if (!isBatch() && isNull(distance) && isNull(route)) {
+      throw new RequiredParameterException(spec.commandLine(), getCommandLineBundle().getString("required.distance"));
     }
   }
 
+  // the daemon has neither the standard input nor the working folder of the client
+  private void validateServedOptions() {
+    if (batch && (isNull(input) || "-".equals(input.getPath()))) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          getCommandLineBundle().getString("exclusive.daemon-stdin"));
+    }
+    if (nonNull(inputs) && !Path.of(inputs).isAbsolute()) {
+      throw new ExclusiveOptionException(spec.commandLine(),
+          String.format(getCommandLineBundle().getString("exclusive.daemon-relative-path"), inputs));
+    }
+    for (var file : new File[]{input, aggregate, rejects, output, outputFolder, metricsFile}) {
+      if (nonNull(file) && !file.isAbsolute()) {
+        throw new ExclusiveOptionException(spec.commandLine(),
+            String.format(getCommandLineBundle().getString("exclusive.daemon-relative-path"), file));
+      }
+    }
+  }
+
+  // a plain estimate shows no messages, so the precompiled bundle is loaded on the first use only
+  private static class CommandLineBundleHolder {
+
+    private static final ResourceBundle BUNDLE;
+
+    static {
+      var started = System.nanoTime();
+
+      BUNDLE = loadCommandLineBundle(Locale.getDefault());
+      bundleNanos = System.nanoTime() - started;
+    }
+
+  }
+
 }
@@ -0,0 +1,76 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import picocli.CommandLine.ExitCode;
+
+final class RideCostClient {
+
+  private static final Logger LOGGER = System.getLogger(RideCostClient.class.getName());
+  private static final String REMOTE_OPTION = "--remote";
+
+  private RideCostClient() {
+  }
+
+  static boolean isRemote(String[] args) {
+    return Arrays.asList(args).contains(REMOTE_OPTION);
+  }
+
+  static int forward(Path socketPath, String[] args) {
+    var out = new PrintWriter(System.out, true);
+    var err = new PrintWriter(System.err, true);
+
+    return forward(socketPath, args, out, err);
+  }
+
+  static int forward(Path socketPath, String[] args, PrintWriter out, PrintWriter err) {
+    var arguments = Arrays.stream(args).filter(argument -> !REMOTE_OPTION.equals(argument)).toArray(String[]::new);
+
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+      DaemonProtocol.writeRequest(
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))), arguments);
+
+      return DaemonProtocol.readResponse(
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), out, err);
+    } catch (IOException exception) {
+      LOGGER.log(Level.DEBUG, exception.getMessage());
+      err.println(String.format(RideCost.getCommandLineBundle().getString("daemon.unavailable"), socketPath));
+      err.flush();
+
+      return ExitCode.SOFTWARE;
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import picocli.CommandLine.ExitCode;
+
+class RideCostDaemon {
+
+  private static final Logger LOGGER = System.getLogger(RideCostDaemon.class.getName());
+
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final CostCache cache;
+  private final long idleTimeoutNanos;
+  private final AtomicLong lastActivity = new AtomicLong();
+  private final Path socketPath;
+  private final int threads;
+
+  private Properties state;
+  private long stateModified;
+  private long stateSize;
+
+  RideCostDaemon(Path socketPath, int threads, long idleTimeoutSeconds, @Nullable CostCache cache) {
+    this.cache = cache;
+    this.socketPath = socketPath;
+    this.threads = threads;
+    this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+  }
+
+  void serve() throws IOException {
+    removeStaleSocket();
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      var boundPath = socketPath.resolveSibling(socketPath.getFileName() + ".new");
+
+      // bind and listen aside, then publish the ready socket at once
+      Files.deleteIfExists(boundPath);
+      server.bind(UnixDomainSocketAddress.of(boundPath));
+      Files.setPosixFilePermissions(boundPath, PosixFilePermissions.fromString("rw-------"));
+      Files.move(boundPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+      lastActivity.set(System.nanoTime());
+      LOGGER.log(Level.INFO, "Listening on {0}", socketPath);
+
+      var executor = Executors.newFixedThreadPool(threads);
+      var watchdog = Executors.newSingleThreadScheduledExecutor();
+      var watchdogPeriod = Math.max(1, Math.min(idleTimeoutNanos / 4, TimeUnit.SECONDS.toNanos(1)));
+
+      watchdog.scheduleWithFixedDelay(() -> closeIfIdle(server), watchdogPeriod, watchdogPeriod,
+          TimeUnit.NANOSECONDS);
+      try {
+        acceptRequests(server, executor);
+      } finally {
+        watchdog.shutdownNow();
+        executor.shutdown();
+        awaitTermination(executor);
+        Files.deleteIfExists(socketPath);
+        LOGGER.log(Level.INFO, "Stopped listening on {0}", socketPath);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  @NotNull
+  synchronized Properties currentState() throws IOException {
+    var stateFile = RideCost.getStateFile();
+
+    if (!stateFile.exists()) {
+      state = new Properties();
+      stateModified = 0;
+      stateSize = 0;
+    } else if (isNull(state) || stateFile.lastModified() != stateModified || stateFile.length() != stateSize) {
+      state = reloadState(stateFile);
+    }
+
+    return state;
+  }
+
+  private void acceptRequests(ServerSocketChannel server, Executor executor)
+      throws IOException {
+    while (server.isOpen()) {
+      SocketChannel channel;
+
+      try {
+        channel = server.accept();
+      } catch (AsynchronousCloseException exception) {
+        break;
+      }
+      activeRequests.incrementAndGet();
+      lastActivity.set(System.nanoTime());
+      executor.execute(() -> handle(channel));
+    }
+  }
+
+  private void awaitTermination(ExecutorService executor) {
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException exception) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void closeIfIdle(ServerSocketChannel server) {
+    if (activeRequests.get() == 0 && System.nanoTime() - lastActivity.get() >= idleTimeoutNanos) {
+      LOGGER.log(Level.INFO, "Idle timeout is reached");
+      try {
+        server.close();
+      } catch (IOException exception) {
+        LOGGER.log(Level.WARNING, exception.getMessage());
+      }
+    }
+  }
+
+  private void handle(SocketChannel channel) {
+    try (channel) {
+      var output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      int exitCode;
+
+      try {
+        exitCode = serve(DaemonProtocol.readRequest(
+            new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))), output);
+      } catch (IOException | RuntimeException exception) {
+        // a bad state file or a broken request must not leave the client without an answer
+        LOGGER.log(Level.WARNING, exception.toString());
+        DaemonProtocol.writeErrors(output,
+            String.format(RideCost.getCommandLineBundle().getString("daemon.failure"), exception) + "\n");
+        exitCode = ExitCode.SOFTWARE;
+      }
+      DaemonProtocol.writeExit(output, exitCode);
+    } catch (IOException exception) {
+      LOGGER.log(Level.WARNING, exception.getMessage());
+    } finally {
+      lastActivity.set(System.nanoTime());
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  // the output goes to the client while the command runs
+  private int serve(String[] arguments, DataOutputStream output) throws IOException {
+    var rideCost = new RideCost(currentState());
+    var commandLine = RideCost.commandLine(rideCost);
+
+    rideCost.cache = cache;
+    rideCost.served = true;
+    commandLine.setOut(new PrintWriter(new BufferedWriter(DaemonProtocol.outputWriter(output))));
+    commandLine.setErr(new PrintWriter(new BufferedWriter(DaemonProtocol.errorsWriter(output))));
+
+    var exitCode = commandLine.execute(arguments);
+
+    rideCost.writeMetrics(exitCode);
+    commandLine.getOut().close();
+    commandLine.getErr().close();
+
+    return exitCode;
+  }
+
+  private Properties reloadState(File stateFile) throws IOException {
+    stateModified = stateFile.lastModified();
+    stateSize = stateFile.length();
+    LOGGER.log(Level.DEBUG, "Reload state file: {0}", stateFile);
+
+    var stateProperties = new Properties();
+
+    try (var stateReader = new FileReader(stateFile)) {
+      stateProperties.load(stateReader);
+    }
+
+    return stateProperties;
+  }
+
+  private boolean isListening() {
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+      return true;
+    } catch (IOException exception) {
+      return false;
+    }
+  }
+
+  private void removeStaleSocket() throws IOException {
+    if (Files.notExists(socketPath)) {
+      return;
+    }
+    if (isListening()) {
+      throw new IOException("Another daemon is listening on " + socketPath);
+    }
+    LOGGER.log(Level.DEBUG, "Remove stale socket: {0}", socketPath);
+    Files.delete(socketPath);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+final class RideCostEvents {
+
+  private static final String CATEGORY = "Ride Cost";
+
+  private RideCostEvents() {
+  }
+
+  @Category(CATEGORY)
+  @Label("State Loading")
+  @Name("io.gitlab.vitalijr2.ridecost.StateLoading")
+  @StackTrace(false)
+  static final class StateLoading extends Event {
+
+    @Label("State File")
+    String stateFile;
+
+  }
+
+  @Category(CATEGORY)
+  @Label("Validation")
+  @Name("io.gitlab.vitalijr2.ridecost.Validation")
+  @StackTrace(false)
+  static final class Validation extends Event {
+
+    @Label("Estimator")
+    String estimator;
+
+  }
+
+  @Category(CATEGORY)
+  @Label("Rounding Resolution")
+  @Name("io.gitlab.vitalijr2.ridecost.RoundingResolution")
+  @StackTrace(false)
+  static final class RoundingResolution extends Event {
+
+    @Label("Rounding")
+    String rounding;
+
+  }
+
+  @Category(CATEGORY)
+  @Description("Estimation of a single distance")
+  @Label("Estimation")
+  @Name("io.gitlab.vitalijr2.ridecost.Estimation")
+  @StackTrace(false)
+  static final class Estimation extends Event {
+
+    @Label("Estimator")
+    String estimator;
+
+    @Label("Rounding")
+    String rounding;
+
+  }
+
+  @Category(CATEGORY)
+  @Description("Batch or aggregation run")
+  @Label("Batch")
+  @Name("io.gitlab.vitalijr2.ridecost.Batch")
+  @StackTrace(false)
+  static final class Batch extends Event {
+
+    @Label("Estimator")
+    String estimator;
+
+    @Label("Rounding")
+    String rounding;
+
+    @Label("Records")
+    long records;
+
+  }
+
+  @Category(CATEGORY)
+  @Label("State Saving")
+  @Name("io.gitlab.vitalijr2.ridecost.StateSaving")
+  @StackTrace(false)
+  static final class StateSaving extends Event {
+
+    @Label("Target")
+    String target;
+
+  }
+
+}
@@ -0,0 +1,170 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import io.gitlab.vitalijr2.ridecost.api.RideCostService;
+import io.gitlab.vitalijr2.ridecost.api.RideRequest;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The costs of one run: the ratio, price and rounding resolved from the options, estimated by the service.
+// It is immutable and built before the estimation, so the workers of a batch share it.
+final class RideCosts {
+
+  private static final String FIXED_POINT = "fixed-point";
+  private static final String UNIT_COST = "unit-cost";
+
+  private final String estimatorName;
+  private final BigDecimal price;
+  private final BigDecimal ratio;
+  private final RideRequest.Ratio ratioKind;
+  private final Rounding rounding;
+  private final RideCostService service;
+  private final boolean unscaled;
+
+  // the unit cost must be based on the ratio and price, the fixed-point engine doesn't need it
+  RideCosts(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio, @NotNull BigDecimal price,
+      @Nullable Rounding rounding, boolean fixedPoint, @Nullable CostCache cache, @Nullable UnitCost unitCost) {
+    var exactService = isNull(cache) ? RideCostService.create() : RideCostService.create().withCache(cache);
+
+    if (fixedPoint) {
+      service = exactService.withFixedPoint();
+      estimatorName = FIXED_POINT;
+    } else if (nonNull(unitCost)) {
+      service = exactService.withUnitCost(ratio, price, unitCost.coefficient(), unitCost.roundingMode());
+      estimatorName = UNIT_COST;
+    } else {
+      service = exactService;
+      estimatorName = ratioKind.optionName();
+    }
+    this.ratioKind = ratioKind;
+    this.ratio = ratio;
+    this.price = price;
+    this.rounding = rounding;
+    unscaled = fixedPoint && isNull(cache);
+  }
+
+  @NotNull
+  static String roundingName(@Nullable Rounding rounding) {
+    return isNull(rounding) ? "EXACT" : rounding.name();
+  }
+
+  @NotNull
+  BigDecimal price() {
+    return price;
+  }
+
+  @NotNull
+  BigDecimal ratio() {
+    return ratio;
+  }
+
+  @NotNull
+  RideRequest.Ratio ratioKind() {
+    return ratioKind;
+  }
+
+  // a distance goes to the fixed-point engine as a long, without a decimal
+  boolean takesUnscaled() {
+    return unscaled;
+  }
+
+  @NotNull
+  BigDecimal cost(@NotNull BigDecimal distance) {
+    return cost(ratio, price, distance);
+  }
+
+  // a leg of the route may have its own ratio and price
+  @NotNull
+  BigDecimal cost(@NotNull BigDecimal legRatio, @NotNull BigDecimal legPrice, @NotNull BigDecimal distance) {
+    var event = new RideCostEvents.Estimation();
+
+    event.begin();
+
+    var cost = service.cost(ratioKind, legRatio, legPrice, distance, rounding);
+
+    commit(event);
+
+    return cost;
+  }
+
+  @NotNull
+  BigDecimal cost(long unscaledDistance, int distanceScale) {
+    var event = new RideCostEvents.Estimation();
+
+    event.begin();
+
+    var cost = service.cost(ratioKind, ratio, price, unscaledDistance, distanceScale, rounding);
+
+    commit(event);
+
+    return cost;
+  }
+
+  @NotNull
+  BigDecimal tripCost(@NotNull MappedTripReader.Trip trip) {
+    if (trip.isFixedPoint()) {
+      return cost(trip.unscaled(), trip.scale());
+    }
+
+    return cost(trip.distance());
+  }
+
+  // every row of the sweep has its own price and ratio
+  @NotNull
+  CostSweep.DistanceCost rowCost(@NotNull BigDecimal rowPrice, @NotNull BigDecimal rowRatio) {
+    return service.costOfDistance(ratioKind, rowRatio, rowPrice, rounding)::apply;
+  }
+
+  // null if the columns are estimated a trip at a time
+  @Nullable
+  ColumnarTripAggregator.FixedPointCosts columnarCosts() {
+    if (service.isColumnar(ratioKind, ratio, price, rounding)) {
+      return new ColumnarTripAggregator.FixedPointCosts(ratio, price, rounding);
+    }
+
+    return null;
+  }
+
+  // the fields are filled only for a recorded event, so a disabled event costs almost nothing
+  void commit(@NotNull RideCostEvents.Batch event, long records) {
+    if (event.shouldCommit()) {
+      event.estimator = estimatorName;
+      event.rounding = roundingName(rounding);
+      event.records = records;
+      event.commit();
+    }
+  }
+
+  private void commit(RideCostEvents.Estimation event) {
+    if (event.shouldCommit()) {
+      event.estimator = estimatorName;
+      event.rounding = roundingName(rounding);
+      event.commit();
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The legs of a route in one pass: every leg is written as soon as it is estimated, then their total.
+// With the total rounding the legs are exact, only their sum is rounded.
+final class Route {
+
+  private final List<Leg> legs;
+  private final Rounding totalRounding;
+
+  Route(@NotNull List<Leg> legs, @Nullable Rounding totalRounding) {
+    this.legs = legs;
+    this.totalRounding = totalRounding;
+  }
+
+  // the same rounding as a leg
+  private static BigDecimal roundTotal(BigDecimal total, Rounding rounding) {
+    return total.setScale(rounding.decimalPlaces, FixedPointEstimator.ROUNDING_MODE);
+  }
+
+  // returns the number of legs
+  long estimate(@NotNull RideCosts costs, @NotNull ResultWriter results) throws IOException {
+    var batchEvent = new RideCostEvents.Batch();
+    var total = BigDecimal.ZERO;
+
+    batchEvent.begin();
+    for (int i = 0; i < legs.size(); i++) {
+      var leg = legs.get(i);
+      var legRatio = isNull(leg.ratio()) ? costs.ratio() : leg.ratio();
+      var legPrice = isNull(leg.price()) ? costs.price() : leg.price();
+      var cost = costs.cost(legRatio, legPrice, leg.distance());
+
+      results.leg(leg.distance(), legRatio, legPrice, cost);
+      total = total.add(cost);
+    }
+    if (nonNull(totalRounding)) {
+      total = roundTotal(total, totalRounding);
+    }
+    results.route(total);
+    costs.commit(batchEvent, legs.size());
+
+    return legs.size();
+  }
+
+}
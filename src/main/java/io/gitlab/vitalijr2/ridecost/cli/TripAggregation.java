@@ -0,0 +1,98 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import picocli.CommandLine;
+
+// A trip log or a columnar trip file aggregated with the costs of the run. An invalid trip goes to the rejects file
+// or stops the aggregation, the conditions are only for the columns.
+final class TripAggregation {
+
+  private static final Logger LOGGER = System.getLogger(TripAggregation.class.getName());
+
+  private final CommandLine commandLine;
+  private final List<DistanceCondition> conditions;
+  private final RideCosts costs;
+  private final RejectWriter rejects;
+
+  TripAggregation(@NotNull RideCosts costs, @NotNull List<DistanceCondition> conditions,
+      @Nullable RejectWriter rejects, @NotNull CommandLine commandLine) {
+    this.costs = costs;
+    this.conditions = conditions;
+    this.rejects = rejects;
+    this.commandLine = commandLine;
+  }
+
+  @NotNull
+  TripAggregator.Totals aggregate(@NotNull Path tripLog, @NotNull ForkJoinPool pool) throws IOException {
+    var batchEvent = new RideCostEvents.Batch();
+    TripAggregator.Totals totals;
+
+    batchEvent.begin();
+    try {
+      if (ColumnarTripFile.isColumnar(tripLog)) {
+        totals = aggregateColumns(tripLog, pool);
+      } else if (!conditions.isEmpty()) {
+        throw new ExclusiveOptionException(commandLine,
+            RideCost.getCommandLineBundle().getString("exclusive.where-without-columns"));
+      } else {
+        totals = new TripAggregator(costs::tripCost, isNull(rejects) ? null : rejects::reject).aggregate(tripLog,
+            pool);
+      }
+    } catch (MappedTripReader.InvalidTripException exception) {
+      throw invalidTrip(exception);
+    }
+    costs.commit(batchEvent, totals.trips());
+    LOGGER.log(Level.DEBUG, "Trips aggregated: {0}", totals.trips());
+
+    return totals;
+  }
+
+  // the columns are estimated at once only by the fast path of the engine for volume per distance, the cache and
+  // no rounding need a trip at a time
+  private TripAggregator.Totals aggregateColumns(Path tripFile, ForkJoinPool pool) throws IOException {
+    try (var file = ColumnarTripFile.open(tripFile)) {
+      var aggregator = new ColumnarTripAggregator(costs::cost, conditions, costs.columnarCosts());
+      var totals = aggregator.aggregate(file, pool);
+
+      LOGGER.log(Level.DEBUG, "Blocks skipped: {0} of {1}", aggregator.skippedBlocks(), file.blocks().size());
+
+      return totals;
+    }
+  }
+
+  private InvalidRecordException invalidTrip(MappedTripReader.InvalidTripException exception) {
+    var bundle = RideCost.getCommandLineBundle();
+
+    return new InvalidRecordException(commandLine, String.format(bundle.getString("aggregate.invalid-record"),
+        exception.offset(), String.format(bundle.getString(exception.reasonKey()), exception.value())));
+  }
+
+}
@@ -0,0 +1,290 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+final class TripAggregator {
+
+  private static final int MIN_RANGE_SIZE = 64 << 10;
+  private static final int RANGES_PER_WORKER = 4;
+
+  private final TripCost tripCost;
+  private final long splitSize;
+  private final Rejects rejects;
+
+  TripAggregator(@NotNull TripCost tripCost) {
+    this(tripCost, 0, null);
+  }
+
+  // invalid trips are handed over in the order of the log as soon as the ranges before them are done
+  TripAggregator(@NotNull TripCost tripCost, @Nullable Rejects rejects) {
+    this(tripCost, 0, rejects);
+  }
+
+  @VisibleForTesting
+  TripAggregator(@NotNull TripCost tripCost, long splitSize, @Nullable Rejects rejects) {
+    this.tripCost = tripCost;
+    this.splitSize = splitSize;
+    this.rejects = rejects;
+  }
+
+  @NotNull
+  Totals aggregate(@NotNull Path tripLog, @NotNull ForkJoinPool pool) throws IOException {
+    try (var channel = FileChannel.open(tripLog, StandardOpenOption.READ)) {
+      return aggregate(channel, 0, channel.size(), 0, pool).totals();
+    }
+  }
+
+  // the range must start at a line, the follow mode reads only the lines appended since the last time
+  // and numbers the rejects after the lines it has read before
+  @NotNull
+  RangeTotals aggregate(@NotNull FileChannel channel, long start, long end, long linesBefore,
+      @NotNull ForkJoinPool pool) throws IOException {
+    // a few ranges per worker let the pool balance uneven ranges by stealing
+    var rangeSize = (0 < splitSize) ? splitSize
+        : Math.max(MIN_RANGE_SIZE, (end - start) / ((long) pool.getParallelism() * RANGES_PER_WORKER));
+
+    var bounds = split(channel, start, end, rangeSize);
+    var orderedRejects = isNull(rejects) ? null : new OrderedRejects(bounds.length - 1, linesBefore);
+    RangeResult result;
+
+    try {
+      result = pool.invoke(new RangeTask(channel, bounds, 0, bounds.length - 1, orderedRejects));
+    } catch (UncheckedIOException exception) {
+      throw exception.getCause();
+    }
+
+    return new RangeTotals(result.totals(), result.lines());
+  }
+
+  // ranges start at a line, so every line is read by exactly one task
+  private static long[] split(FileChannel channel, long start, long end, long rangeSize) throws IOException {
+    var bounds = new ArrayList<Long>();
+    var position = start;
+
+    bounds.add(start);
+    while (end - position > rangeSize) {
+      position = nextLine(channel, position + rangeSize, end);
+      if (position >= end) {
+        break;
+      }
+      bounds.add(position);
+    }
+    bounds.add(end);
+
+    return bounds.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private static long nextLine(FileChannel channel, long position, long end) throws IOException {
+    var block = ByteBuffer.allocate(4096);
+    // the line starts at the position if the previous byte ends a line
+    var current = position - 1;
+
+    while (current < end) {
+      block.clear();
+
+      var read = channel.read(block, current);
+
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (block.get(i) == '\n') {
+          return current + i + 1;
+        }
+      }
+      current += read;
+    }
+
+    return end;
+  }
+
+  @FunctionalInterface
+  interface TripCost {
+
+    @NotNull BigDecimal estimate(@NotNull MappedTripReader.Trip trip);
+
+  }
+
+  @FunctionalInterface
+  interface Rejects {
+
+    void reject(@NotNull Reject reject) throws IOException;
+
+  }
+
+  record Reject(long line, long offset, @NotNull String reasonKey, @NotNull String value) {
+
+  }
+
+  record RangeTotals(@NotNull Totals totals, long lines) {
+
+  }
+
+  private record RangeResult(Totals totals, long lines) {
+
+    RangeResult merge(RangeResult right) {
+      return new RangeResult(totals.merge(right.totals), lines + right.lines);
+    }
+
+  }
+
+  record Totals(@NotNull BigDecimal total, @NotNull SortedMap<String, BigDecimal> subtotals, long trips) {
+
+    @NotNull
+    Totals merge(@NotNull Totals other) {
+      var mergedSubtotals = new TreeMap<>(subtotals);
+
+      other.subtotals.forEach((vehicle, subtotal) -> mergedSubtotals.merge(vehicle, subtotal, BigDecimal::add));
+
+      return new Totals(total.add(other.total), mergedSubtotals, trips + other.trips);
+    }
+
+  }
+
+  // line numbers of the rejects are counted from the start of a range: a range that is done before the ranges
+  // in front of it keeps its rejects until they are done and their lines are known
+  private final class OrderedRejects {
+
+    private final List<List<Reject>> doneRanges;
+    private final long[] rangeLines;
+    private long linesBefore;
+    private int next;
+
+    private OrderedRejects(int ranges, long linesBefore) {
+      doneRanges = new ArrayList<>(Collections.nCopies(ranges, null));
+      rangeLines = new long[ranges];
+      this.linesBefore = linesBefore;
+    }
+
+    synchronized void done(int range, long lines, List<Reject> rangeRejects) throws IOException {
+      doneRanges.set(range, rangeRejects);
+      rangeLines[range] = lines;
+      while (next < rangeLines.length && nonNull(doneRanges.get(next))) {
+        for (var reject : doneRanges.get(next)) {
+          rejects.reject(new Reject(linesBefore + reject.line(), reject.offset(), reject.reasonKey(),
+              reject.value()));
+        }
+        doneRanges.set(next, List.of());
+        linesBefore += rangeLines[next];
+        next++;
+      }
+    }
+
+  }
+
+  private final class RangeTask extends RecursiveTask<RangeResult> {
+
+    private static final long serialVersionUID = -5827390457180362941L;
+
+    private final long[] bounds;
+    private final FileChannel channel;
+    private final int from;
+    private final OrderedRejects orderedRejects;
+    private final int to;
+
+    private BigDecimal total = BigDecimal.ZERO;
+    private Map<String, BigDecimal> subtotals;
+    private long trips;
+    private List<Reject> rangeRejects;
+
+    RangeTask(FileChannel channel, long[] bounds, int from, int to, OrderedRejects orderedRejects) {
+      this.channel = channel;
+      this.bounds = bounds;
+      this.from = from;
+      this.to = to;
+      this.orderedRejects = orderedRejects;
+    }
+
+    @Override
+    protected RangeResult compute() {
+      try {
+        if (to - from > 1) {
+          var middle = (from + to) >>> 1;
+          var left = new RangeTask(channel, bounds, from, middle, orderedRejects);
+
+          left.fork();
+
+          var right = new RangeTask(channel, bounds, middle, to, orderedRejects).compute();
+
+          return left.join().merge(right);
+        }
+
+        return aggregateRange();
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    private void addTrip(MappedTripReader.Trip trip) {
+      var cost = tripCost.estimate(trip);
+
+      total = total.add(cost);
+      if (nonNull(trip.vehicle())) {
+        subtotals.merge(trip.vehicle(), cost, BigDecimal::add);
+      }
+      trips++;
+    }
+
+    private RangeResult aggregateRange() throws IOException {
+      var reader = new MappedTripReader(channel);
+
+      subtotals = new HashMap<>();
+      rangeRejects = List.of();
+      reader.read(bounds[from], bounds[to], this::addTrip, isNull(orderedRejects) ? null : this::addReject);
+      if (nonNull(orderedRejects)) {
+        orderedRejects.done(from, reader.lines(), rangeRejects);
+      }
+
+      return new RangeResult(new Totals(total, new TreeMap<>(subtotals), trips), reader.lines());
+    }
+
+    private void addReject(long line, MappedTripReader.InvalidTripException exception) {
+      if (rangeRejects.isEmpty()) {
+        rangeRejects = new ArrayList<>();
+      }
+      rangeRejects.add(new Reject(line, exception.offset(), exception.reasonKey(), exception.value()));
+    }
+
+  }
+
+}
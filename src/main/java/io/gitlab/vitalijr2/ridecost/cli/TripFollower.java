@@ -0,0 +1,277 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Tails a growing trip log: only the complete lines appended since the last offset are read.
+// The offset and the totals of the last days are checkpointed after each update, so a restart resumes where
+// it stopped; older days are already written and are dropped. A log that is replaced by another file or shrinks
+// is read from the start.
+// An invalid line must not stop it for good, so it goes to the rejects or to the log and the offset moves past it.
+final class TripFollower {
+
+  private static final Logger LOGGER = System.getLogger(TripFollower.class.getName());
+  private static final String FILE = "file";
+  private static final String LINES = "lines";
+  private static final String OFFSET = "offset";
+  // the open day and the six before it
+  private static final int RETAINED_DAYS = 7;
+  private static final String TOTAL = "total";
+  private static final String TRIPS = "trips";
+  private static final String VEHICLE = "vehicle.";
+
+  private final Path tripLog;
+  private final Path checkpoint;
+  private final TripAggregator aggregator;
+  private final Clock clock;
+  private final SortedMap<LocalDate, TripAggregator.Totals> days = new TreeMap<>();
+  private final TripAggregator.Rejects rejects;
+
+  @Nullable
+  private String fileKey;
+  private long lines;
+  private long offset;
+
+  TripFollower(@NotNull Path tripLog, @NotNull Path checkpoint, @NotNull TripAggregator.TripCost tripCost,
+      @Nullable TripAggregator.Rejects rejects, @NotNull Clock clock) {
+    this.tripLog = tripLog;
+    this.checkpoint = checkpoint;
+    this.aggregator = new TripAggregator(tripCost, this::reject);
+    this.rejects = rejects;
+    this.clock = clock;
+  }
+
+  // the log has no dates, so a trip belongs to the day when it is read
+  @NotNull
+  SortedMap<LocalDate, TripAggregator.Totals> days() {
+    return days;
+  }
+
+  long offset() {
+    return offset;
+  }
+
+  void restore() throws IOException {
+    if (Files.notExists(checkpoint)) {
+      return;
+    }
+
+    var checkpointProperties = new Properties();
+
+    try (var checkpointReader = new InputStreamReader(Files.newInputStream(checkpoint), UTF_8)) {
+      checkpointProperties.load(checkpointReader);
+    }
+    offset = Long.parseLong(checkpointProperties.getProperty(OFFSET, "0"));
+    lines = Long.parseLong(checkpointProperties.getProperty(LINES, "0"));
+    fileKey = checkpointProperties.getProperty(FILE);
+    days.clear();
+    for (var name : checkpointProperties.stringPropertyNames()) {
+      var dot = name.indexOf('.');
+
+      if (0 < dot && name.substring(dot + 1).equals(TOTAL)) {
+        var day = name.substring(0, dot);
+
+        days.put(LocalDate.parse(day), readTotals(checkpointProperties, day));
+      }
+    }
+    LOGGER.log(Level.DEBUG, "Resume {0} at byte {1}", tripLog, offset);
+  }
+
+  // returns the day whose totals changed, or null if no complete line was appended
+  @Nullable
+  LocalDate update(@NotNull ForkJoinPool pool) throws IOException {
+    try (var channel = FileChannel.open(tripLog, StandardOpenOption.READ)) {
+      var size = channel.size();
+      var currentKey = readFileKey();
+
+      if (nonNull(fileKey) && nonNull(currentKey) && !fileKey.equals(currentKey)) {
+        LOGGER.log(Level.WARNING, "{0} is rotated, it is read from the start", tripLog);
+        offset = 0;
+        lines = 0;
+      } else if (size < offset) {
+        LOGGER.log(Level.WARNING, "{0} is truncated, it is read from the start", tripLog);
+        offset = 0;
+        lines = 0;
+      }
+      fileKey = currentKey;
+
+      var end = lineEnd(channel, offset, size);
+
+      if (end == offset) {
+        return null;
+      }
+
+      var day = LocalDate.now(clock);
+      var appended = aggregator.aggregate(channel, offset, end, lines, pool);
+
+      days.merge(day, appended.totals(), TripAggregator.Totals::merge);
+      days.headMap(day.minusDays(RETAINED_DAYS - 1)).clear();
+      offset = end;
+      lines += appended.lines();
+      save();
+
+      return day;
+    } catch (NoSuchFileException exception) {
+      LOGGER.log(Level.DEBUG, "{0} does not exist yet", tripLog);
+      return null;
+    }
+  }
+
+  // the folder is watched before the catch-up read, so no append is missed; an interrupt stops following
+  void follow(@NotNull ResultWriter results, @NotNull ForkJoinPool pool) throws IOException {
+    var absoluteTripLog = tripLog.toAbsolutePath();
+    var fileName = absoluteTripLog.getFileName();
+
+    try (var watchService = absoluteTripLog.getFileSystem().newWatchService()) {
+      absoluteTripLog.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+      writeUpdate(results, pool);
+      while (true) {
+        var key = watchService.take();
+        var changed = key.pollEvents().stream()
+            .anyMatch((event) -> OVERFLOW == event.kind() || fileName.equals(event.context()));
+
+        if (changed) {
+          writeUpdate(results, pool);
+        }
+        if (!key.reset()) {
+          LOGGER.log(Level.WARNING, "The folder of {0} is gone", tripLog);
+          return;
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      LOGGER.log(Level.DEBUG, "Stop following {0} at byte {1}", tripLog, offset);
+    }
+  }
+
+  // the inode and device on Unix, null if the file system has no keys
+  @Nullable
+  private String readFileKey() throws IOException {
+    var key = Files.readAttributes(tripLog, BasicFileAttributes.class).fileKey();
+
+    return isNull(key) ? null : key.toString();
+  }
+
+  private long lineEnd(FileChannel channel, long start, long end) throws IOException {
+    var block = ByteBuffer.allocate(4096);
+    var blockEnd = end;
+
+    // an incomplete last line waits for its end
+    while (blockEnd > start) {
+      var blockStart = Math.max(start, blockEnd - block.capacity());
+
+      block.clear().limit((int) (blockEnd - blockStart));
+      while (block.hasRemaining()) {
+        if (channel.read(block, blockStart + block.position()) < 0) {
+          throw new IOException(tripLog + " is truncated while reading");
+        }
+      }
+      for (int i = block.limit() - 1; i >= 0; i--) {
+        if (block.get(i) == '\n') {
+          return blockStart + i + 1;
+        }
+      }
+      blockEnd = blockStart;
+    }
+
+    return start;
+  }
+
+  private static TripAggregator.Totals readTotals(Properties checkpointProperties, String day) {
+    var prefix = day + '.' + VEHICLE;
+    var subtotals = new TreeMap<String, BigDecimal>();
+
+    checkpointProperties.stringPropertyNames().stream().filter((name) -> name.startsWith(prefix))
+        .forEach((name) -> subtotals.put(name.substring(prefix.length()),
+            new BigDecimal(checkpointProperties.getProperty(name))));
+
+    return new TripAggregator.Totals(new BigDecimal(checkpointProperties.getProperty(day + '.' + TOTAL)),
+        subtotals, Long.parseLong(checkpointProperties.getProperty(day + '.' + TRIPS, "0")));
+  }
+
+  private void writeUpdate(ResultWriter results, ForkJoinPool pool) throws IOException {
+    var day = update(pool);
+
+    if (isNull(day)) {
+      return;
+    }
+
+    var totals = days.get(day);
+
+    results.totals(day.toString(), totals);
+    LOGGER.log(Level.DEBUG, "{0}: {1} trips, {2} in total", day, totals.trips(), totals.total());
+  }
+
+  private void reject(TripAggregator.Reject reject) throws IOException {
+    if (isNull(rejects)) {
+      LOGGER.log(Level.WARNING, "Invalid trip on line {0} of {1} is skipped: {2}", reject.line(), tripLog,
+          reject.value());
+    } else {
+      rejects.reject(reject);
+    }
+  }
+
+  private void save() throws IOException {
+    var checkpointProperties = new Properties();
+
+    checkpointProperties.setProperty(OFFSET, Long.toString(offset));
+    checkpointProperties.setProperty(LINES, Long.toString(lines));
+    if (nonNull(fileKey)) {
+      checkpointProperties.setProperty(FILE, fileKey);
+    }
+    days.forEach((day, totals) -> {
+      checkpointProperties.setProperty(day + "." + TOTAL, totals.total().toString());
+      checkpointProperties.setProperty(day + "." + TRIPS, Long.toString(totals.trips()));
+      totals.subtotals().forEach((vehicle, subtotal) -> checkpointProperties.setProperty(day + "." + VEHICLE + vehicle,
+          subtotal.toString()));
+    });
+    AtomicFiles.write(checkpoint, (output) -> checkpointProperties.store(new OutputStreamWriter(output, UTF_8),
+        tripLog.toString()));
+  }
+
+}
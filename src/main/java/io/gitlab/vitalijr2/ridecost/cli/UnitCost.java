@@ -0,0 +1,102 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static io.gitlab.vitalijr2.ridecost.cli.RideCostVersion.VERSION;
+import static java.util.Objects.isNull;
+
+import io.gitlab.vitalijr2.ridecost.api.RideRequest;
+import io.gitlab.vitalijr2.ridecost.engine.FixedPointEstimator;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Properties;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+// The cost of a unit of distance saved with the state, the service estimates with it by one multiplication
+// and rounding.
+// The basis holds the tool version, the ratio and the price: when any of them changes the coefficient is stale.
+record UnitCost(@NotNull BigDecimal coefficient, @NotNull RoundingMode roundingMode, @NotNull String basis) {
+
+  @VisibleForTesting
+  static final String BASIS = "unitCostBasis";
+  @VisibleForTesting
+  static final String COEFFICIENT = "unitCost";
+  @VisibleForTesting
+  static final String ROUNDING_MODE = "unitCostRounding";
+
+  private static final Logger LOGGER = System.getLogger(UnitCost.class.getName());
+
+  @NotNull
+  static String basis(@NotNull String ratioName, @NotNull BigDecimal ratio, @NotNull BigDecimal price) {
+    return VERSION + ' ' + ratioName + ' ' + ratio + ' ' + price;
+  }
+
+  // Fuel consumption per distance is ratio x distance x price / 100, so ratio x price / 100 times the distance
+  // is the same product with the same scale, the sum of the scales plus two, and both round it half up.
+  // Fuel economy divides to seven significant digits first, the result is not linear in the distance.
+  @Nullable
+  static UnitCost derive(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio,
+      @NotNull BigDecimal price) {
+    if (RideRequest.Ratio.VOLUME_PER_DISTANCE != ratioKind) {
+      LOGGER.log(Level.DEBUG, "Unit cost is not saved: the cost of fuel economy is not linear");
+      return null;
+    }
+    if (ratio.scale() + price.scale() + 2 < 0) {
+      LOGGER.log(Level.DEBUG, "Unit cost is not saved: the scale of the ratio and price is negative");
+      return null;
+    }
+
+    return new UnitCost(ratio.multiply(price).movePointLeft(2), FixedPointEstimator.ROUNDING_MODE,
+        basis(ratioKind.optionName(), ratio, price));
+  }
+
+  @Nullable
+  static UnitCost read(@NotNull Properties stateProperties) {
+    var coefficient = stateProperties.getProperty(COEFFICIENT);
+    var roundingMode = stateProperties.getProperty(ROUNDING_MODE);
+    var basis = stateProperties.getProperty(BASIS);
+
+    if (isNull(coefficient) || isNull(roundingMode) || isNull(basis)) {
+      return null;
+    }
+    try {
+      return new UnitCost(new BigDecimal(coefficient), RoundingMode.valueOf(roundingMode), basis);
+    } catch (IllegalArgumentException exception) {
+      LOGGER.log(Level.DEBUG, "Broken unit cost: {0}", exception.getMessage());
+      return null;
+    }
+  }
+
+  boolean isBasedOn(@NotNull RideRequest.Ratio ratioKind, @NotNull BigDecimal ratio, @NotNull BigDecimal price) {
+    return RideRequest.Ratio.VOLUME_PER_DISTANCE == ratioKind
+        && basis.equals(basis(ratioKind.optionName(), ratio, price));
+  }
+
+  void write(@NotNull Properties stateProperties) {
+    stateProperties.setProperty(COEFFICIENT, coefficient.toString());
+    stateProperties.setProperty(ROUNDING_MODE, roundingMode.name());
+    stateProperties.setProperty(BASIS, basis);
+  }
+
+}
@@ -0,0 +1,274 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.engine;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The formulas of ride-cost-estimator in long arithmetic, with the same results and scales:
+// fuel consumption per distance is ratio x price x distance / 100, exact at the sum of the scales plus two;
+// fuel economy is distance / ratio to seven significant digits (MathContext.DECIMAL32), then x price.
+// A rounding sets the scale of the cost with ROUNDING_MODE. Anything that does not fit in a long,
+// or a negative scale, goes to the estimator.
+public final class FixedPointEstimator {
+
+  // a long holds every number of this many decimal digits
+  public static final int MAX_DIGITS = 18;
+  public static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+      100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+      100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+      1_000_000_000_000_000_000L};
+  public static final MathContext QUOTIENT_CONTEXT = MathContext.DECIMAL32;
+  public static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+
+  private static final int QUOTIENT_DIGITS = QUOTIENT_CONTEXT.getPrecision();
+  private static final long MIN_QUOTIENT = POWERS_OF_TEN[QUOTIENT_DIGITS - 1];
+  private static final long MAX_QUOTIENT = POWERS_OF_TEN[QUOTIENT_DIGITS];
+
+  private final boolean fastPath;
+  private final Formula formula;
+  private final BigDecimal price;
+  private final Rounding rounding;
+  private final BigDecimal ratio;
+  // volume per distance keeps ratio x price, distance per volume keeps both of them
+  private final long unscaled;
+  private final int scale;
+  private final long priceUnscaled;
+  private final int priceScale;
+
+  private FixedPointEstimator(Formula formula, BigDecimal ratio, BigDecimal price, Rounding rounding) {
+    this.formula = formula;
+    this.ratio = ratio;
+    this.price = price;
+    this.rounding = rounding;
+
+    var unscaled = 0L;
+    var scale = 0;
+    var priceUnscaled = 0L;
+    var fastPath = false;
+
+    if (ratio.scale() >= 0 && price.scale() >= 0 && ratio.signum() > 0 && price.signum() > 0) {
+      try {
+        priceUnscaled = unscaledValue(price);
+        if (Formula.VOLUME_PER_DISTANCE == formula) {
+          unscaled = Math.multiplyExact(unscaledValue(ratio), priceUnscaled);
+          scale = ratio.scale() + price.scale();
+        } else {
+          unscaled = unscaledValue(ratio);
+          scale = ratio.scale();
+        }
+        fastPath = true;
+      } catch (ArithmeticException exception) {
+        // too large for a long, the estimator is used
+      }
+    }
+    this.unscaled = unscaled;
+    this.scale = scale;
+    this.priceUnscaled = priceUnscaled;
+    this.priceScale = price.scale();
+    this.fastPath = fastPath;
+  }
+
+  @NotNull
+  public static FixedPointEstimator volumeByDistance(@NotNull BigDecimal volumePerDistance, @NotNull BigDecimal price,
+      @Nullable Rounding rounding) {
+    return new FixedPointEstimator(Formula.VOLUME_PER_DISTANCE, volumePerDistance, price, rounding);
+  }
+
+  @NotNull
+  public static FixedPointEstimator distanceByVolume(@NotNull BigDecimal distancePerVolume, @NotNull BigDecimal price,
+      @Nullable Rounding rounding) {
+    return new FixedPointEstimator(Formula.DISTANCE_PER_VOLUME, distancePerVolume, price, rounding);
+  }
+
+  private static long unscaledValue(BigDecimal value) {
+    return (value.scale() == 0) ? value.longValueExact() : value.movePointRight(value.scale()).longValueExact();
+  }
+
+  private static int digits(long value) {
+    var digits = 1;
+
+    while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+      digits++;
+    }
+
+    return digits;
+  }
+
+  private static long roundQuotient(long quotient, long remainder, long divisor, RoundingMode roundingMode) {
+    if (remainder == 0) {
+      return quotient;
+    }
+
+    var signum = (remainder > 0) ? 1 : -1;
+    var half = Long.compare(Math.abs(remainder), divisor - Math.abs(remainder));
+    var increment = switch (roundingMode) {
+      case UP -> true;
+      case DOWN -> false;
+      case CEILING -> signum > 0;
+      case FLOOR -> signum < 0;
+      case HALF_UP -> half >= 0;
+      case HALF_DOWN -> half > 0;
+      case HALF_EVEN -> half > 0 || (half == 0 && (quotient & 1) != 0);
+      case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+    };
+
+    return increment ? quotient + signum : quotient;
+  }
+
+  // the unscaled product at the decimal places, ArithmeticException on overflow
+  public static long round(long product, int scale, int decimalPlaces, @NotNull RoundingMode roundingMode) {
+    if (scale <= decimalPlaces) {
+      if (decimalPlaces - scale >= POWERS_OF_TEN.length) {
+        throw new ArithmeticException("Scale is too small");
+      }
+
+      return Math.multiplyExact(product, POWERS_OF_TEN[decimalPlaces - scale]);
+    }
+    if (scale - decimalPlaces >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("Scale is too large");
+    }
+
+    var divisor = POWERS_OF_TEN[scale - decimalPlaces];
+
+    return roundQuotient(product / divisor, product % divisor, divisor, roundingMode);
+  }
+
+  // decimals are compared with their scale, the fast path depends on it
+  public boolean isFor(@NotNull BigDecimal ratio, @NotNull BigDecimal price, @Nullable Rounding rounding) {
+    return this.ratio.equals(ratio) && this.price.equals(price) && this.rounding == rounding;
+  }
+
+  public boolean isFastPath() {
+    return fastPath;
+  }
+
+  @NotNull
+  public BigDecimal estimate(@NotNull BigDecimal distance) {
+    if (fastPath && distance.scale() >= 0 && distance.precision() <= MAX_DIGITS) {
+      return estimate(unscaledValue(distance), distance.scale());
+    }
+
+    return fallback(distance);
+  }
+
+  @NotNull
+  public BigDecimal estimate(long distanceUnscaled, int distanceScale) {
+    if (fastPath && distanceScale >= 0 && distanceUnscaled > 0) {
+      try {
+        return (Formula.VOLUME_PER_DISTANCE == formula)
+            ? cost(Math.multiplyExact(unscaled, distanceUnscaled), scale + distanceScale + 2)
+            : costOfQuotient(distanceUnscaled, distanceScale);
+      } catch (ArithmeticException exception) {
+        // overflow, use BigDecimal instead
+      }
+    }
+
+    return fallback(BigDecimal.valueOf(distanceUnscaled, distanceScale));
+  }
+
+  private BigDecimal cost(long product, int productScale) {
+    if (null == rounding) {
+      return BigDecimal.valueOf(product, productScale);
+    }
+
+    return BigDecimal.valueOf(round(product, productScale, rounding.decimalPlaces, ROUNDING_MODE),
+        rounding.decimalPlaces);
+  }
+
+  // BigDecimal.divide with the context: an inexact quotient has all its digits, an exact one
+  // drops the trailing zeros down to the preferred scale, that is the difference of the scales
+  private BigDecimal costOfQuotient(long distanceUnscaled, int distanceScale) {
+    var exponent = QUOTIENT_DIGITS - 1 - (digits(distanceUnscaled) - digits(unscaled));
+    long quotient;
+    long remainder;
+    long divisor;
+
+    while (true) {
+      var dividend = (exponent >= 0) ? Math.multiplyExact(distanceUnscaled, power(exponent)) : distanceUnscaled;
+
+      divisor = (exponent >= 0) ? unscaled : Math.multiplyExact(unscaled, power(-exponent));
+      quotient = dividend / divisor;
+      remainder = dividend % divisor;
+      if (quotient < MIN_QUOTIENT) {
+        exponent++;
+      } else if (quotient >= MAX_QUOTIENT) {
+        exponent--;
+      } else {
+        break;
+      }
+    }
+
+    var quotientScale = exponent + distanceScale - scale;
+
+    if (0 == remainder) {
+      while (quotientScale > distanceScale - scale && 0 == quotient % 10) {
+        quotient /= 10;
+        quotientScale--;
+      }
+    } else {
+      quotient = roundQuotient(quotient, remainder, divisor, QUOTIENT_CONTEXT.getRoundingMode());
+      if (MAX_QUOTIENT == quotient) {
+        quotient = MIN_QUOTIENT;
+        quotientScale--;
+      }
+    }
+
+    return cost(Math.multiplyExact(quotient, priceUnscaled), quotientScale + priceScale);
+  }
+
+  private static long power(int exponent) {
+    if (exponent >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("Exponent is too large");
+    }
+
+    return POWERS_OF_TEN[exponent];
+  }
+
+  private BigDecimal fallback(BigDecimal distance) {
+    return formula.estimator().estimateCostOfRide(ratio, price, distance, rounding);
+  }
+
+  private enum Formula {
+
+    DISTANCE_PER_VOLUME {
+      @Override
+      RideCostEstimator estimator() {
+        return RideCostEstimator.distanceByVolumeEstimator();
+      }
+    },
+
+    VOLUME_PER_DISTANCE {
+      @Override
+      RideCostEstimator estimator() {
+        return RideCostEstimator.volumeByDistanceEstimator();
+      }
+    };
+
+    abstract RideCostEstimator estimator();
+
+  }
+
+}
@@ -1,6 +1,10 @@
 module ride.cost.cli {
+  requires jdk.jfr;
+  requires jdk.management;
   requires org.jetbrains.annotations;
-  requires ride.cost.estimator;
+  requires transitive ride.cost.estimator;
   requires info.picocli;
+
+  exports io.gitlab.vitalijr2.ridecost.api;
   opens io.gitlab.vitalijr2.ridecost.cli to info.picocli;
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+@Tag("slow")
+class ColumnarCostsTest {
+
+  // odd, so every kernel has a tail
+  private static final int LENGTH = 10_003;
+
+  static Stream<Arguments> roundings() {
+    return Stream.concat(Stream.of(Arguments.of((Rounding) null)), Stream.of(Rounding.values()).map(Arguments::of));
+  }
+
+  static Stream<Arguments> kernelsAndRoundings() {
+    return Stream.of(new ScalarCostKernel(), ColumnarCosts.kernel()).distinct().flatMap(
+        (kernel) -> Stream.of(Rounding.values()).map((rounding) -> Arguments.of(kernel, rounding)));
+  }
+
+  private static long[] unscaled(Random random, int bound) {
+    var values = new long[LENGTH];
+
+    for (int i = 0; i < LENGTH; i++) {
+      values[i] = 1 + random.nextInt(bound);
+    }
+
+    return values;
+  }
+
+  private static double[] decimals(long[] unscaled, int scale) {
+    var values = new double[unscaled.length];
+
+    for (int i = 0; i < unscaled.length; i++) {
+      values[i] = BigDecimal.valueOf(unscaled[i], scale).doubleValue();
+    }
+
+    return values;
+  }
+
+  private static BigDecimal expected(RideRequest.Ratio ratioKind, long ratio, long price, long distance,
+      Rounding rounding) {
+    return RideCostService.create().estimate(new RideRequest(ratioKind, BigDecimal.valueOf(ratio, 1),
+        BigDecimal.valueOf(price, 2), BigDecimal.valueOf(distance, 1), rounding)).cost();
+  }
+
+  @DisplayName("Fixed-point costs are exact")
+  @ParameterizedTest(name = "{0}, rounding {1}")
+  @MethodSource("kernelsAndRoundings")
+  void fixedPoint(CostKernel kernel, Rounding rounding) {
+    // given
+    var random = new Random(42);
+    var ratios = unscaled(random, 300);
+    var prices = unscaled(random, 8_000);
+    var distances = unscaled(random, 10_000);
+    var costs = new long[LENGTH];
+
+    // when
+    kernel.estimateVolumePerDistance(ratios, 1, prices, 2, distances, 1, rounding, costs);
+
+    // then
+    for (int i = 0; i < LENGTH; i++) {
+      assertEquals(expected(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratios[i], prices[i], distances[i], rounding),
+          BigDecimal.valueOf(costs[i], rounding.decimalPlaces), String.valueOf(i));
+    }
+  }
+
+  @DisplayName("Fixed-point costs of one ratio and price over heap and direct buffers")
+  @ParameterizedTest(name = "{0}, rounding {1}")
+  @MethodSource("kernelsAndRoundings")
+  void fixedPointBuffer(CostKernel kernel, Rounding rounding) {
+    // given
+    var distances = unscaled(new Random(42), 10_000);
+    var offset = 3;
+    var heap = new long[offset + LENGTH];
+    var direct = ByteBuffer.allocateDirect(heap.length * Long.BYTES).asLongBuffer();
+
+    System.arraycopy(distances, 0, heap, offset, LENGTH);
+    direct.put(heap);
+
+    for (var buffer : List.of(LongBuffer.wrap(heap), direct)) {
+      var costs = new long[LENGTH];
+
+      // when
+      kernel.estimateVolumePerDistance(43, 1, 5999, 2, buffer, offset, 1, rounding, costs);
+
+      // then
+      for (int i = 0; i < LENGTH; i++) {
+        assertEquals(expected(RideRequest.Ratio.VOLUME_PER_DISTANCE, 43, 5999, distances[i], rounding),
+            BigDecimal.valueOf(costs[i], rounding.decimalPlaces), String.valueOf(i));
+      }
+    }
+  }
+
+  @DisplayName("Distances must hold a value for every cost")
+  @Test
+  void shortBuffer() {
+    // given
+    var distances = LongBuffer.wrap(new long[] {1, 2, 3});
+
+    // when and then
+    assertThrows(IllegalArgumentException.class, () -> ColumnarCosts.estimateVolumePerDistance(43, 1, 5999, 2,
+        distances, 1, 1, Rounding.WHOLE, new long[3]));
+  }
+
+  @DisplayName("Fixed-point overflow falls back to exact decimals")
+  @Test
+  void fixedPointOverflow() {
+    // given
+    var ratios = new long[] {Long.MAX_VALUE / 10, 43};
+    var prices = new long[] {100, 5999};
+    var distances = new long[] {1, 4560};
+    var costs = new long[2];
+
+    // when
+    ColumnarCosts.estimateVolumePerDistance(ratios, 1, prices, 2, distances, 1, Rounding.WHOLE, costs);
+
+    // then
+    assertArrayEquals(new long[] {92_233_720_368_548L, 1176}, costs);
+  }
+
+  @DisplayName("Costs in double are within the rounding")
+  @ParameterizedTest(name = "rounding {0}")
+  @MethodSource("roundings")
+  void doubles(Rounding rounding) {
+    // given
+    var random = new Random(42);
+    var ratios = unscaled(random, 300);
+    var prices = unscaled(random, 8_000);
+    var distances = unscaled(random, 10_000);
+    var unit = (rounding == null) ? 0 : Math.pow(10, -rounding.decimalPlaces);
+
+    for (var ratioKind : RideRequest.Ratio.values()) {
+      var costs = new double[LENGTH];
+
+      // when
+      ColumnarCosts.estimate(ratioKind, decimals(ratios, 1), decimals(prices, 2), decimals(distances, 1), rounding,
+          costs);
+
+      // then
+      for (int i = 0; i < LENGTH; i++) {
+        var expected = expected(ratioKind, ratios[i], prices[i], distances[i], rounding).doubleValue();
+        // the estimator divides with limited precision
+        var precision = (ratioKind == RideRequest.Ratio.DISTANCE_PER_VOLUME) ? 1e-6 : 1e-12;
+
+        assertTrue(Math.abs(expected - costs[i]) <= unit + expected * precision,
+            ratioKind + " " + i + ": " + expected + " vs " + costs[i]);
+      }
+    }
+  }
+
+  @DisplayName("Vector kernel gives the same doubles as the scalar one")
+  @ParameterizedTest(name = "rounding {0}")
+  @MethodSource("roundings")
+  void vectorEqualsScalar(Rounding rounding) {
+    // given
+    assumeTrue(ColumnarCosts.kernel().getClass() != ScalarCostKernel.class, "Vector kernel is not built");
+
+    var random = new Random(42);
+    var ratios = decimals(unscaled(random, 300), 1);
+    var prices = decimals(unscaled(random, 8_000), 2);
+    var distances = decimals(unscaled(random, 10_000), 1);
+
+    for (var ratioKind : RideRequest.Ratio.values()) {
+      var expected = new double[LENGTH];
+      var costs = new double[LENGTH];
+
+      // when
+      new ScalarCostKernel().estimate(ratioKind, ratios, prices, distances, rounding, expected);
+      ColumnarCosts.kernel().estimate(ratioKind, ratios, prices, distances, rounding, costs);
+
+      // then
+      assertArrayEquals(expected, costs);
+    }
+  }
+
+  @DisplayName("Columns must have the same length")
+  @Test
+  void differentLengths() {
+    // when
+    var exception = assertThrows(IllegalArgumentException.class,
+        () -> ColumnarCosts.estimate(RideRequest.Ratio.DISTANCE_PER_VOLUME, new double[3], new double[3],
+            new double[2], null, new double[3]));
+
+    // then
+    assertEquals("Columns must have the same length, but got 3, 3, 2 and 3", exception.getMessage());
+  }
+
+  @DisplayName("Without the vector kernel the scalar one is used")
+  @Test
+  void scalarFallback() {
+    // when
+    var kernel = ColumnarCosts.loadKernel("io.gitlab.vitalijr2.ridecost.cli.NoSuchKernel");
+
+    // then
+    assertInstanceOf(ScalarCostKernel.class, kernel);
+  }
+
+}
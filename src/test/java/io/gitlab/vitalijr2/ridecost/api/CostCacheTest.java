@@ -0,0 +1,109 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+@Tag("slow")
+class CostCacheTest {
+
+  private static final List<String> TRIPS = List.of("456", "100", "456", "100.0", "456");
+
+  static Stream<Arguments> roundings() {
+    return Stream.concat(Stream.of(Arguments.of((Rounding) null)), Stream.of(Rounding.values()).map(Arguments::of));
+  }
+
+  private static CostCache.Key key(String distance) {
+    return new CostCache.Key("test", BigDecimal.ONE, BigDecimal.TEN, null, new BigDecimal(distance));
+  }
+
+  private static String estimate(Rounding rounding, CostCache cache, RideRequest.Ratio ratioKind) {
+    var service = isNull(cache) ? RideCostService.create() : RideCostService.create().withCache(cache);
+    var ratio = new BigDecimal((RideRequest.Ratio.VOLUME_PER_DISTANCE == ratioKind) ? "4.3" : "23.26");
+    var output = new StringBuilder();
+
+    for (var distance : TRIPS) {
+      output.append(service.cost(ratioKind, ratio, new BigDecimal("59.99"), new BigDecimal(distance), rounding))
+          .append('\n');
+    }
+
+    return output.toString();
+  }
+
+  @DisplayName("Capacity must be positive")
+  @Test
+  void nonPositiveCapacity() {
+    // when
+    var exception = assertThrows(IllegalArgumentException.class, () -> new CostCache(0));
+
+    // then
+    assertEquals("Capacity must be positive, but got 0", exception.getMessage());
+  }
+
+  @DisplayName("Least recently used cost is evicted")
+  @Test
+  void evictLeastRecentlyUsed() {
+    // given
+    var cache = new CostCache(2);
+
+    cache.put(key("1"), BigDecimal.ONE);
+    cache.put(key("2"), BigDecimal.valueOf(2));
+    cache.find(key("1"));
+
+    // when
+    cache.put(key("3"), BigDecimal.TEN);
+
+    // then
+    assertAll("Eviction", () -> assertEquals(BigDecimal.ONE, cache.find(key("1"))),
+        () -> assertNull(cache.find(key("2"))), () -> assertEquals(BigDecimal.TEN, cache.find(key("3"))),
+        () -> assertEquals(new CostCache.Statistics(3, 1, 1, 2), cache.statistics()));
+  }
+
+  @DisplayName("Distances with different scales are different keys")
+  @Test
+  void scaleSensitiveKeys() {
+    // given
+    var cache = new CostCache(2);
+
+    cache.put(key("1.5"), BigDecimal.ONE);
+
+    // when
+    var cost = cache.find(key("1.50"));
+
+    // then
+    assertNull(cost);
+  }
+
+  @DisplayName("Cached costs equal fresh ones")
+  @ParameterizedTest(name = "rounding {0}")
+  @MethodSource("roundings")
+  void cachedEqualsFresh(Rounding rounding) {
+    // given
+    var cache = new CostCache(16);
+
+    // when
+    var freshVolumePerDistance = estimate(rounding, null, RideRequest.Ratio.VOLUME_PER_DISTANCE);
+    var cachedVolumePerDistance = estimate(rounding, cache, RideRequest.Ratio.VOLUME_PER_DISTANCE);
+    var freshDistancePerVolume = estimate(rounding, null, RideRequest.Ratio.DISTANCE_PER_VOLUME);
+    var cachedDistancePerVolume = estimate(rounding, cache, RideRequest.Ratio.DISTANCE_PER_VOLUME);
+
+    // then
+    assertAll("Cached costs", () -> assertEquals(freshVolumePerDistance, cachedVolumePerDistance),
+        () -> assertEquals(freshDistancePerVolume, cachedDistancePerVolume),
+        () -> assertEquals(new CostCache.Statistics(4, 6, 0, 6), cache.statistics()));
+  }
+
+}
@@ -0,0 +1,340 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("slow")
+class RideCostProcessorTest {
+
+  private static final ExecutorService PUBLISHER_EXECUTOR = Executors.newCachedThreadPool((runnable) -> {
+    var thread = new Thread(runnable);
+
+    thread.setDaemon(true);
+
+    return thread;
+  });
+
+  private ExecutorService executor;
+
+  private static RideRequest request(int i) {
+    return RideRequest.volumePerDistance(new BigDecimal("4.3"), new BigDecimal("59.99"), BigDecimal.valueOf(i, 1),
+        Rounding.TWO_DECIMAL_PLACES);
+  }
+
+  private static void publish(RideCostProcessor processor, int count) {
+    try (var publisher = new SubmissionPublisher<RideRequest>(PUBLISHER_EXECUTOR, 8)) {
+      publisher.subscribe(processor);
+      for (int i = 1; i <= count; i++) {
+        publisher.submit(request(i));
+      }
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @DisplayName("Results keep the order of requests")
+  @Test
+  void orderedResults() throws InterruptedException, ExecutionException, TimeoutException {
+    // given
+    var service = RideCostService.create();
+    var processor = new RideCostProcessor(service, executor, 4, 64);
+    var subscriber = new CollectingSubscriber(Long.MAX_VALUE, 0);
+
+    processor.subscribe(subscriber);
+
+    // when
+    publish(processor, 10_000);
+
+    // then
+    var results = subscriber.completion.get(30, TimeUnit.SECONDS);
+
+    assertEquals(10_000, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(service.estimate(request(i + 1)), results.get(i));
+    }
+  }
+
+  @DisplayName("Slow subscriber holds back the publisher")
+  @Test
+  void slowSubscriber() throws InterruptedException, ExecutionException, TimeoutException {
+    // given
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 4, 16);
+    var subscriber = new CollectingSubscriber(1, 1) {
+
+      @Override
+      public void onNext(RideResult item) {
+        maxBuffered.accumulateAndGet(processor.buffered(), Math::max);
+        super.onNext(item);
+      }
+
+    };
+
+    processor.subscribe(subscriber);
+
+    // when
+    publish(processor, 300);
+
+    // then
+    var results = subscriber.completion.get(30, TimeUnit.SECONDS);
+
+    assertAll("Bounded buffer", () -> assertEquals(300, results.size()),
+        () -> assertTrue(subscriber.maxBuffered.get() <= 16, subscriber.maxBuffered::toString));
+  }
+
+  @DisplayName("Cancel of the subscriber cancels the publisher")
+  @Test
+  void cancel() {
+    // given
+    var cancelled = new AtomicBoolean();
+    var requested = new AtomicLong();
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 2, 32);
+    var subscriber = new CollectingSubscriber(1, 0);
+
+    processor.subscribe(subscriber);
+    processor.onSubscribe(new Flow.Subscription() {
+
+      @Override
+      public void request(long n) {
+        requested.addAndGet(n);
+      }
+
+      @Override
+      public void cancel() {
+        cancelled.set(true);
+      }
+
+    });
+
+    // when
+    subscriber.subscription.cancel();
+
+    // then
+    assertAll("Cancel", () -> assertEquals(32, requested.get()), () -> assertTrue(cancelled.get()));
+  }
+
+  @DisplayName("Non-positive request is an error")
+  @Test
+  void nonPositiveRequest() {
+    // given
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 2, 32);
+    var subscriber = new CollectingSubscriber(0, 0);
+
+    processor.subscribe(subscriber);
+
+    // when
+    subscriber.subscription.request(0);
+
+    // then
+    var exception = assertThrows(ExecutionException.class, () -> subscriber.completion.get(5, TimeUnit.SECONDS));
+
+    assertAll("Request error", () -> assertInstanceOf(IllegalArgumentException.class, exception.getCause()),
+        () -> assertEquals("Request must be positive, but got 0", exception.getCause().getMessage()));
+  }
+
+  @DisplayName("Error of the publisher follows the results")
+  @Test
+  void publisherError() {
+    // given
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 2, 32);
+    var subscriber = new CollectingSubscriber(Long.MAX_VALUE, 0);
+    var failure = new IllegalStateException("test");
+
+    processor.subscribe(subscriber);
+    processor.onSubscribe(new Flow.Subscription() {
+
+      @Override
+      public void request(long n) {
+      }
+
+      @Override
+      public void cancel() {
+      }
+
+    });
+
+    // when
+    for (int i = 1; i <= 10; i++) {
+      processor.onNext(request(i));
+    }
+    processor.onError(failure);
+
+    // then
+    var exception = assertThrows(ExecutionException.class, () -> subscriber.completion.get(5, TimeUnit.SECONDS));
+
+    assertAll("Publisher error", () -> assertEquals(failure, exception.getCause()),
+        () -> assertEquals(10, subscriber.results.size()));
+  }
+
+  @DisplayName("Only one subscriber")
+  @Test
+  void oneSubscriber() {
+    // given
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 2, 32);
+    var second = new CollectingSubscriber(1, 0);
+
+    processor.subscribe(new CollectingSubscriber(1, 0));
+
+    // when
+    processor.subscribe(second);
+
+    // then
+    var exception = assertThrows(ExecutionException.class, () -> second.completion.get(5, TimeUnit.SECONDS));
+
+    assertEquals("Processor supports only one subscriber", exception.getCause().getMessage());
+  }
+
+  @DisplayName("No signal comes before onSubscribe returns")
+  @Test
+  void signalsAfterSubscribe() throws InterruptedException, ExecutionException, TimeoutException {
+    // given
+    var processor = new RideCostProcessor(RideCostService.create(), executor, 2, 32);
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var returned = new AtomicBoolean();
+    var early = new AtomicBoolean();
+    var subscriber = new CollectingSubscriber(1, 0) {
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        super.onSubscribe(subscription);
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        returned.set(true);
+      }
+
+      @Override
+      public void onComplete() {
+        early.compareAndSet(false, !returned.get());
+        super.onComplete();
+      }
+
+    };
+    var subscribing = CompletableFuture.runAsync(() -> processor.subscribe(subscriber), PUBLISHER_EXECUTOR);
+
+    entered.await(5, TimeUnit.SECONDS);
+
+    // when
+    processor.onSubscribe(new Flow.Subscription() {
+
+      @Override
+      public void request(long n) {
+      }
+
+      @Override
+      public void cancel() {
+      }
+
+    });
+    processor.onComplete();
+    release.countDown();
+    subscribing.get(5, TimeUnit.SECONDS);
+
+    // then
+    assertAll("Completion after subscription", () -> assertTrue(subscriber.completion.get(5, TimeUnit.SECONDS)
+        .isEmpty()), () -> assertFalse(early.get()));
+  }
+
+  @DisplayName("Parallelism and buffer size must be positive")
+  @Test
+  void invalidSettings() {
+    // when
+    var parallelism = assertThrows(IllegalArgumentException.class,
+        () -> new RideCostProcessor(RideCostService.create(), executor, 0, 1));
+    var bufferSize = assertThrows(IllegalArgumentException.class,
+        () -> new RideCostProcessor(RideCostService.create(), executor, 1, 0));
+
+    // then
+    assertAll("Settings", () -> assertEquals("Parallelism must be positive, but got 0", parallelism.getMessage()),
+        () -> assertEquals("Buffer size must be positive, but got 0", bufferSize.getMessage()));
+  }
+
+  private static class CollectingSubscriber implements Flow.Subscriber<RideResult> {
+
+    final CompletableFuture<List<RideResult>> completion = new CompletableFuture<>();
+    final AtomicInteger maxBuffered = new AtomicInteger();
+    final List<RideResult> results = new ArrayList<>();
+
+    private final long batch;
+    private final long pauseMillis;
+
+    Flow.Subscription subscription;
+
+    CollectingSubscriber(long batch, long pauseMillis) {
+      this.batch = batch;
+      this.pauseMillis = pauseMillis;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (batch > 0) {
+        subscription.request(batch);
+      }
+    }
+
+    @Override
+    public void onNext(RideResult item) {
+      results.add(item);
+      if (batch < Long.MAX_VALUE) {
+        if (pauseMillis > 0) {
+          try {
+            Thread.sleep(pauseMillis);
+          } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        subscription.request(1);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.complete(results);
+    }
+
+  }
+
+}
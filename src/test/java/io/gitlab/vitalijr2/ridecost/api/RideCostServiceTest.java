@@ -0,0 +1,223 @@
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+@Tag("slow")
+class RideCostServiceTest {
+
+  private static List<RideRequest> requests(int count) {
+    var random = new Random(42);
+    var requests = new ArrayList<RideRequest>();
+    var roundings = Rounding.values();
+
+    for (int i = 0; i < count; i++) {
+      var ratio = BigDecimal.valueOf(1 + random.nextInt(300), 1);
+      var price = BigDecimal.valueOf(1 + random.nextInt(8000), 2);
+      var distance = BigDecimal.valueOf(1 + random.nextInt(100), random.nextInt(2));
+      var rounding = random.nextBoolean() ? null : roundings[random.nextInt(roundings.length)];
+
+      requests.add(random.nextBoolean() ? RideRequest.volumePerDistance(ratio, price, distance, rounding)
+          : RideRequest.distancePerVolume(ratio, price, distance, rounding));
+    }
+
+    return requests;
+  }
+
+  private static BigDecimal expected(RideRequest request) {
+    var estimator = (request.ratioKind() == RideRequest.Ratio.VOLUME_PER_DISTANCE)
+        ? RideCostEstimator.volumeByDistanceEstimator() : RideCostEstimator.distanceByVolumeEstimator();
+
+    return estimator.estimateCostOfRide(request.ratio(), request.price(), request.distance(), request.rounding());
+  }
+
+  @DisplayName("Estimate a ride")
+  @Test
+  void estimate() {
+    // given
+    var request = RideRequest.volumePerDistance(new BigDecimal("4.3"), new BigDecimal("59.99"),
+        new BigDecimal("456"), Rounding.TWO_DECIMAL_PLACES);
+
+    // when
+    var result = RideCostService.create().estimate(request);
+
+    // then
+    assertAll("Result", () -> assertSame(request, result.request()),
+        () -> assertEquals(new BigDecimal("1176.28"), result.cost()));
+  }
+
+  @DisplayName("Every engine gives the costs of the estimator")
+  @Test
+  void sameCosts() {
+    // given
+    var requests = requests(2_000);
+    var services = List.of(RideCostService.create(), RideCostService.create().withFixedPoint(),
+        RideCostService.create().withCache(64), RideCostService.create().withFixedPoint().withCache(64));
+
+    for (var service : services) {
+      // when
+      var results = service.estimateAll(requests);
+
+      // then
+      assertEquals(requests.size(), results.size());
+      for (var result : results) {
+        assertEquals(expected(result.request()), result.cost(), result.request()::toString);
+      }
+    }
+  }
+
+  @DisplayName("An unscaled distance gives the same cost as a decimal")
+  @Test
+  void unscaledDistance() {
+    // given
+    var requests = requests(2_000);
+    var services = List.of(RideCostService.create(), RideCostService.create().withFixedPoint(),
+        RideCostService.create().withFixedPoint().withCache(64));
+
+    for (var service : services) {
+      for (var request : requests) {
+        // when
+        var cost = service.cost(request.ratioKind(), request.ratio(), request.price(),
+            request.distance().unscaledValue().longValueExact(), request.distance().scale(), request.rounding());
+
+        // then
+        assertEquals(expected(request), cost, request::toString);
+      }
+    }
+  }
+
+  @DisplayName("A unit cost is used only for its ratio and price")
+  @Test
+  void unitCost() {
+    // given
+    var ratio = new BigDecimal("4.3");
+    var price = new BigDecimal("59.99");
+    var service = RideCostService.create().withUnitCost(ratio, price, BigDecimal.ONE, RoundingMode.HALF_UP);
+    var distance = new BigDecimal("456");
+    var samePrice = new BigDecimal("59.990");
+
+    // when
+    var unitCost = service.cost(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratio, price, distance, null);
+    var otherPrice = service.cost(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratio, samePrice, distance, null);
+    var otherKind = service.cost(RideRequest.Ratio.DISTANCE_PER_VOLUME, ratio, price, distance, null);
+
+    // then
+    assertAll("Unit cost", () -> assertEquals(distance, unitCost),
+        () -> assertEquals(expected(RideRequest.volumePerDistance(ratio, samePrice, distance, null)), otherPrice),
+        () -> assertEquals(expected(RideRequest.distancePerVolume(ratio, price, distance, null)), otherKind));
+  }
+
+  @DisplayName("Only the fixed-point engine without a cache estimates whole columns")
+  @ParameterizedTest(name = "fixed point {0}, cache {1}, rounding {2}")
+  @CsvSource(value = {"true|false|TWO_DECIMAL_PLACES|true", "false|false|TWO_DECIMAL_PLACES|false",
+      "true|true|TWO_DECIMAL_PLACES|false", "true|false||false"}, delimiter = '|')
+  void columnar(boolean fixedPoint, boolean cache, Rounding rounding, boolean expected) {
+    // given
+    var service = fixedPoint ? RideCostService.create().withFixedPoint() : RideCostService.create();
+
+    if (cache) {
+      service = service.withCache(64);
+    }
+
+    // when
+    var columnar = service.isColumnar(RideRequest.Ratio.VOLUME_PER_DISTANCE, new BigDecimal("4.3"),
+        new BigDecimal("59.99"), rounding);
+
+    // then
+    assertEquals(expected, columnar);
+  }
+
+  @DisplayName("A shared service gives the same costs to every thread")
+  @Test
+  void sharedBetweenThreads() throws InterruptedException, ExecutionException {
+    // given
+    var requests = requests(20_000);
+    var service = RideCostService.create().withFixedPoint().withCache(256);
+    var expected = requests.stream().map(RideCostServiceTest::expected).collect(Collectors.toList());
+    var executor = Executors.newFixedThreadPool(4);
+    var tasks = new ArrayList<Callable<List<BigDecimal>>>();
+
+    for (int i = 0; i < 8; i++) {
+      tasks.add(() -> service.estimateAll(requests).stream().map(RideResult::cost).collect(Collectors.toList()));
+    }
+
+    // when
+    var futures = executor.invokeAll(tasks);
+
+    executor.shutdown();
+
+    // then
+    for (var future : futures) {
+      assertEquals(expected, future.get());
+    }
+  }
+
+  @DisplayName("Parallel stream of a spliterator keeps the order")
+  @Test
+  void parallelSpliterator() {
+    // given
+    var requests = requests(20_000);
+    var expected = requests.stream().map(RideCostServiceTest::expected).collect(Collectors.toList());
+
+    // when
+    var costs = RideCostService.create().withFixedPoint().estimateAll(requests.spliterator()).parallel()
+        .map(RideResult::cost).collect(Collectors.toList());
+
+    // then
+    assertEquals(expected, costs);
+  }
+
+  @DisplayName("Invalid request")
+  @ParameterizedTest(name = "{3}")
+  @CsvSource(value = {"0|1|1|Ratio must be positive, but got 0", "1|-1|1|Price must be positive, but got -1",
+      "1|1|0.0|Distance must be positive, but got 0.0"}, delimiter = '|')
+  void invalidRequest(BigDecimal ratio, BigDecimal price, BigDecimal distance, String expectedMessage) {
+    // when
+    var exception = assertThrows(IllegalArgumentException.class,
+        () -> RideRequest.distancePerVolume(ratio, price, distance, null));
+
+    // then
+    assertEquals(expectedMessage, exception.getMessage());
+  }
+
+  @DisplayName("Invalid unit cost")
+  @Test
+  void invalidUnitCost() {
+    // when
+    var exception = assertThrows(IllegalArgumentException.class, () -> RideCostService.create()
+        .withUnitCost(BigDecimal.ZERO, BigDecimal.ONE, BigDecimal.ONE, RoundingMode.HALF_UP));
+
+    // then
+    assertEquals("Ratio must be positive, but got 0", exception.getMessage());
+  }
+
+  @DisplayName("Cache capacity must be positive")
+  @Test
+  void nonPositiveCapacity() {
+    // when
+    var exception = assertThrows(IllegalArgumentException.class, () -> RideCostService.create().withCache(0));
+
+    // then
+    assertEquals("Capacity must be positive, but got 0", exception.getMessage());
+  }
+
+}
@@ -0,0 +1,156 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class AggregateTest {
+
+  private static ForkJoinPool pool;
+
+  @TempDir
+  Path folder;
+
+  private CommandLine commandLine;
+  private RideCost instance;
+  private StringWriter output;
+  private StringWriter errors;
+
+  @BeforeAll
+  static void setUpClass() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void tearDownClass() {
+    pool.shutdown();
+  }
+
+  @BeforeEach
+  void setUp() {
+    instance = new RideCost();
+    commandLine = RideCost.commandLine(instance);
+    output = new StringWriter();
+    errors = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+    instance.spec = commandLine.getCommandSpec();
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+  }
+
+  @DisplayName("Parallel and sequential totals are identical")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(booleans = {false, true})
+  void parallelAndSequential(boolean fixedPoint) throws IOException {
+    // given
+    var random = new Random(20251128);
+    var tripLog = new StringBuilder("# vehicle,distance\n");
+    var expectedTotal = BigDecimal.ZERO;
+    var expectedSubtotals = new TreeMap<String, BigDecimal>();
+
+    instance.rounding = Rounding.TWO_DECIMAL_PLACES;
+    instance.fixedPoint = fixedPoint;
+    instance.resolveEngine();
+    for (int i = 0; i < 20_000; i++) {
+      var tripDistance = BigDecimal.valueOf(1 + random.nextInt(100_000), random.nextInt(3));
+      var cost = instance.estimateRideCost(tripDistance);
+
+      if (0 == i % 7) {
+        tripLog.append(tripDistance).append("\r\n");
+      } else {
+        var vehicle = "vehicle-" + random.nextInt(50);
+
+        tripLog.append(vehicle).append(", ").append(tripDistance).append('\n');
+        expectedSubtotals.merge(vehicle, cost, BigDecimal::add);
+      }
+      expectedTotal = expectedTotal.add(cost);
+    }
+
+    var tripLogFile = folder.resolve("trips.csv");
+    var total = expectedTotal;
+
+    Files.writeString(tripLogFile, tripLog);
+
+    // when
+    var sequential = new TripAggregator((trip) -> instance.estimateRideCost(trip.distance()),
+        Long.MAX_VALUE, null).aggregate(tripLogFile, new ForkJoinPool(1));
+    var parallel = new TripAggregator((trip) -> instance.estimateRideCost(trip.distance()), 1000, null)
+        .aggregate(tripLogFile, pool);
+
+    // then
+    assertAll("Totals", () -> assertEquals(sequential, parallel), () -> assertEquals(20_000, parallel.trips()),
+        () -> assertEquals(total, parallel.total()),
+        () -> assertEquals(expectedSubtotals, parallel.subtotals()));
+  }
+
+  @DisplayName("Aggregate from the command line")
+  @Test
+  void commandLine() throws IOException {
+    // given
+    var tripLogFile = folder.resolve("trips.csv");
+
+    Files.writeString(tripLogFile, "van,456\ncar,100\n\nvan,100\n300");
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-0", "--aggregate", tripLogFile.toString());
+
+    // then
+    assertAll("Totals", () -> assertEquals(0, exitCode),
+        () -> assertEquals("car,258\nvan,1434\n2466\n", output.toString()));
+  }
+
+  @DisplayName("Invalid record")
+  @Test
+  void invalidRecord() throws IOException {
+    // given
+    var tripLogFile = folder.resolve("trips.csv");
+
+    Files.writeString(tripLogFile, "van,456\ncar,-100\n");
+    instance.resolveEngine();
+
+    // when
+    var exception = assertThrows(InvalidRecordException.class,
+        () -> instance.aggregateTrips(tripLogFile, pool));
+
+    // then
+    assertEquals("Byte 8: Must be a positive value, but got -100", exception.getMessage());
+  }
+
+  @DisplayName("Aggregation and batch input are mutually exclusive")
+  @Test
+  void aggregateAndBatch() {
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-b", "--aggregate", "trips.csv");
+
+    // then
+    assertAll("Usage error", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), startsWith("Batch input and aggregation are mutually exclusive")));
+  }
+
+}
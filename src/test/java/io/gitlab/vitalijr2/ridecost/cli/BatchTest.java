@@ -0,0 +1,142 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class BatchTest {
+
+  private CommandLine commandLine;
+  private RideCost instance;
+  private StringWriter output;
+  private StringWriter errors;
+
+  @BeforeEach
+  void setUp() {
+    instance = new RideCost();
+    commandLine = new CommandLine(instance);
+    output = new StringWriter();
+    errors = new StringWriter();
+
+    commandLine.setExitCodeExceptionMapper(new ExitCodeExceptionMapper());
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+  }
+
+  @DisplayName("Estimate every distance of the input")
+  @Test
+  void estimateEveryDistance() throws IOException {
+    // given
+    instance.spec = commandLine.getCommandSpec();
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    instance.twoDigits = true;
+    instance.resolveRounding();
+    instance.resolveEngine();
+
+    // when
+    instance.estimateBatch(new BufferedReader(new StringReader("456\n\n# comment\n 100 \n")), output);
+
+    // then
+    assertEquals("1176.28\n257.96\n", output.toString());
+  }
+
+  @DisplayName("Read distances from a file")
+  @Test
+  void readDistancesFromFile() {
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-0", "--input",
+        "src/test/resources/io/gitlab/vitalijr2/ridecost/cli/batch.txt");
+
+    // then
+    assertAll("Batch from a file", () -> assertEquals(0, exitCode), () -> assertEquals("1176\n60\n2580\n",
+        output.toString()));
+  }
+
+  @DisplayName("Invalid record")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"abc|Line 2: Must be a number, but got abc",
+      "-1|Line 2: Must be a positive value, but got -1"}, delimiter = '|')
+  void invalidRecord(String record, String expectedMessage) {
+    // given
+    instance.spec = commandLine.getCommandSpec();
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    instance.resolveEngine();
+
+    // when
+    var exception = assertThrows(InvalidRecordException.class,
+        () -> instance.estimateBatch(new BufferedReader(new StringReader("456\n" + record + '\n')), output));
+
+    // then
+    assertEquals(expectedMessage, exception.getMessage());
+  }
+
+  @DisplayName("Distance and batch input are mutually exclusive")
+  @Test
+  void distanceAndBatch() {
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "--batch", "123");
+
+    // then
+    assertEquals(2, exitCode);
+  }
+
+  @DisplayName("Batch with the fixed-point engine")
+  @Test
+  void fixedPointBatch() throws IOException {
+    // given
+    instance.spec = commandLine.getCommandSpec();
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+    instance.price = BigDecimal.valueOf(59.99);
+    instance.twoDigits = true;
+    instance.fixedPoint = true;
+    instance.resolveRounding();
+    instance.resolveEngine();
+
+    // when
+    instance.estimateBatch(new BufferedReader(new StringReader("456\n100\n1e2\n")), output);
+
+    // then
+    assertAll("Fixed-point batch", () -> assertTrue(instance.costs.takesUnscaled()),
+        () -> assertNotNull(instance.costs.columnarCosts()),
+        () -> assertEquals("1176.28\n257.96\n257.96\n", output.toString()));
+  }
+
+  @DisplayName("Repeated trips of a batch hit the cache")
+  @Test
+  void batchHitsCache(@TempDir Path folder) throws IOException {
+    // given
+    var trips = Files.writeString(folder.resolve("trips.txt"), "456\n100\n456\n100.0\n456\n");
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-2", "--cache", "2", "--input", trips.toString());
+
+    // then
+    assertAll("Batch with cache", () -> assertEquals(0, exitCode),
+        () -> assertEquals("1176.28\n257.96\n1176.28\n257.96\n1176.28\n", output.toString()),
+        () -> assertEquals(new CostCache.Statistics(2, 3, 1, 2), instance.cache.statistics()));
+  }
+
+}
@@ -35,6 +35,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -55,6 +56,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -75,6 +77,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -95,6 +98,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -115,6 +119,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -134,6 +139,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -152,6 +158,7 @@ class CalculationTest {
 
     // when
     instance.resolveRounding();
+    instance.resolveEngine();
     var cost = instance.estimateRideCost();
 
     // then
@@ -0,0 +1,377 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("slow")
+class ColumnarTripsTest {
+
+  private static final BigDecimal PRICE = new BigDecimal("59.99");
+  private static final BigDecimal RATIO = new BigDecimal("4.3");
+
+  private static ForkJoinPool pool;
+
+  @TempDir
+  Path folder;
+
+  @BeforeAll
+  static void setUpClass() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void tearDownClass() {
+    pool.shutdown();
+  }
+
+  private static String trip(String vehicle, BigDecimal distance) {
+    var plain = distance.stripTrailingZeros().toPlainString();
+
+    return (null == vehicle) ? plain : vehicle + ',' + plain;
+  }
+
+  // every trip of the file in order, as vehicle,distance without trailing zeros
+  private static List<String> readTrips(Path file) throws IOException {
+    var trips = new ArrayList<String>();
+
+    try (var columns = ColumnarTripFile.open(file)) {
+      for (var block : columns.blocks()) {
+        var mapped = columns.map(block);
+
+        for (int i = 0; i < block.trips(); i++) {
+          trips.add(trip(columns.vehicle(mapped.vehicle(i)), BigDecimal.valueOf(mapped.distance(i), block.scale())));
+        }
+      }
+    }
+
+    return trips;
+  }
+
+  private static BigDecimal cost(long unscaledDistance, int distanceScale) {
+    return RideCostEstimator.volumeByDistanceEstimator().estimateCostOfRide(RATIO, PRICE,
+        BigDecimal.valueOf(unscaledDistance, distanceScale), Rounding.TWO_DECIMAL_PLACES);
+  }
+
+  private static int execute(StringWriter output, StringWriter errors, String... args) {
+    var commandLine = RideCost.commandLine(new RideCost());
+
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+
+    return commandLine.execute(args);
+  }
+
+  @DisplayName("Conversion is lossless")
+  @ParameterizedTest(name = "block of {0} trips")
+  @ValueSource(ints = {1, 7, 1_000, ColumnarTripWriter.DEFAULT_BLOCK_SIZE})
+  void roundTrip(int blockSize) throws IOException {
+    // given
+    var random = new Random(20251128);
+    var tripLog = new StringBuilder("# vehicle,distance\n\n");
+    var expected = new ArrayList<String>();
+
+    for (int i = 0; i < 5_000; i++) {
+      var vehicle = (0 == i % 5) ? null : "vehicle-" + random.nextInt(300);
+      var distance = switch (i % 4) {
+        case 0 -> new BigDecimal(1 + random.nextInt(1_000));
+        case 1 -> BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+        case 2 -> BigDecimal.valueOf(1 + random.nextLong(Long.MAX_VALUE), 6);
+        default -> BigDecimal.valueOf(1 + random.nextInt(1_000), 1 + random.nextInt(5));
+      };
+      var text = (3 == i % 8) ? distance.toString().replace("E", "e") : distance.toPlainString();
+
+      tripLog.append(null == vehicle ? "" : vehicle + ", ").append(text).append('\n');
+      expected.add(trip(vehicle, distance));
+    }
+    tripLog.append("a-bus,1.5E+3\n").append("a-bus,12345678901234567890E-10\n");
+    expected.add("a-bus,1500");
+    expected.add("a-bus,1234567890.123456789");
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), tripLog);
+    var columnsFile = folder.resolve("trips.columns");
+
+    // when
+    var summary = new ColumnarTripWriter(blockSize).convert(tripLogFile, columnsFile);
+
+    // then
+    assertAll("Round trip", () -> assertEquals(expected.size(), summary.trips()),
+        () -> assertEquals(expected, readTrips(columnsFile)),
+        () -> assertTrue(ColumnarTripFile.isColumnar(columnsFile)),
+        () -> assertFalse(ColumnarTripFile.isColumnar(tripLogFile)),
+        () -> assertEquals(List.of("trips.columns", "trips.csv"), Files.list(folder).map(Path::getFileName)
+            .map(Path::toString).sorted().toList()));
+  }
+
+  @DisplayName("A block takes the narrowest widths of its columns")
+  @Test
+  void columnWidths() throws IOException {
+    // given
+    var tripLog = new StringBuilder();
+
+    for (int i = 0; i < 300; i++) {
+      tripLog.append("vehicle-").append(i).append(",1.5\n");
+    }
+    tripLog.append("9223372036854775807\n").append("0.5\n");
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), tripLog);
+    var columnsFile = folder.resolve("trips.columns");
+
+    // when
+    new ColumnarTripWriter(100).convert(tripLogFile, columnsFile);
+
+    // then
+    try (var columns = ColumnarTripFile.open(columnsFile)) {
+      var blocks = columns.blocks();
+
+      assertAll("Widths", () -> assertEquals(5, blocks.size()),
+          () -> assertEquals(List.of(1, 2, 2, 1, 1), blocks.stream().map(ColumnarTripFile.BlockIndex::vehicleWidth)
+              .toList()),
+          () -> assertEquals(List.of(4, 4, 4, 8, 4), blocks.stream().map(ColumnarTripFile.BlockIndex::distanceWidth)
+              .toList()),
+          () -> assertEquals(List.of(100, 100, 100, 1, 1), blocks.stream().map(ColumnarTripFile.BlockIndex::trips)
+              .toList()),
+          () -> assertEquals(300, columns.vehicles()), () -> assertEquals(302, columns.trips()));
+    }
+  }
+
+  @DisplayName("An invalid record stops the conversion and leaves no output")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(delimiter = '|', value = {"abc|value.not-a-number", "-1|value.non-positive",
+      "1e400|convert.too-many-digits", "12345678901234567890123|convert.too-many-digits"})
+  void invalidRecord(String distance, String reasonKey) throws IOException {
+    // given
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "van,456\ncar," + distance + "\n");
+    var columnsFile = folder.resolve("trips.columns");
+    var writer = new ColumnarTripWriter(ColumnarTripWriter.DEFAULT_BLOCK_SIZE);
+
+    // when
+    var exception = assertThrows(MappedTripReader.InvalidTripException.class,
+        () -> writer.convert(tripLogFile, columnsFile));
+
+    // then
+    assertAll("Invalid record", () -> assertEquals(8, exception.offset()),
+        () -> assertEquals(reasonKey, exception.reasonKey()),
+        () -> assertEquals(List.of("trips.csv"), Files.list(folder).map(Path::getFileName).map(Path::toString)
+            .toList()));
+  }
+
+  @DisplayName("A columnar file gets the default permissions")
+  @Test
+  void defaultPermissions() throws IOException {
+    // given
+    assumeTrue(Files.getFileStore(folder).supportsFileAttributeView(PosixFileAttributeView.class));
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "car,100\n");
+    var columnsFile = folder.resolve("trips.columns");
+    var expected = Files.getPosixFilePermissions(Files.createFile(folder.resolve("plain.txt")));
+
+    // when
+    new ColumnarTripWriter(2).convert(tripLogFile, columnsFile);
+
+    // then
+    assertEquals(expected, Files.getPosixFilePermissions(columnsFile));
+  }
+
+  @DisplayName("A trip log is not a columnar file")
+  @Test
+  void notColumnar() throws IOException {
+    // given
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "van,456\n".repeat(10));
+
+    // when
+    var exception = assertThrows(IOException.class, () -> ColumnarTripFile.open(tripLogFile));
+
+    // then
+    assertThat(exception.getMessage(), containsString("is not a columnar trip file"));
+  }
+
+  @DisplayName("Conditions")
+  @ParameterizedTest(name = "{0} at scale {1}")
+  @CsvSource(delimiter = '|', value = {"distance>100|0|101|9223372036854775807",
+      "distance > 100.5|1|1006|9223372036854775807", "distance>=100.5|0|101|9223372036854775807",
+      "distance<100|2|0|9999", "distance<=100.55|1|0|1005", "distance=100.5|1|1005|1005", "distance=100.5|0|1|0",
+      "distance>-5|0|0|9223372036854775807", "distance<0|3|1|0", "distance>1e30|0|1|0"})
+  void conditions(String text, int scale, long min, long max) {
+    // when
+    var condition = DistanceCondition.parse(text);
+
+    // then
+    assertEquals(new DistanceCondition.Bounds(min, max), DistanceCondition.bounds(List.of(condition), scale));
+  }
+
+  @DisplayName("Invalid condition")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"distance", "distance>", "distance!=5", "price>5", "distance>abc", "100<distance"})
+  void invalidCondition(String text) {
+    // when and then
+    assertNull(DistanceCondition.parse(text));
+  }
+
+  @DisplayName("Blocks out of the conditions are skipped, the totals are the same as of the trip log")
+  @Test
+  void skipBlocks() throws IOException {
+    // given: the log is sorted by distance, so most blocks are out of the range
+    var tripLog = new StringBuilder();
+    var conditions = List.of(DistanceCondition.parse("distance>250"), DistanceCondition.parse("distance<=500.5"));
+    var expectedTotal = BigDecimal.ZERO;
+    var expectedTrips = 0L;
+
+    for (int i = 1; i <= 10_000; i++) {
+      var distance = BigDecimal.valueOf(i, 1);
+
+      tripLog.append((0 == i % 2) ? "van," : "car,").append(distance).append('\n');
+      if (distance.compareTo(new BigDecimal(250)) > 0 && distance.compareTo(new BigDecimal("500.5")) <= 0) {
+        expectedTotal = expectedTotal.add(cost(i, 1));
+        expectedTrips++;
+      }
+    }
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), tripLog);
+    var columnsFile = folder.resolve("trips.columns");
+    var aggregator = new ColumnarTripAggregator(ColumnarTripsTest::cost, conditions);
+
+    new ColumnarTripWriter(1_000).convert(tripLogFile, columnsFile);
+
+    // when
+    TripAggregator.Totals totals;
+
+    try (var columns = ColumnarTripFile.open(columnsFile)) {
+      totals = aggregator.aggregate(columns, pool);
+    }
+
+    // then
+    var finalTotal = expectedTotal;
+    var finalTrips = expectedTrips;
+
+    assertAll("Skipped blocks", () -> assertEquals(finalTotal, totals.total()),
+        () -> assertEquals(finalTrips, totals.trips()),
+        () -> assertEquals(finalTotal, totals.subtotals().get("car").add(totals.subtotals().get("van"))),
+        () -> assertEquals(6, aggregator.skippedBlocks()));
+  }
+
+  @DisplayName("Costs of the fixed-point columns are the same as of a trip at a time")
+  @Test
+  void fixedPointColumns() throws IOException {
+    // given
+    var random = new Random(20261017L);
+    var tripLog = new StringBuilder();
+    var conditions = List.of(DistanceCondition.parse("distance>=5"));
+
+    for (int i = 0; i < 5_000; i++) {
+      var distance = BigDecimal.valueOf(1 + random.nextInt(100_000_000), random.nextInt(4));
+
+      tripLog.append(switch (random.nextInt(3)) {
+        case 0 -> "car,";
+        case 1 -> "van,";
+        default -> "";
+      }).append(distance.toPlainString()).append('\n');
+    }
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), tripLog);
+    var columnsFile = folder.resolve("trips.columns");
+    var tripAtATime = new ColumnarTripAggregator(ColumnarTripsTest::cost, conditions);
+    var fixedPointColumns = new ColumnarTripAggregator(ColumnarTripsTest::cost, conditions,
+        new ColumnarTripAggregator.FixedPointCosts(RATIO, PRICE, Rounding.TWO_DECIMAL_PLACES));
+
+    new ColumnarTripWriter(700).convert(tripLogFile, columnsFile);
+
+    // when
+    TripAggregator.Totals expected;
+    TripAggregator.Totals actual;
+
+    try (var columns = ColumnarTripFile.open(columnsFile)) {
+      expected = tripAtATime.aggregate(columns, pool);
+      actual = fixedPointColumns.aggregate(columns, pool);
+    }
+
+    // then
+    assertEquals(expected, actual);
+  }
+
+  @DisplayName("Convert and aggregate on the command line")
+  @Test
+  void commandLine() throws IOException {
+    // given
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "van,456\ncar,100\nvan,100\n300\n");
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var convertExitCode = execute(output, errors, "convert", "--block-size", "2", tripLogFile.toString());
+    var aggregateExitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "-0", "--aggregate",
+        tripLogFile + ".columns", "--where", "distance>=100", "--where", "distance<400");
+
+    // then
+    assertAll("Command line", () -> assertEquals(0, convertExitCode), () -> assertEquals(0, aggregateExitCode),
+        () -> assertEquals("4 trips in 2 blocks with 2 vehicles are written to " + tripLogFile + ".columns\n"
+            + "car,258\nvan,258\n1290\n", output.toString()), () -> assertEquals("", errors.toString()));
+  }
+
+  @DisplayName("Conditions apply only to a columnar file")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(delimiter = '|', value = {"distance>1|--aggregate|Conditions apply only",
+      "distance>1|-b|Conditions apply only", "distance?1|--aggregate|A condition must be distance"})
+  void whereWithoutColumns(String condition, String option, String message) throws IOException {
+    // given
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "van,456\n");
+    var output = new StringWriter();
+    var errors = new StringWriter();
+    var args = "-b".equals(option) ? new String[]{"-p", "59.99", "-l", "4.3", "-b", "--where", condition}
+        : new String[]{"-p", "59.99", "-l", "4.3", option, tripLogFile.toString(), "--where", condition};
+
+    // when
+    var exitCode = execute(output, errors, args);
+
+    // then
+    assertAll("Without columns", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString(message)));
+  }
+
+  @DisplayName("Invalid block size")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"0", "16777217"})
+  void invalidBlockSize(String blockSize) throws IOException {
+    // given
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), "van,456\n");
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "convert", "--block-size", blockSize, tripLogFile.toString());
+
+    // then
+    assertAll("Block size", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("Block size must be from 1 to 16777216 trips")));
+  }
+
+}
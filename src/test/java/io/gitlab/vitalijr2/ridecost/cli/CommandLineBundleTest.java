@@ -0,0 +1,89 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("slow")
+class CommandLineBundleTest {
+
+  private static final Pattern FORMAT_SPECIFIER = Pattern.compile("%[-#+ 0,(]*\\d*(?:\\.\\d+)?[a-mo-zA-Z]");
+
+  private static ResourceBundle rootBundle;
+
+  @BeforeAll
+  static void setUpClass() {
+    rootBundle = RideCost.loadCommandLineBundle(Locale.ROOT);
+  }
+
+  @DisplayName("Every locale has its own bundle and resolves every key")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"cs", "de", "es", "fr", "hr", "hu", "it", "nl", "pl", "pt", "pt-BR", "ro", "sk", "tr", "uk"})
+  void everyKey(String languageTag) {
+    // given
+    var locale = Locale.forLanguageTag(languageTag);
+
+    // when
+    var bundle = RideCost.loadCommandLineBundle(locale);
+
+    // then
+    assertAll("Bundle", () -> assertEquals(locale, bundle.getLocale(), "Locale"),
+        () -> assertEquals(rootBundle.keySet(), bundle.keySet(), "Keys"),
+        () -> rootBundle.keySet().forEach((key) -> assertEquals(formatSpecifiers(rootBundle.getString(key)),
+            formatSpecifiers(bundle.getString(key)), "Format specifiers of " + key)));
+  }
+
+  @DisplayName("Usage help is read from the bundle")
+  @Test
+  void usageHelp() {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var out = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(out));
+
+    // when
+    commandLine.execute("--help");
+
+    // then
+    assertThat(out.toString(), containsString(RideCost.getCommandLineBundle().getString("price")));
+  }
+
+  @DisplayName("Usage help on an error is read from the bundle")
+  @Test
+  void usageHelpOnError() {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var err = new StringWriter();
+
+    commandLine.setErr(new PrintWriter(err));
+
+    // when
+    commandLine.execute("-p", "59.99", "456");
+
+    // then
+    assertAll("Error", () -> assertThat(err.toString(),
+            containsString(RideCost.getCommandLineBundle().getString("required.any-mileage"))),
+        () -> assertThat(err.toString(), containsString(RideCost.getCommandLineBundle().getString("price"))));
+  }
+
+  private static List<String> formatSpecifiers(String text) {
+    return FORMAT_SPECIFIER.matcher(text).results().map((result) -> result.group()).collect(Collectors.toList());
+  }
+
+}
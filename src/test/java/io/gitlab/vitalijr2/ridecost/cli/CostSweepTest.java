@@ -0,0 +1,178 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class CostSweepTest {
+
+  @DisplayName("Range")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"5|5|1", "1:2:1|1|2", "50:60:0.5|50|21", "50:60.2:0.5|50|21", "0.1:0.1:1|0.1|1",
+      "1 : 3 : 0.25|1|9"}, delimiter = '|')
+  void range(String text, BigDecimal expectedFrom, long expectedCount) {
+    // when
+    var range = CostSweep.Range.parse(text);
+
+    // then
+    assertAll("Range", () -> assertEquals(expectedFrom, range.from()),
+        () -> assertEquals(expectedCount, range.count()));
+  }
+
+  @DisplayName("Values of a range are exact")
+  @Test
+  void exactValues() {
+    // given
+    var range = CostSweep.Range.parse("0.1:1:0.1");
+
+    // when and then
+    assertAll("Values", () -> assertEquals(new BigDecimal("0.3"), range.value(2)),
+        () -> assertEquals(new BigDecimal("1.0"), range.value(range.count() - 1)));
+  }
+
+  @DisplayName("Invalid range")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"", "abc", "0", "-1", "1:2", "1:2:3:4", "0:2:1", "3:1:1", "1:2:0", "1:2:-1", "1:x:1",
+      "1:1E+20:1E-20"})
+  void invalidRange(String text) {
+    // when and then
+    assertNull(CostSweep.Range.parse(text));
+  }
+
+  @DisplayName("Blocks estimated in parallel are written in the grid order")
+  @Test
+  void gridOrder() throws IOException {
+    // given
+    var estimator = RideCostEstimator.volumeByDistanceEstimator();
+    var prices = CostSweep.Range.parse("50:51:0.5");
+    var ratios = CostSweep.Range.parse("4:6:1");
+    var distances = CostSweep.Range.parse("10:100:10");
+    var expected = new StringBuilder("price,ratio,distance,cost\n");
+    var output = new StringWriter();
+    var pool = new ForkJoinPool(4);
+
+    for (long p = 0; p < prices.count(); p++) {
+      for (long r = 0; r < ratios.count(); r++) {
+        for (long d = 0; d < distances.count(); d++) {
+          expected.append(prices.value(p)).append(',').append(ratios.value(r)).append(',')
+              .append(distances.value(d)).append(',').append(estimator.estimateCostOfRide(ratios.value(r),
+                  prices.value(p), distances.value(d), Rounding.TWO_DECIMAL_PLACES)).append('\n');
+        }
+      }
+    }
+
+    // when
+    long cells;
+
+    try (var results = ResultWriter.of(output, ResultWriter.Format.CSV)) {
+      cells = new CostSweep(prices, ratios, distances,
+          (price, ratio) -> (distance) -> estimator.estimateCostOfRide(ratio, price, distance,
+              Rounding.TWO_DECIMAL_PLACES), 3).sweep(pool, results);
+    } finally {
+      pool.shutdown();
+    }
+
+    // then
+    assertAll("Grid", () -> assertEquals(90, cells), () -> assertEquals(expected.toString(), output.toString()));
+  }
+
+  @DisplayName("Plain format is a matrix")
+  @Test
+  void plainMatrix() {
+    // given
+    var commandLine = new CommandLine(new RideCost());
+    var output = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(output));
+
+    // when
+    var exitCode = commandLine.execute("-l", "6", "-2", "--sweep", "price=50:60:5", "--sweep",
+        "distance=100:300:100");
+
+    // then
+    assertAll("Matrix", () -> assertEquals(0, exitCode),
+        () -> assertEquals("300.00 600.00 900.00\n330.00 660.00 990.00\n360.00 720.00 1080.00\n",
+            output.toString()));
+  }
+
+  @DisplayName("Swept ratio replaces the saved one")
+  @Test
+  void sweptRatio() {
+    // given
+    var state = new Properties();
+
+    state.setProperty("distancePerVolume", "10");
+
+    var commandLine = new CommandLine(new RideCost(state));
+    var output = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(output));
+
+    // when
+    var exitCode = commandLine.execute("-p", "50", "-0", "--format", "ndjson", "--sweep",
+        "volume-per-distance=4:5:1", "100");
+
+    // then
+    assertAll("Swept ratio", () -> assertEquals(0, exitCode),
+        () -> assertEquals("{\"price\":50,\"ratio\":4,\"distance\":100,\"cost\":200}\n"
+            + "{\"price\":50,\"ratio\":5,\"distance\":100,\"cost\":250}\n", output.toString()));
+  }
+
+  @DisplayName("Invalid sweep")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"mpg=1:3:1|Unknown sweep dimension mpg",
+      "price=3:1:1|Sweep of price must be FROM:TO:STEP or a single value, all positive, but got 3:1:1",
+      "volume-per-distance=1:3:1|Swept volume-per-distance cannot be given as an option or parameter",
+      "distance=1:3:1|Swept distance cannot be given as an option or parameter"}, delimiter = '|')
+  void invalidSweep(String sweep, String expectedMessage) {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var errors = new StringWriter();
+
+    commandLine.setErr(new PrintWriter(errors));
+
+    // when
+    var exitCode = commandLine.execute("-p", "60", "-l", "3", "--sweep", sweep, "4");
+
+    // then
+    assertAll("Invalid sweep", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString(expectedMessage)));
+  }
+
+  @DisplayName("Sweep and batch are mutually exclusive")
+  @Test
+  void sweepAndBatch() {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var errors = new StringWriter();
+
+    commandLine.setErr(new PrintWriter(errors));
+
+    // when
+    var exitCode = commandLine.execute("-p", "60", "-l", "3", "--sweep", "price=1:3:1", "-b");
+
+    // then
+    assertAll("Sweep and batch", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("Sweep cannot be combined with batch input")));
+  }
+
+}
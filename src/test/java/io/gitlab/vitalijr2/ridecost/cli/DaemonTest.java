@@ -0,0 +1,271 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("slow")
+class DaemonTest {
+
+  @TempDir
+  Path folder;
+
+  private CostCache cache;
+  private CompletableFuture<Void> daemon;
+  private Path socketPath;
+
+  @BeforeEach
+  void setUp() throws InterruptedException {
+    cache = new CostCache(16);
+    socketPath = folder.resolve("ridecost.sock");
+    daemon = CompletableFuture.runAsync(() -> {
+      try {
+        new RideCostDaemon(socketPath, 2, 2, cache).serve();
+      } catch (IOException exception) {
+        throw new RuntimeException(exception);
+      }
+    });
+    while (Files.notExists(socketPath) && !daemon.isDone()) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> daemon.get());
+  }
+
+  @DisplayName("Estimate remotely")
+  @Test
+  void estimateRemotely() {
+    // given
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath, new String[]{"--remote", "-p", "59.99", "-l", "4.3", "-2", "456"},
+        new PrintWriter(output), new PrintWriter(errors));
+
+    // then
+    assertAll("Remote estimate", () -> assertEquals(0, exitCode), () -> assertEquals("1176.28\n", output.toString()),
+        () -> assertEquals("", errors.toString()));
+  }
+
+  @DisplayName("Requests share the cache of the daemon")
+  @Test
+  void sharedCache() {
+    // given
+    var arguments = new String[]{"--remote", "-p", "59.99", "-l", "4.3", "-2", "456"};
+    var firstOutput = new StringWriter();
+    var secondOutput = new StringWriter();
+
+    // when
+    RideCostClient.forward(socketPath, arguments, new PrintWriter(firstOutput), new PrintWriter(new StringWriter()));
+    RideCostClient.forward(socketPath, arguments, new PrintWriter(secondOutput), new PrintWriter(new StringWriter()));
+
+    // then
+    assertAll("Shared cache", () -> assertEquals("1176.28\n", secondOutput.toString()),
+        () -> assertEquals(firstOutput.toString(), secondOutput.toString()),
+        () -> assertEquals(new CostCache.Statistics(1, 1, 0, 1), cache.statistics()));
+  }
+
+  @DisplayName("Usage error is returned to the client")
+  @Test
+  void usageError() {
+    // given
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath, new String[]{"--remote", "-p", "59.99", "456"},
+        new PrintWriter(output), new PrintWriter(errors));
+
+    // then
+    assertAll("Remote usage error", () -> assertEquals(2, exitCode),
+        () -> assertTrue(errors.toString().startsWith("Fuel economy must be specified"), errors::toString));
+  }
+
+  @DisplayName("The daemon does not serve nested daemons")
+  @Test
+  void nestedDaemon() {
+    // given
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath, new String[]{"--remote", "--daemon"},
+        new PrintWriter(new StringWriter()), new PrintWriter(errors));
+
+    // then
+    assertEquals(2, exitCode);
+  }
+
+  @DisplayName("Serve several requests at once")
+  @Test
+  void concurrentRequests() {
+    // given
+    var requests = IntStream.range(0, 12).mapToObj(i -> new String[]{"--remote", "-p", "59.99", "-l", "4.3", "-2",
+        String.valueOf(100 + i)}).toList();
+    var expected = requests.stream().map(arguments -> {
+      var output = new StringWriter();
+      var commandLine = RideCost.commandLine(new RideCost(new Properties()));
+
+      commandLine.setOut(new PrintWriter(output));
+      commandLine.execute(Arrays.copyOfRange(arguments, 1, arguments.length));
+
+      return output.toString();
+    }).toList();
+
+    // when
+    var responses = requests.stream().map(arguments -> CompletableFuture.supplyAsync(() -> {
+      var output = new StringWriter();
+      var exitCode = RideCostClient.forward(socketPath, arguments, new PrintWriter(output),
+          new PrintWriter(new StringWriter()));
+
+      return exitCode + " " + output;
+    })).toList().stream().map(CompletableFuture::join).toList();
+
+    // then
+    assertEquals(expected.stream().map(output -> "0 " + output).toList(), responses);
+  }
+
+  @DisplayName("The daemon does not read the standard input of the client")
+  @Test
+  void standardInput() {
+    // given
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath, new String[]{"--remote", "-p", "59.99", "-l", "4.3", "-b"},
+        new PrintWriter(new StringWriter()), new PrintWriter(errors));
+
+    // then
+    assertAll("Standard input", () -> assertEquals(2, exitCode),
+        () -> assertTrue(errors.toString().startsWith("The daemon cannot read the standard input"), errors::toString));
+  }
+
+  @DisplayName("The daemon does not resolve relative paths")
+  @ParameterizedTest
+  @ValueSource(strings = {"--input", "--aggregate", "--inputs", "--output", "--metrics"})
+  void relativePath(String option) {
+    // given
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath,
+        new String[]{"--remote", "-p", "59.99", "-l", "4.3", option, "trips.txt"},
+        new PrintWriter(new StringWriter()), new PrintWriter(errors));
+
+    // then
+    assertAll("Relative path", () -> assertEquals(2, exitCode),
+        () -> assertTrue(errors.toString().startsWith("The daemon needs an absolute path instead of trips.txt"),
+            errors::toString), () -> assertFalse(Files.exists(Path.of("trips.txt"))));
+  }
+
+  @DisplayName("A broken request gets an error response")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(ints = {-1, DaemonProtocol.MAX_ARGUMENTS + 1, Integer.MAX_VALUE})
+  void brokenRequest(int arguments) throws IOException {
+    // given
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+      var output = new DataOutputStream(Channels.newOutputStream(channel));
+      var out = new StringWriter();
+      var errors = new StringWriter();
+
+      // when
+      output.writeInt(arguments);
+      output.flush();
+
+      var exitCode = DaemonProtocol.readResponse(new DataInputStream(Channels.newInputStream(channel)), out, errors);
+
+      // then
+      assertAll("Broken request", () -> assertEquals(1, exitCode), () -> assertEquals("", out.toString()),
+          () -> assertTrue(errors.toString().startsWith("The daemon cannot serve the request"), errors::toString));
+    }
+  }
+
+  @DisplayName("An argument longer than the limit is refused")
+  @Test
+  void tooLongArgument() throws IOException {
+    // given
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+      var output = new DataOutputStream(Channels.newOutputStream(channel));
+      var errors = new StringWriter();
+
+      // when
+      output.writeInt(1);
+      output.writeInt(Integer.MAX_VALUE);
+      output.flush();
+
+      var exitCode = DaemonProtocol.readResponse(new DataInputStream(Channels.newInputStream(channel)),
+          new StringWriter(), errors);
+
+      // then
+      assertAll("Too long argument", () -> assertEquals(1, exitCode),
+          () -> assertTrue(errors.toString().contains("the limit is 65536"), errors::toString));
+    }
+  }
+
+  @DisplayName("Long output is streamed in frames")
+  @Test
+  void longOutput() throws IOException {
+    // given
+    var distances = Files.writeString(folder.resolve("distances.txt"),
+        IntStream.rangeClosed(1, 20_000).mapToObj(Integer::toString).collect(Collectors.joining("\n", "", "\n")));
+    var out = new StringWriter();
+
+    // when
+    var exitCode = RideCostClient.forward(socketPath,
+        new String[]{"--remote", "-p", "59.99", "-l", "4.3", "-2", "-i", distances.toString()}, new PrintWriter(out),
+        new PrintWriter(new StringWriter()));
+
+    // then
+    assertAll("Long output", () -> assertEquals(0, exitCode),
+        () -> assertEquals(20_000, out.toString().lines().count()));
+  }
+
+  @DisplayName("Stop after the idle timeout")
+  @Test
+  void idleTimeout() throws ExecutionException, InterruptedException {
+    // when
+    daemon.get();
+
+    // then
+    assertFalse(Files.exists(socketPath));
+  }
+
+}
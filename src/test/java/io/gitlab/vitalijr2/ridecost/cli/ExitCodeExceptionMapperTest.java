@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import picocli.CommandLine;
 
 @Tag("fast")
 class ExitCodeExceptionMapperTest {
@@ -19,4 +22,23 @@ class ExitCodeExceptionMapperTest {
     assertEquals(1, mapper.getExitCode(new RuntimeException("test exception")));
   }
 
-}
\ No newline at end of file
+  @DisplayName("Parameter exception")
+  @Test
+  void parameterException() {
+    // given
+    var mapper = new ExitCodeExceptionMapper();
+    var commandLine = new CommandLine(new RideCost());
+
+    // when and then
+    assertEquals(2, mapper.getExitCode(new CommandLine.ParameterException(commandLine, "test exception")));
+  }
+
+  @DisplayName("Outcome of a run")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource({"SUCCESS, 0", "COMPLETED_WITH_REJECTS, 3", "PARTIAL_SUCCESS, 4", "FAILURE, 1"})
+  void outcome(ExitCodeExceptionMapper.Outcome outcome, int exitCode) {
+    // when and then
+    assertEquals(exitCode, ExitCodeExceptionMapper.getExitCode(outcome));
+  }
+
+}
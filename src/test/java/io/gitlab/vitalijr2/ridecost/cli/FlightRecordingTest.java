@@ -0,0 +1,75 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("slow")
+class FlightRecordingTest {
+
+  @TempDir
+  Path folder;
+
+  @DisplayName("Destination of the recording")
+  @Test
+  void destination() {
+    // when and then
+    assertAll("Destination", () -> assertNull(FlightRecording.destination(new String[]{"-p", "1.5", "100"})),
+        () -> assertEquals(Path.of("run.jfr"), FlightRecording.destination(new String[]{"--jfr-file", "run.jfr"})),
+        () -> assertEquals(Path.of("run.jfr"), FlightRecording.destination(new String[]{"--jfr-file=run.jfr"})),
+        () -> assertThat(FlightRecording.destination(new String[]{"100", "--jfr"}).toString(),
+            matchesPattern("ridecost-\\d+\\.jfr")));
+  }
+
+  @DisplayName("Ride cost events are recorded")
+  @Test
+  void rideCostEvents() throws IOException {
+    // given
+    var destination = folder.resolve("run.jfr");
+    var args = new String[]{"-p", "59.99", "-l", "4.3", "-2", "--jfr-file", destination.toString(), "--input",
+        "src/test/resources/io/gitlab/vitalijr2/ridecost/cli/batch.txt"};
+    var recording = FlightRecording.start(args);
+
+    assertNotNull(recording);
+
+    var commandLine = RideCost.commandLine(new RideCost());
+
+    commandLine.setOut(new PrintWriter(new StringWriter()));
+
+    // when
+    commandLine.execute(args);
+    recording.stop();
+
+    // then
+    var events = RecordingFile.readAllEvents(destination).stream()
+        .filter(event -> event.getEventType().getName().startsWith("io.gitlab.vitalijr2.ridecost."))
+        .collect(Collectors.toList());
+
+    assertThat(events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList()),
+        hasItems("io.gitlab.vitalijr2.ridecost.Validation", "io.gitlab.vitalijr2.ridecost.RoundingResolution",
+            "io.gitlab.vitalijr2.ridecost.Estimation", "io.gitlab.vitalijr2.ridecost.Batch"));
+
+    var batch = events.stream().filter(event -> event.getEventType().getName().endsWith(".Batch")).findFirst()
+        .orElseThrow();
+
+    assertAll("Batch event", () -> assertEquals(3L, batch.getLong("records")),
+        () -> assertEquals("volume-per-distance", batch.getString("estimator")),
+        () -> assertEquals("TWO_DECIMAL_PLACES", batch.getString("rounding")));
+  }
+
+}
@@ -0,0 +1,156 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("slow")
+class MappedTripReaderTest {
+
+  @TempDir
+  Path folder;
+
+  @DisplayName("Read trips window by window")
+  @ParameterizedTest(name = "window of {0} bytes")
+  @ValueSource(longs = {24, 25, 64, MappedTripReader.DEFAULT_WINDOW_SIZE})
+  void readWindowByWindow(long windowSize) throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.csv");
+    var trips = new ArrayList<String>();
+
+    Files.writeString(tripLog,
+        "# vehicle,distance\nvan, 456\r\n\n  car ,100.5\n300\nvan,1e2\nvan,12345678901234567890");
+
+    // when
+    read(tripLog, windowSize, trips);
+
+    // then
+    assertEquals(List.of("19:van:456:true", "30:car:100.5:true", "43:null:300:true", "47:van:1E+2:false",
+        "55:van:12345678901234567890:false"), trips);
+  }
+
+  @DisplayName("Vehicle names are decoded once")
+  @Test
+  void vehicleNamesAreDecodedOnce() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.csv");
+    var lines = new StringBuilder();
+    var vehicles = new ArrayList<String>();
+
+    for (int i = 0; i < 1000; i++) {
+      lines.append("vehicle-").append(i % 100).append(",1\n");
+    }
+    Files.writeString(tripLog, lines);
+
+    // when
+    try (var channel = FileChannel.open(tripLog)) {
+      new MappedTripReader(channel).read(0, channel.size(), (trip) -> vehicles.add(trip.vehicle()));
+    }
+
+    // then
+    for (int i = 100; i < vehicles.size(); i++) {
+      assertSame(vehicles.get(i % 100), vehicles.get(i));
+    }
+    assertEquals("vehicle-99", vehicles.get(999));
+  }
+
+  @DisplayName("Invalid trip")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"abc|value.not-a-number|abc", "-100|value.non-positive|-100", "0.00|value.non-positive|0.00",
+      "-1e30|value.non-positive|-1e30", "van,|value.not-a-number|''"}, delimiter = '|')
+  void invalidTrip(String record, String expectedReasonKey, String expectedValue) throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.csv");
+
+    Files.writeString(tripLog, "van,456\n" + record + "\n");
+
+    // when
+    var exception = assertThrows(MappedTripReader.InvalidTripException.class,
+        () -> read(tripLog, 16, new ArrayList<>()));
+
+    // then
+    assertAll("Invalid trip", () -> assertEquals(8, exception.offset()),
+        () -> assertEquals(expectedReasonKey, exception.reasonKey()),
+        () -> assertEquals(expectedValue, exception.value()));
+  }
+
+  @DisplayName("A line is longer than the window")
+  @Test
+  void lineIsLongerThanWindow() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.csv");
+
+    Files.writeString(tripLog, "van,456\nvery-long-vehicle-name,100\n");
+
+    // when
+    var exception = assertThrows(IOException.class, () -> read(tripLog, 16, new ArrayList<>()));
+
+    // then
+    assertThat(exception.getMessage(), startsWith("The line at byte 8 is longer than 16 bytes"));
+  }
+
+  @DisplayName("Parse a decimal from bytes")
+  @Test
+  void parseBytes() {
+    // given
+    var buffer = ByteBuffer.wrap("x12.50y".getBytes());
+    var decimal = new FixedPointDecimal();
+
+    // when and then
+    assertAll("Parse", () -> assertTrue(decimal.parse(buffer, 1, 6)),
+        () -> assertEquals(new BigDecimal("12.50"), BigDecimal.valueOf(decimal.unscaled(), decimal.scale())),
+        () -> assertFalse(decimal.parse(buffer, 0, 6)), () -> assertFalse(decimal.parse(buffer, 3, 3)));
+  }
+
+  private void read(Path tripLog, long windowSize, List<String> trips) throws IOException {
+    try (var channel = FileChannel.open(tripLog)) {
+      new MappedTripReader(channel, windowSize).read(0, channel.size(), (trip) -> trips.add(
+          trip.offset() + ":" + trip.vehicle() + ':' + trip.distance() + ':' + trip.isFixedPoint()));
+    }
+  }
+
+  @DisplayName("Parse a decimal")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource({"456,456,0", "23.2,232,1", "-0.05,-5,2", "+7.,7,0", "0.000,0,3"})
+  void parse(String text, long expectedUnscaled, int expectedScale) {
+    // given
+    var decimal = new FixedPointDecimal();
+
+    // when
+    var parsed = decimal.parse(text);
+
+    // then
+    assertAll("Fixed-point decimal", () -> assertTrue(parsed), () -> assertEquals(expectedUnscaled, decimal.unscaled()),
+        () -> assertEquals(expectedScale, decimal.scale()));
+  }
+
+  @DisplayName("Not a fixed-point decimal")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"", "-", ".", "1e3", "1.2.3", "abc", "1234567890123456789"})
+  void notFixedPoint(String text) {
+    // when and then
+    assertFalse(new FixedPointDecimal().parse(text));
+  }
+
+}
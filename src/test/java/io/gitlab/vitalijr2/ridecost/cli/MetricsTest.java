@@ -0,0 +1,152 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gitlab.vitalijr2.ridecost.api.CostCache;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+@Tag("slow")
+class MetricsTest {
+
+  @TempDir
+  Path folder;
+
+  @DisplayName("Metrics file from the command line")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"--metrics|run.prom|run.prom", "--metrics=run.prom|100|run.prom", "100|-0|NIL"},
+      delimiter = '|', nullValues = "NIL")
+  void metricsFileFromCommandLine(String first, String second, String expectedFile) {
+    // when
+    var metrics = Metrics.of(new String[]{"-p", "1.5", first, second});
+
+    // then
+    assertEquals(null != expectedFile, metrics.isEnabled());
+  }
+
+  @DisplayName("Disabled metrics record nothing")
+  @Test
+  void disabledMetrics() {
+    // given
+    var metrics = Metrics.disabled();
+
+    // when
+    try (var ignored = metrics.phase("estimation")) {
+      metrics.records(10);
+    }
+
+    // then
+    assertFalse(metrics.isEnabled());
+  }
+
+  @DisplayName("Prometheus text format")
+  @Test
+  void prometheus() {
+    // given
+    var metrics = Metrics.enabled(folder.resolve("run.prom"));
+
+    metrics.record("bundle", 1_500_000, -1);
+    metrics.record("estimation", 2_000_000_000L, 4096);
+    metrics.records(1000);
+
+    // when
+    var text = metrics.toPrometheus(0);
+
+    // then
+    assertAll("Samples",
+        () -> assertThat(text, containsString("ridecost_phase_seconds{phase=\"bundle\"} 0.001500000\n")),
+        () -> assertThat(text, containsString("ridecost_phase_seconds{phase=\"estimation\"} 2.000000000\n")),
+        () -> assertThat(text, containsString("ridecost_phase_allocated_bytes{phase=\"estimation\"} 4096\n")),
+        () -> assertThat(text, not(containsString("ridecost_phase_allocated_bytes{phase=\"bundle\"}"))),
+        () -> assertThat(text, containsString("ridecost_records 1000\n")),
+        () -> assertThat(text, containsString("ridecost_records_per_second 500.000\n")),
+        () -> assertThat(text, containsString("ridecost_exit_code 0\n")));
+  }
+
+  @DisplayName("JSON format")
+  @Test
+  void json() {
+    // given
+    var metrics = Metrics.enabled(folder.resolve("run.json"));
+
+    metrics.record("bundle", 1_500_000, -1);
+    metrics.record("estimation", 2_000_000_000L, 4096);
+    metrics.records(1000);
+
+    // when
+    var json = metrics.toJson(2);
+
+    // then
+    assertEquals("{\"phases\":{\"bundle\":{\"seconds\":0.001500000},"
+        + "\"estimation\":{\"seconds\":2.000000000,\"allocatedBytes\":4096}},"
+        + "\"records\":1000,\"recordsPerSecond\":500.000,\"exitCode\":2}\n", json);
+  }
+
+  @DisplayName("Cache statistics")
+  @Test
+  void cacheStatistics() {
+    // given
+    var metrics = Metrics.enabled(folder.resolve("run.json"));
+
+    metrics.cache(new CostCache.Statistics(7, 3, 1, 2));
+
+    // when
+    var json = metrics.toJson(0);
+    var text = metrics.toPrometheus(0);
+
+    // then
+    assertAll("Cache", () -> assertEquals(
+            "{\"phases\":{},\"cache\":{\"hits\":7,\"misses\":3,\"evictions\":1,\"entries\":2},\"exitCode\":0}\n", json),
+        () -> assertThat(text, containsString("ridecost_cache_hits_total 7\n")),
+        () -> assertThat(text, containsString("ridecost_cache_misses_total 3\n")),
+        () -> assertThat(text, containsString("ridecost_cache_evictions_total 1\n")),
+        () -> assertThat(text, containsString("ridecost_cache_entries 2\n")));
+  }
+
+  @DisplayName("Write metrics of a batch run")
+  @Test
+  void batchRun() throws IOException {
+    // given
+    var metricsFile = folder.resolve("run.prom");
+    var instance = new RideCost();
+    var commandLine = RideCost.commandLine(instance);
+
+    commandLine.setOut(new PrintWriter(new StringWriter()));
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "--metrics", metricsFile.toString(), "--input",
+        "src/test/resources/io/gitlab/vitalijr2/ridecost/cli/batch.txt");
+
+    instance.writeMetrics(exitCode);
+
+    // then
+    var text = Files.readString(metricsFile);
+
+    assertAll("Metrics", () -> assertEquals(0, exitCode), () -> assertTrue(Files.exists(metricsFile)),
+        () -> assertThat(text, containsString("ridecost_records 3\n")),
+        () -> assertThat(text, matchesPattern(phaseSample("validation"))),
+        () -> assertThat(text, matchesPattern(phaseSample("estimation"))),
+        () -> assertThat(text, matchesPattern(phaseSample("save_state"))));
+  }
+
+  private String phaseSample(String phase) {
+    return "(?s).*ridecost_phase_seconds\\{phase=\"" + phase + "\"} \\d+\\.\\d{9}\n.*";
+  }
+
+}
@@ -0,0 +1,214 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("slow")
+class MultiFileBatchTest {
+
+  @TempDir
+  Path folder;
+
+  private int execute(StringWriter output, StringWriter errors, String... args) {
+    var commandLine = RideCost.commandLine(new RideCost());
+
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+
+    return commandLine.execute(args);
+  }
+
+  @DisplayName("Every file goes to its own output")
+  @Test
+  void everyFile() throws IOException {
+    // given
+    Files.writeString(folder.resolve("depot-1.csv"), "456\n100\n");
+    Files.writeString(folder.resolve("depot-2.csv"), "# comment\n100.0\n");
+    Files.writeString(folder.resolve("depot-3.txt"), "1\n");
+
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "-2", "--inputs",
+        folder.resolve("*.csv").toString());
+
+    // then
+    assertAll("Files", () -> assertEquals(0, exitCode),
+        () -> assertEquals("2 of 2 files are estimated, 3 records\n", output.toString()),
+        () -> assertEquals("1176.28\n257.96\n", Files.readString(folder.resolve("depot-1.csv.costs"))),
+        () -> assertEquals("257.96\n", Files.readString(folder.resolve("depot-2.csv.costs"))),
+        () -> assertFalse(Files.exists(folder.resolve("depot-3.txt.costs"))));
+  }
+
+  @DisplayName("Outputs get the default permissions or keep their own")
+  @Test
+  void outputPermissions() throws IOException {
+    // given
+    assumeTrue(Files.getFileStore(folder).supportsFileAttributeView(PosixFileAttributeView.class));
+    Files.writeString(folder.resolve("depot-1.csv"), "456\n");
+    Files.writeString(folder.resolve("depot-2.csv"), "100\n");
+    Files.setPosixFilePermissions(Files.writeString(folder.resolve("depot-2.csv.costs"), "old\n"),
+        PosixFilePermissions.fromString("rw-r-----"));
+
+    var expected = Files.getPosixFilePermissions(Files.createFile(folder.resolve("plain.txt")));
+
+    // when
+    var exitCode = execute(new StringWriter(), new StringWriter(), "-p", "59.99", "-l", "4.3", "-2", "--inputs",
+        folder.resolve("*.csv").toString());
+
+    // then
+    assertAll("Permissions", () -> assertEquals(0, exitCode),
+        () -> assertEquals(expected, Files.getPosixFilePermissions(folder.resolve("depot-1.csv.costs"))),
+        () -> assertEquals("rw-r-----",
+            PosixFilePermissions.toString(Files.getPosixFilePermissions(folder.resolve("depot-2.csv.costs")))),
+        () -> assertEquals("257.96\n", Files.readString(folder.resolve("depot-2.csv.costs"))));
+  }
+
+  @DisplayName("A failed file does not stop the others")
+  @Test
+  void partialSuccess() throws IOException {
+    // given
+    var results = Files.createDirectory(folder.resolve("results"));
+
+    Files.writeString(folder.resolve("depot-1.csv"), "456\n");
+    Files.writeString(folder.resolve("depot-2.csv"), "100\nabc\n");
+
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "-2", "--format", "csv", "--output-folder",
+        results.toString(), "--inputs", folder.resolve("depot-*.csv").toString());
+
+    // then
+    assertAll("Partial success", () -> assertEquals(4, exitCode),
+        () -> assertEquals("1 of 2 files are estimated, 1 records\n", output.toString()),
+        () -> assertThat(errors.toString(), containsString("depot-2.csv is not estimated: Line 2: Must be a number")),
+        () -> assertEquals("distance,cost\n456,1176.28\n", Files.readString(results.resolve("depot-1.csv.costs"))),
+        () -> assertEquals(List.of("depot-1.csv.costs"), Files.list(results).map(Path::getFileName)
+            .map(Path::toString).collect(Collectors.toList())));
+  }
+
+  @DisplayName("Every file failed")
+  @Test
+  void everyFileFailed() throws IOException {
+    // given
+    Files.writeString(folder.resolve("depot-1.csv"), "-1\n");
+
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "--inputs",
+        folder.resolve("*.csv").toString());
+
+    // then
+    assertAll("Failed", () -> assertEquals(1, exitCode),
+        () -> assertEquals("0 of 1 files are estimated, 0 records\n", output.toString()));
+  }
+
+  @DisplayName("No files match")
+  @Test
+  void noFiles() {
+    // given
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "--inputs",
+        folder.resolve("*.csv").toString());
+
+    // then
+    assertAll("No files", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("No files match")));
+  }
+
+  @DisplayName("Outputs of an earlier run are not inputs")
+  @Test
+  void rerun() throws IOException {
+    // given
+    Files.writeString(folder.resolve("a.csv"), "456\n");
+    Files.writeString(folder.resolve("a.csv.costs"), "1176.28\n");
+    Files.writeString(folder.resolve("b.csv.costs.1234567890.tmp"), "");
+    Files.writeString(folder.resolve("notes.tmp"), "");
+
+    // when
+    var inputs = MultiFileBatch.match(folder.resolve("*").toString());
+
+    // then
+    assertEquals(List.of(folder.resolve("a.csv"), folder.resolve("notes.tmp")), inputs);
+  }
+
+  @DisplayName("Several input files and batch input are mutually exclusive")
+  @Test
+  void inputsAndBatch() {
+    // given
+    var output = new StringWriter();
+    var errors = new StringWriter();
+
+    // when
+    var exitCode = execute(output, errors, "-p", "59.99", "-l", "4.3", "-b", "--inputs",
+        folder.resolve("*.csv").toString());
+
+    // then
+    assertAll("Exclusive", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("Several input files cannot be combined")));
+  }
+
+  @DisplayName("No more files than allowed are open at once")
+  @Test
+  void openFiles() throws IOException, InterruptedException {
+    // given
+    var running = new AtomicInteger();
+    var maxRunning = new AtomicInteger();
+    var multiFileBatch = new MultiFileBatch((batchInput, results) -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(20);
+        results.estimate(BigDecimal.ONE, new BigDecimal(batchInput.readLine()));
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+
+      return 1;
+    }, ResultWriter.Format.PLAIN, 3, null);
+
+    for (int i = 0; i < 20; i++) {
+      Files.writeString(folder.resolve(String.format("depot-%02d.csv", i)), i + "\n");
+    }
+
+    // when
+    var summary = multiFileBatch.estimate(MultiFileBatch.match(folder.resolve("*.csv").toString()));
+
+    // then
+    assertAll("Open files", () -> assertEquals(20, summary.records()), () -> assertEquals(0, summary.failed()),
+        () -> assertTrue(maxRunning.get() <= 3, maxRunning::toString),
+        () -> assertEquals("7\n", Files.readString(folder.resolve("depot-07.csv.costs"))),
+        () -> assertEquals(folder.resolve("depot-19.csv"), summary.files().get(19).input()));
+  }
+
+}
@@ -0,0 +1,215 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+@Tag("slow")
+class ProfileStoreTest {
+
+  @TempDir
+  Path folder;
+
+  private MockedStatic<RideCost> ridecost;
+  private Path storeFile;
+  private StringWriter output;
+  private StringWriter errors;
+
+  @BeforeEach
+  void setUp() {
+    storeFile = folder.resolve("ridecost.profiles");
+    ridecost = Mockito.mockStatic(RideCost.class, Mockito.CALLS_REAL_METHODS);
+    ridecost.when(RideCost::getProfileStoreFile).thenReturn(storeFile);
+    ridecost.when(RideCost::getStateFile).thenReturn(folder.resolve("ridecost.properties").toFile());
+    output = new StringWriter();
+    errors = new StringWriter();
+  }
+
+  @AfterEach
+  void tearDown() {
+    ridecost.close();
+  }
+
+  @DisplayName("Find every profile of a large store")
+  @Test
+  void findEveryProfile() throws IOException {
+    // given
+    var profiles = new LinkedHashMap<String, Profile>();
+
+    for (int i = 0; i < 5000; i++) {
+      profiles.put("vehicle-" + i, (0 == i % 2)
+          ? new Profile(BigDecimal.valueOf(i, 1), null, BigDecimal.valueOf(i + 100, 2), Rounding.TWO_DECIMAL_PLACES)
+          : new Profile(null, BigDecimal.valueOf(i, 3), BigDecimal.valueOf(i + 100, 2), null));
+    }
+    Files.write(storeFile, ProfileStore.encode(profiles).array());
+
+    // when
+    var store = ProfileStore.open(storeFile);
+
+    // then
+    assertEquals(5000, store.size());
+    profiles.forEach((name, profile) -> assertEquals(profile, store.find(name), name));
+    assertNull(store.find("vehicle-5000"));
+  }
+
+  @DisplayName("Save, list and delete profiles")
+  @Test
+  void saveListAndDelete() throws IOException {
+    // given
+    ProfileStore.save(storeFile, "van", new Profile(null, BigDecimal.valueOf(8.5), BigDecimal.valueOf(1.75), null));
+    ProfileStore.save(storeFile, "car",
+        new Profile(BigDecimal.valueOf(42), null, BigDecimal.valueOf(1.8), Rounding.WHOLE));
+    ProfileStore.save(storeFile, "van", new Profile(null, BigDecimal.valueOf(9), BigDecimal.valueOf(1.75), null));
+
+    // when
+    var deleted = ProfileStore.delete(storeFile, "car");
+
+    // then
+    var store = ProfileStore.open(storeFile);
+
+    assertAll("Profiles", () -> assertTrue(deleted), () -> assertFalse(ProfileStore.delete(storeFile, "car")),
+        () -> assertThat(store.names(), contains("van")),
+        () -> assertEquals(BigDecimal.valueOf(9), store.find("van").volumePerDistance()));
+  }
+
+  @DisplayName("A missing store is empty")
+  @Test
+  void missingStore() throws IOException {
+    // when
+    var store = ProfileStore.open(storeFile);
+
+    // then
+    assertAll("Empty store", () -> assertEquals(0, store.size()), () -> assertThat(store.names(), empty()),
+        () -> assertFalse(ProfileStore.delete(storeFile, "van")));
+  }
+
+  @DisplayName("Not a profile store")
+  @Test
+  void notProfileStore() throws IOException {
+    // given
+    Files.writeString(storeFile, "price=1.75\nvolumePerDistance=8.5\n");
+
+    // when
+    var exception = assertThrows(IOException.class, () -> ProfileStore.open(storeFile));
+
+    // then
+    assertThat(exception.getMessage(), startsWith("Not a profile store"));
+  }
+
+  @DisplayName("Save a profile and use it")
+  @Test
+  void saveAndUseProfile() {
+    // given
+    execute("--profile", "van", "-p", "1.5", "-l", "8", "-2", "-s", "100");
+    output.getBuffer().setLength(0);
+
+    // when
+    var exitCode = execute("--profile", "van", "250");
+
+    // then
+    assertAll("Profile is used", () -> assertEquals(0, exitCode), () -> assertEquals("30.00\n", output.toString()));
+  }
+
+  @DisplayName("Options of the command line take precedence over the profile")
+  @Test
+  void commandLineTakesPrecedence() throws IOException {
+    // given
+    ProfileStore.save(storeFile, "van",
+        new Profile(null, BigDecimal.valueOf(8), BigDecimal.valueOf(1.5), Rounding.TWO_DECIMAL_PLACES));
+
+    // when
+    var exitCode = execute("--profile", "van", "-m", "20", "-0", "250");
+
+    // then
+    assertAll("Mileage and rounding are overridden", () -> assertEquals(0, exitCode),
+        () -> assertEquals("19\n", output.toString()));
+  }
+
+  @DisplayName("Saved ratio gives way to the other one from the command line")
+  @Test
+  void mixedRatios() throws IOException {
+    // given
+    Files.writeString(folder.resolve("ridecost.properties"), "distancePerVolume=40\nprice=2\n");
+
+    // when
+    var exitCode = execute("-l", "10", "250");
+
+    // then
+    assertAll("No conflict", () -> assertEquals(0, exitCode), () -> assertEquals("50.00\n", output.toString()));
+  }
+
+  @DisplayName("Unknown profile")
+  @Test
+  void unknownProfile() {
+    // when
+    var exitCode = execute("--profile", "bus", "250");
+
+    // then
+    assertAll("Usage error", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), startsWith("Unknown profile: bus")));
+  }
+
+  @DisplayName("Profile commands")
+  @Test
+  void profileCommands() {
+    // given
+    execute("--profile", "van", "-p", "1.5", "-l", "8", "-2", "-s", "100");
+    execute("--profile", "car", "-p", "1.7", "-m", "50", "-s", "100");
+    output.getBuffer().setLength(0);
+
+    // when
+    var listExitCode = execute("profile", "list");
+    var list = output.toString();
+
+    output.getBuffer().setLength(0);
+
+    var showExitCode = execute("profile", "show", "van");
+    var show = output.toString();
+
+    output.getBuffer().setLength(0);
+
+    var deleteExitCode = execute("profile", "delete", "car");
+    var secondDeleteExitCode = execute("profile", "delete", "car");
+
+    // then
+    assertAll("Profile commands", () -> assertEquals(0, listExitCode), () -> assertEquals("car\nvan\n", list),
+        () -> assertEquals(0, showExitCode),
+        () -> assertEquals("volumePerDistance=8\nprice=1.5\nroundTo=2\n", show),
+        () -> assertEquals(0, deleteExitCode), () -> assertEquals(2, secondDeleteExitCode),
+        () -> assertThat(errors.toString(), startsWith("Unknown profile: car")));
+  }
+
+  private int execute(String... args) {
+    var commandLine = RideCost.commandLine(new RideCost());
+
+    commandLine.setOut(new PrintWriter(output, true));
+    commandLine.setErr(new PrintWriter(errors, true));
+
+    return commandLine.execute(args);
+  }
+
+}
@@ -0,0 +1,192 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+@Tag("slow")
+class RejectsTest {
+
+  @TempDir
+  Path folder;
+
+  private CommandLine commandLine;
+  private StringWriter output;
+  private StringWriter errors;
+
+  @BeforeEach
+  void setUp() {
+    commandLine = RideCost.commandLine(new RideCost(new Properties()));
+    output = new StringWriter();
+    errors = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+  }
+
+  @DisplayName("Line numbers and byte offsets of the batch input")
+  @Test
+  void lineOffsets() throws IOException {
+    // given
+    var input = "456\r\n\n\u043f\u0440\u0438\u0432\u0456\u0442\n\u20ac,\ud83d\ude00\nlast";
+    var batchReader = new BatchReader(new StringReader(input));
+    var lines = new ArrayList<String>();
+    String line;
+
+    // when
+    while ((line = batchReader.readLine()) != null) {
+      lines.add(batchReader.lineNumber() + ":" + batchReader.lineOffset() + ":" + line.strip());
+    }
+
+    // then
+    var bytes = input.getBytes(UTF_8);
+
+    assertAll("Lines", () -> assertEquals(5, lines.size()), () -> assertEquals("1:0:456", lines.get(0)),
+        () -> assertEquals("2:5:", lines.get(1)),
+        () -> assertEquals("3:6:\u043f\u0440\u0438\u0432\u0456\u0442", lines.get(2)),
+        () -> assertEquals("4:19:\u20ac,\ud83d\ude00", lines.get(3)), () -> assertEquals("5:28:last", lines.get(4)),
+        () -> assertEquals("last", new String(bytes, 28, 4, UTF_8)),
+        () -> assertEquals("\u20ac", new String(bytes, 19, 3, UTF_8)));
+  }
+
+  @DisplayName("Empty batch input has no lines")
+  @Test
+  void emptyInput() throws IOException {
+    // given
+    var batchReader = new BatchReader(new StringReader(""));
+
+    // when
+    var line = batchReader.readLine();
+
+    // then
+    assertAll("Empty input", () -> assertEquals(null, line), () -> assertEquals(0, batchReader.lineNumber()));
+  }
+
+  @DisplayName("Invalid records of the batch are rejected")
+  @Test
+  void batchRejects() throws IOException {
+    // given
+    var input = Files.writeString(folder.resolve("distances.txt"), "456\nabc\n\n100\n-5\n\"1,5\"\n");
+    var rejectsFile = folder.resolve("rejects.csv");
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-2", "--input", input.toString(), "--rejects",
+        rejectsFile.toString());
+
+    // then
+    assertAll("Batch rejects", () -> assertEquals(3, exitCode),
+        () -> assertEquals("1176.28\n257.96\n", output.toString()),
+        () -> assertEquals("line,offset,value,reason\n2,4,abc,\"Must be a number, but got abc\"\n"
+            + "5,13,-5,\"Must be a positive value, but got -5\"\n"
+            + "6,16,\"\"\"1,5\"\"\",\"Must be a number, but got \"\"1,5\"\"\"\n", Files.readString(rejectsFile)),
+        () -> assertThat(errors.toString(),
+            containsString("3 invalid records are written to " + rejectsFile + ", 2 records are estimated")));
+  }
+
+  @DisplayName("No rejects, no special exit code")
+  @Test
+  void noRejects() throws IOException {
+    // given
+    var input = Files.writeString(folder.resolve("distances.txt"), "456\n100\n");
+    var rejectsFile = folder.resolve("rejects.csv");
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-2", "--input", input.toString(), "--rejects",
+        rejectsFile.toString());
+
+    // then
+    assertAll("No rejects", () -> assertEquals(0, exitCode), () -> assertEquals("", errors.toString()),
+        () -> assertEquals("line,offset,value,reason\n", Files.readString(rejectsFile)));
+  }
+
+  @DisplayName("Rejects of parallel ranges are numbered by the lines of the whole log")
+  @Test
+  void aggregateRejects() throws IOException {
+    // given
+    var tripLog = new StringBuilder();
+    var expected = new ArrayList<TripAggregator.Reject>();
+    var expectedTotal = BigDecimal.ZERO;
+
+    for (int line = 1; line <= 2_000; line++) {
+      var offset = tripLog.length();
+
+      if (line % 97 == 0) {
+        tripLog.append("van,x").append(line).append('\n');
+        expected.add(new TripAggregator.Reject(line, offset, "value.not-a-number", "x" + line));
+      } else if (line % 89 == 0) {
+        tripLog.append("# comment\n");
+      } else {
+        tripLog.append("car,").append(line).append('\n');
+        expectedTotal = expectedTotal.add(BigDecimal.valueOf(line));
+      }
+    }
+
+    var tripLogFile = Files.writeString(folder.resolve("trips.csv"), tripLog);
+    var rejects = new ArrayList<TripAggregator.Reject>();
+    var pool = new ForkJoinPool(4);
+
+    // when
+    TripAggregator.Totals totals;
+
+    try {
+      totals = new TripAggregator(MappedTripReader.Trip::distance, 256, rejects::add).aggregate(tripLogFile, pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    // then
+    var total = expectedTotal;
+
+    assertAll("Aggregate rejects", () -> assertEquals(expected, rejects),
+        () -> assertEquals(total, totals.total()));
+  }
+
+  @DisplayName("Invalid trips of the log are rejected")
+  @Test
+  void tripLogRejects() throws IOException {
+    // given
+    var tripLog = Files.writeString(folder.resolve("trips.csv"), "van,456\ncar,abc\ncar,100\nvan,-5\n");
+    var rejectsFile = folder.resolve("rejects.csv");
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-2", "--aggregate", tripLog.toString(),
+        "--rejects", rejectsFile.toString());
+
+    // then
+    assertAll("Trip log rejects", () -> assertEquals(3, exitCode),
+        () -> assertEquals("car,257.96\nvan,1176.28\n1434.24\n", output.toString()),
+        () -> assertEquals("line,offset,value,reason\n2,8,abc,\"Must be a number, but got abc\"\n"
+            + "4,24,-5,\"Must be a positive value, but got -5\"\n", Files.readString(rejectsFile)));
+  }
+
+  @DisplayName("Rejects need batch input")
+  @Test
+  void rejectsWithoutBatch() {
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "--rejects", "rejects.csv", "456");
+
+    // then
+    assertAll("Rejects without batch", () -> assertEquals(2, exitCode), () -> assertThat(errors.toString(),
+        containsString("Rejects are collected only from batch input, aggregation or a followed trip log")));
+  }
+
+}
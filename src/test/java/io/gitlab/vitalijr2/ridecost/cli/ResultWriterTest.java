@@ -0,0 +1,300 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class ResultWriterTest {
+
+  private static final TripAggregator.Totals TOTALS = new TripAggregator.Totals(new BigDecimal("2466"),
+      new TreeMap<>(Map.of("car", new BigDecimal("258"), "va\"n", new BigDecimal("1434"))), 4);
+
+  private static String write(ResultWriter.Format format, boolean totals) throws IOException {
+    var output = new StringWriter();
+
+    try (var results = ResultWriter.of(output, format)) {
+      if (totals) {
+        results.totals(TOTALS);
+      } else {
+        results.estimate(new BigDecimal("456"), new BigDecimal("1176.28"));
+        results.estimate(1000, 1, new BigDecimal("257.96"));
+      }
+    }
+
+    return output.toString();
+  }
+
+  @DisplayName("Decimals are written as BigDecimal.toString() does")
+  @Test
+  void decimals() throws IOException {
+    // given
+    var random = new Random(42);
+    var values = new ArrayList<BigDecimal>();
+    var expected = new StringBuilder();
+    var output = new StringWriter();
+
+    for (var text : List.of("0", "0.00", "1E+3", "0.000001", "0.0000001", "0.00000010", "123456789012345678.9",
+        "1234567890123456789", "-5.5", "99999999999999999999999.123")) {
+      values.add(new BigDecimal(text));
+    }
+    for (int i = 0; i < 100_000; i++) {
+      values.add(BigDecimal.valueOf(random.nextLong() >> random.nextInt(64), random.nextInt(30) - 3));
+    }
+
+    // when
+    try (var results = ResultWriter.of(output, ResultWriter.Format.PLAIN)) {
+      for (var value : values) {
+        results.estimate(BigDecimal.ONE, value);
+        expected.append(value).append('\n');
+      }
+    }
+
+    // then
+    assertEquals(expected.toString(), output.toString());
+  }
+
+  @DisplayName("Distances in fixed point are written as BigDecimal.toString() does")
+  @Test
+  void fixedPointDistances() throws IOException {
+    // given
+    var random = new Random(42);
+    var expected = new StringBuilder("distance,cost\n");
+    var output = new StringWriter();
+
+    // when
+    try (var results = ResultWriter.of(output, ResultWriter.Format.CSV)) {
+      for (int i = 0; i < 100_000; i++) {
+        var unscaled = random.nextLong() >> random.nextInt(64);
+        var scale = random.nextInt(25);
+
+        results.estimate(unscaled, scale, BigDecimal.ONE);
+        expected.append(BigDecimal.valueOf(unscaled, scale)).append(",1\n");
+      }
+      results.estimate(Long.MIN_VALUE, 2, BigDecimal.ONE);
+      expected.append(BigDecimal.valueOf(Long.MIN_VALUE, 2)).append(",1\n");
+    }
+
+    // then
+    assertEquals(expected.toString(), output.toString());
+  }
+
+  @DisplayName("Estimates")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"PLAIN|1176.28\\n257.96\\n", "CSV|distance,cost\\n456,1176.28\\n100.0,257.96\\n",
+      "JSON|[\\n{\"distance\":456,\"cost\":1176.28},\\n{\"distance\":100.0,\"cost\":257.96}\\n]\\n",
+      "NDJSON|{\"distance\":456,\"cost\":1176.28}\\n{\"distance\":100.0,\"cost\":257.96}\\n"}, delimiter = '|')
+  void estimates(ResultWriter.Format format, String expected) throws IOException {
+    // when
+    var output = write(format, false);
+
+    // then
+    assertEquals(expected.replace("\\n", "\n"), output);
+  }
+
+  @DisplayName("Totals")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"PLAIN|car,258\\nva\"n,1434\\n2466\\n",
+      "CSV|vehicle,cost\\ncar,258\\n\"va\"\"n\",1434\\n,2466\\n",
+      "JSON|{\"vehicles\":{\"car\":258,\"va\\\"n\":1434},\"total\":2466}\\n",
+      "NDJSON|{\"vehicle\":\"car\",\"cost\":258}\\n{\"vehicle\":\"va\\\"n\",\"cost\":1434}\\n{\"total\":2466}\\n"},
+      delimiter = '|', quoteCharacter = '\'')
+  void totals(ResultWriter.Format format, String expected) throws IOException {
+    // when
+    var output = write(format, true);
+
+    // then
+    assertEquals(expected.replace("\\n", "\n"), output);
+  }
+
+  @DisplayName("Totals of a day")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"PLAIN|2026-10-17,car,258\\n2026-10-17,va\"n,1434\\n2026-10-17,2466\\n",
+      "CSV|day,vehicle,cost\\n2026-10-17,car,258\\n2026-10-17,\"va\"\"n\",1434\\n2026-10-17,,2466\\n",
+      "JSON|{\"day\":\"2026-10-17\",\"vehicles\":{\"car\":258,\"va\\\"n\":1434},\"total\":2466}\\n",
+      "NDJSON|{\"day\":\"2026-10-17\",\"vehicle\":\"car\",\"cost\":258}\\n"
+          + "{\"day\":\"2026-10-17\",\"vehicle\":\"va\\\"n\",\"cost\":1434}\\n"
+          + "{\"day\":\"2026-10-17\",\"total\":2466}\\n"},
+      delimiter = '|', quoteCharacter = '\'')
+  void dayTotals(ResultWriter.Format format, String expected) throws IOException {
+    // given
+    var output = new StringWriter();
+
+    // when
+    try (var results = ResultWriter.of(output, format)) {
+      results.totals("2026-10-17", TOTALS);
+    }
+
+    // then
+    assertEquals(expected.replace("\\n", "\n"), output.toString());
+  }
+
+  @DisplayName("Empty JSON array")
+  @Test
+  void emptyJson() throws IOException {
+    // given
+    var output = new StringWriter();
+
+    // when
+    ResultWriter.of(output, ResultWriter.Format.JSON).close();
+
+    // then
+    assertEquals("[]\n", output.toString());
+  }
+
+  @DisplayName("The channel is written only when the buffer is full and on close")
+  @Test
+  void writeFullBuffers() throws IOException {
+    // given
+    var bytes = new ByteArrayOutputStream();
+    var writes = new ArrayList<Integer>();
+    var target = Channels.newChannel(bytes);
+    var channel = new WritableByteChannel() {
+
+      @Override
+      public int write(ByteBuffer source) throws IOException {
+        writes.add(source.remaining());
+        return target.write(source);
+      }
+
+      @Override
+      public boolean isOpen() {
+        return target.isOpen();
+      }
+
+      @Override
+      public void close() throws IOException {
+        target.close();
+      }
+
+    };
+    var records = 30_000;
+
+    // when
+    try (var results = ResultWriter.standardOutput(channel, ResultWriter.Format.NDJSON)) {
+      for (int i = 0; i < records; i++) {
+        results.estimate(i + 1, 0, BigDecimal.valueOf(i, 2));
+      }
+    }
+
+    // then
+    var lines = bytes.toString().split("\n");
+
+    assertAll("Full buffers", () -> assertEquals(records, lines.length),
+        () -> assertEquals("{\"distance\":30000,\"cost\":299.99}", lines[records - 1]),
+        () -> assertTrue(writes.size() > 1),
+        () -> assertTrue(writes.subList(0, writes.size() - 1).stream()
+            .allMatch((length) -> length > ResultWriter.BUFFER_SIZE - 80), writes::toString),
+        () -> assertTrue(channel.isOpen()));
+  }
+
+  @DisplayName("A decimal longer than the reserved room is written at every offset of the buffer")
+  @Test
+  void longDecimalAtEveryOffset() throws IOException {
+    // given
+    var expected = new ByteArrayOutputStream();
+    var bytes = new ByteArrayOutputStream();
+    var channel = Channels.newChannel(bytes);
+    var distance = new BigDecimal("9".repeat(199));
+    var record = ("9".repeat(199) + ",1\n").getBytes(StandardCharsets.US_ASCII);
+    var step = record.length + 21;
+    var lastOffset = ResultWriter.BUFFER_SIZE - 80;
+    var offsets = new BitSet();
+
+    // when
+    try (var results = ResultWriter.of(channel, ResultWriter.Format.CSV)) {
+      results.estimate(BigDecimal.ONE, BigDecimal.ONE);
+      expected.writeBytes("distance,cost\n1,1\n".getBytes(StandardCharsets.US_ASCII));
+      for (int phase = 0; phase < step; phase++) {
+        results.flush();
+        for (int offset = phase; offset <= lastOffset; offset += step) {
+          var gap = offset - (expected.size() - bytes.size());
+
+          if (0 < gap && gap < 4) {
+            continue;
+          }
+          // records of one digit distances with short costs take 4 to 21 bytes
+          while (0 < gap) {
+            var length = (gap <= 21) ? gap : Math.min(21, gap - 4);
+            var cost = "9".repeat(length - 3);
+
+            results.estimate(BigDecimal.ONE, new BigDecimal(cost));
+            expected.writeBytes(("1," + cost + "\n").getBytes(StandardCharsets.US_ASCII));
+            gap -= length;
+          }
+          results.estimate(distance, BigDecimal.ONE);
+          expected.writeBytes(record);
+          offsets.set(offset);
+        }
+      }
+    }
+
+    // then
+    assertAll("Long decimals", () -> assertEquals(lastOffset - 2, offsets.cardinality()),
+        () -> assertArrayEquals(expected.toByteArray(), bytes.toByteArray()));
+  }
+
+  @DisplayName("Write the results to a file")
+  @Test
+  void outputFile(@TempDir Path folder) throws IOException {
+    // given
+    var outputFile = folder.resolve("costs.ndjson");
+    var commandLine = new CommandLine(new RideCost());
+
+    Files.writeString(outputFile, "stale content that is longer than the results\n".repeat(3));
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "-2", "--format", "ndjson", "--output",
+        outputFile.toString(), "456");
+
+    // then
+    assertAll("Output file", () -> assertEquals(0, exitCode),
+        () -> assertEquals("{\"distance\":456,\"cost\":1176.28}\n", Files.readString(outputFile)));
+  }
+
+  @DisplayName("Unknown format")
+  @Test
+  void unknownFormat() {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var errors = new StringWriter();
+
+    commandLine.setErr(new PrintWriter(errors));
+
+    // when
+    var exitCode = commandLine.execute("-p", "59.99", "-l", "4.3", "--format", "xml", "456");
+
+    // then
+    assertAll("Unknown format", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("Must be plain, csv, json or ndjson, but got xml")));
+  }
+
+}
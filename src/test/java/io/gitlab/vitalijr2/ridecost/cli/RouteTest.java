@@ -0,0 +1,150 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class RouteTest {
+
+  private CommandLine commandLine;
+  private StringWriter output;
+  private StringWriter errors;
+
+  @BeforeEach
+  void setUp() {
+    commandLine = RideCost.commandLine(new RideCost(new Properties()));
+    output = new StringWriter();
+    errors = new StringWriter();
+
+    commandLine.setOut(new PrintWriter(output));
+    commandLine.setErr(new PrintWriter(errors));
+  }
+
+  @DisplayName("Leg")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"100|100||", "100:6.1|100|6.1|", "100::61.5|100||61.5", "100:6.1:61.5|100|6.1|61.5",
+      "100:|100||"}, delimiter = '|')
+  void leg(String text, BigDecimal expectedDistance, BigDecimal expectedRatio, BigDecimal expectedPrice) {
+    // when
+    var leg = Leg.parse(text);
+
+    // then
+    assertEquals(new Leg(expectedDistance, expectedRatio, expectedPrice), leg);
+  }
+
+  @DisplayName("Legs with their own ratio or price")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"plain|100,200.00\\n50,150.00\\n25,60.00\\n410.00\\n",
+      "csv|distance,ratio,price,cost\\n100,4,50,200.00\\n50,6,50,150.00\\n25,4,60,60.00\\n,,,410.00\\n",
+      "json|{\"legs\":[{\"distance\":100,\"ratio\":4,\"price\":50,\"cost\":200.00},"
+          + "{\"distance\":50,\"ratio\":6,\"price\":50,\"cost\":150.00},"
+          + "{\"distance\":25,\"ratio\":4,\"price\":60,\"cost\":60.00}],\"total\":410.00}\\n",
+      "ndjson|{\"distance\":100,\"ratio\":4,\"price\":50,\"cost\":200.00}\\n"
+          + "{\"distance\":50,\"ratio\":6,\"price\":50,\"cost\":150.00}\\n"
+          + "{\"distance\":25,\"ratio\":4,\"price\":60,\"cost\":60.00}\\n{\"total\":410.00}\\n"},
+      delimiter = '|', quoteCharacter = '\'')
+  void legs(String format, String expected) {
+    // when
+    var exitCode = commandLine.execute("-p", "50", "-l", "4", "-2", "--format", format, "100", "50:6", "25::60");
+
+    // then
+    assertAll("Route", () -> assertEquals(0, exitCode),
+        () -> assertEquals(expected.replace("\\n", "\n"), output.toString()));
+  }
+
+  @DisplayName("Rounding of the legs or of the total")
+  @ParameterizedTest(name = "round total {0}")
+  @CsvSource(value = {"false|,0", "true|,0.4"}, delimiter = '|')
+  void roundTotal(boolean roundTotal, String expectedLeg) {
+    // when
+    var exitCode = roundTotal ? commandLine.execute("-p", "1", "-l", "4", "-0", "--round-total", "10", "10", "10")
+        : commandLine.execute("-p", "1", "-l", "4", "-0", "10", "10", "10");
+
+    // then
+    var lines = output.toString().lines().toList();
+
+    assertAll("Rounding", () -> assertEquals(0, exitCode), () -> assertEquals(4, lines.size()),
+        () -> assertThat(lines.get(0), containsString(expectedLeg)),
+        () -> assertEquals(roundTotal ? "1" : "0", lines.get(3)));
+  }
+
+  @DisplayName("The total is rounded as the estimator rounds a cost")
+  @Test
+  void roundTotalAsEstimator() {
+    // given
+    var expected = RideCostEstimator.volumeByDistanceEstimator().estimateCostOfRide(BigDecimal.valueOf(100),
+        BigDecimal.ONE, new BigDecimal("2.50"), Rounding.WHOLE);
+
+    // when
+    var exitCode = commandLine.execute("-p", "1", "-l", "100", "-0", "--round-total", "1.25", "1.25");
+
+    // then
+    var lines = output.toString().lines().toList();
+
+    assertAll("Rounded total", () -> assertEquals(0, exitCode),
+        () -> assertEquals(expected.toPlainString(), lines.get(lines.size() - 1)));
+  }
+
+  @DisplayName("Only the total of a route is rounded")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource({"100", "100:"})
+  void roundTotalWithoutRoute(String distance) {
+    // when
+    var exitCode = commandLine.execute("-p", "50", "-l", "4", "-2", "--round-total", distance);
+
+    // then
+    assertAll("Round total without route", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString("Only the total of a route is rounded")),
+        () -> assertEquals("", output.toString()));
+  }
+
+  @DisplayName("A single distance is not a route")
+  @Test
+  void singleDistance() {
+    // given
+    var instance = new RideCost(new Properties());
+
+    commandLine = new CommandLine(instance);
+    commandLine.setOut(new PrintWriter(output));
+
+    // when
+    var exitCode = commandLine.execute("-p", "50", "-l", "4", "-2", "100:");
+
+    // then
+    assertAll("Single distance", () -> assertEquals(0, exitCode), () -> assertEquals("200.00\n", output.toString()),
+        () -> assertNull(instance.route));
+  }
+
+  @DisplayName("Invalid leg")
+  @ParameterizedTest(name = "{0}")
+  @CsvSource(value = {"100:x|A leg must be DISTANCE[:RATIO[:PRICE]], but got 100:x",
+      "100:1:2:3|A leg must be DISTANCE[:RATIO[:PRICE]], but got 100:1:2:3", "abc|but got abc",
+      "100:0|Must be a positive value, but got 0", "100::0.00|Must be a positive value, but got 0.00"},
+      delimiter = '|')
+  void invalidLeg(String leg, String expectedMessage) {
+    // when
+    var exitCode = commandLine.execute("-p", "50", "-l", "4", "25", leg);
+
+    // then
+    assertAll("Invalid leg", () -> assertEquals(2, exitCode),
+        () -> assertThat(errors.toString(), containsString(expectedMessage)));
+  }
+
+}
@@ -0,0 +1,76 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StartupTest {
+
+  private static final int RUNS = 5;
+
+  private static void assertStartsFaster(TestReporter reporter, String name, String executable, String jvmClasspath,
+      String arguments) throws IOException, InterruptedException {
+    var jvmCommand = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-cp", jvmClasspath,
+        RideCost.class.getName());
+
+    // when
+    var time = medianStartupTime(List.of(executable), arguments);
+    var jvmTime = medianStartupTime(jvmCommand, arguments);
+
+    // then
+    reporter.publishEntry(Map.of(name, time / 1_000_000 + " ms", "JVM", jvmTime / 1_000_000 + " ms"));
+    assertTrue(time < jvmTime, () -> name + " must start faster than the plain jar");
+  }
+
+  private static long medianStartupTime(List<String> command, String arguments)
+      throws IOException, InterruptedException {
+    var fullCommand = new ArrayList<>(command);
+    var times = new long[RUNS];
+
+    fullCommand.addAll(List.of(arguments.split(" ")));
+    for (var i = 0; i < RUNS; i++) {
+      var start = System.nanoTime();
+      var process = new ProcessBuilder(fullCommand).redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+      assertEquals(0, process.waitFor(), "Exit code of " + fullCommand);
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+
+    return times[RUNS / 2];
+  }
+
+  @DisplayName("Native executable starts faster than the plain jar")
+  @EnabledIfSystemProperty(named = "native.image", matches = ".+")
+  @ParameterizedTest(name = "{0}")
+  @Tag("native")
+  @ValueSource(strings = {"--version", "-p 59.99 -l 4.3 -2 456"})
+  void nativeStartsFaster(String arguments, TestReporter reporter) throws IOException, InterruptedException {
+    assertStartsFaster(reporter, "Native executable", System.getProperty("native.image"),
+        System.getProperty("native.jvm.classpath"), arguments);
+  }
+
+  @DisplayName("Launcher with the class data archive starts faster than the plain jar")
+  @EnabledIfSystemProperty(named = "cds.launcher", matches = ".+")
+  @ParameterizedTest(name = "{0}")
+  @Tag("cds")
+  @ValueSource(strings = {"--version", "-p 59.99 -l 4.3 -2 456"})
+  void launcherStartsFaster(String arguments, TestReporter reporter) throws IOException, InterruptedException {
+    assertStartsFaster(reporter, "Launcher", System.getProperty("cds.launcher"),
+        System.getProperty("cds.jvm.classpath"), arguments);
+  }
+
+}
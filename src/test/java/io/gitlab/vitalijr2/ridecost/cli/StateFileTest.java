@@ -3,17 +3,18 @@ package io.gitlab.vitalijr2.ridecost.cli;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.core.StringEndsWith.endsWith;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 import io.github.vitalijr2.logging.mock.MockLoggers;
 import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
@@ -22,18 +23,27 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.lang.System.Logger.Level;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.RepetitionInfo;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
 import picocli.CommandLine;
-import picocli.CommandLine.Model.CommandSpec;
 
 @Tag("slow")
 @MockLoggers
@@ -130,6 +140,7 @@ class StateFileTest {
       instance.price = expectedPrice;
       instance.rounding = expectedRounding;
       instance.saveState = true;
+      instance.spec = new CommandLine(instance).getCommandSpec();
 
       // when
       instance.run();
@@ -174,9 +185,7 @@ class StateFileTest {
         instance.fourDigits = true;
       }
       instance.saveState = true;
-      instance.spec = mock(CommandSpec.class);
-
-      when(instance.spec.commandLine()).thenReturn(mock(CommandLine.class));
+      instance.spec = new CommandLine(instance).getCommandSpec();
 
       // when
       assertDoesNotThrow(instance::run);
@@ -196,9 +205,7 @@ class StateFileTest {
       instance.volumePerDistance = BigDecimal.valueOf(4.3);
       instance.price = BigDecimal.valueOf(59.99);
       instance.saveState = true;
-      instance.spec = mock(CommandSpec.class);
-
-      when(instance.spec.commandLine()).thenReturn(mock(CommandLine.class));
+      instance.spec = new CommandLine(instance).getCommandSpec();
 
       // when
       assertDoesNotThrow(instance::run);
@@ -213,7 +220,7 @@ class StateFileTest {
       ridecost.when(RideCost::getStateFile).thenReturn(new File("src/test/resources"));
 
       // when
-      var instance = assertDoesNotThrow(RideCost::new);
+      var instance = assertDoesNotThrow(() -> new RideCost());
 
       // then
       var logger = System.getLogger(RideCost.class.getName());
@@ -239,6 +246,7 @@ class StateFileTest {
       instance.distancePerVolume = BigDecimal.valueOf(123.45);
       instance.price = BigDecimal.valueOf(67.89);
       instance.saveState = true;
+      instance.spec = new CommandLine(instance).getCommandSpec();
 
       // when
       assertDoesNotThrow(instance::run);
@@ -250,6 +258,123 @@ class StateFileTest {
     }
   }
 
+  @DisplayName("Concurrent writers never leave a partial state file")
+  @Test
+  void concurrentWriters(@TempDir Path folder) throws Exception {
+    // given
+    var stateFile = folder.resolve("ridecost.properties").toFile();
+    var executor = Executors.newFixedThreadPool(4);
+    var writers = new ArrayList<Future<?>>();
+
+    try {
+      for (int i = 1; i <= 40; i++) {
+        var instance = new RideCost(new Properties());
+
+        instance.price = BigDecimal.valueOf(i);
+        instance.volumePerDistance = BigDecimal.valueOf(4.3);
+        writers.add(executor.submit(() -> {
+          instance.saveState(stateFile);
+          return null;
+        }));
+      }
+
+      // when
+      var readers = 0;
+
+      while (writers.stream().anyMatch(writer -> !writer.isDone()) || 0 == readers) {
+        if (stateFile.exists()) {
+          var actualState = new Properties();
+
+          try (var reader = new FileReader(stateFile)) {
+            actualState.load(reader);
+          }
+          // then
+          assertAll("Complete state", () -> assertNotNull(actualState.getProperty("price")),
+              () -> assertEquals("4.3", actualState.getProperty("volumePerDistance")));
+          readers++;
+        }
+      }
+      for (var writer : writers) {
+        writer.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    try (var files = Files.list(folder)) {
+      assertThat(files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()),
+          contains("ridecost.properties", "ridecost.properties.lock"));
+    }
+  }
+
+  @DisplayName("The replaced state file keeps its permissions")
+  @Test
+  void keepPermissions(@TempDir Path folder) throws IOException {
+    // given
+    assumeTrue(Files.getFileStore(folder).supportsFileAttributeView(PosixFileAttributeView.class));
+
+    var stateFile = Files.writeString(folder.resolve("ridecost.properties"), "price=1\n");
+    var instance = new RideCost(new Properties());
+
+    Files.setPosixFilePermissions(stateFile, PosixFilePermissions.fromString("rw-r-----"));
+    instance.price = BigDecimal.TEN;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+
+    // when
+    instance.saveState(stateFile.toFile());
+
+    // then
+    assertAll("Permissions", () -> assertEquals("rw-r-----",
+            PosixFilePermissions.toString(Files.getPosixFilePermissions(stateFile))),
+        () -> assertThat(Files.readString(stateFile), containsString("price=10")));
+  }
+
+  @DisplayName("A new state file gets the default permissions")
+  @Test
+  void defaultPermissions(@TempDir Path folder) throws IOException {
+    // given
+    assumeTrue(Files.getFileStore(folder).supportsFileAttributeView(PosixFileAttributeView.class));
+
+    var stateFile = folder.resolve("ridecost.properties");
+    var instance = new RideCost(new Properties());
+
+    instance.price = BigDecimal.TEN;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+
+    // when
+    instance.saveState(stateFile.toFile());
+
+    // then
+    var expected = Files.getPosixFilePermissions(Files.createFile(folder.resolve("plain.properties")));
+
+    assertEquals(expected, Files.getPosixFilePermissions(stateFile));
+  }
+
+  @DisplayName("A linked state file is replaced behind the link")
+  @ParameterizedTest(name = "existing file {0}")
+  @ValueSource(booleans = {false, true})
+  void keepSymbolicLink(boolean existing, @TempDir Path folder) throws IOException {
+    // given
+    var realFile = folder.resolve("real").resolve("ridecost.properties");
+    var stateFile = folder.resolve("ridecost.properties");
+    var instance = new RideCost(new Properties());
+
+    Files.createDirectories(realFile.getParent());
+    if (existing) {
+      Files.writeString(realFile, "price=1\n");
+    }
+    Files.createSymbolicLink(stateFile, Path.of("real", "ridecost.properties"));
+    instance.price = BigDecimal.TEN;
+    instance.volumePerDistance = BigDecimal.valueOf(4.3);
+
+    // when
+    instance.saveState(stateFile.toFile());
+
+    // then
+    assertAll("Symbolic link", () -> assertTrue(Files.isSymbolicLink(stateFile)),
+        () -> assertThat(Files.readString(realFile), containsString("price=10")));
+  }
+
   private void assertBigDecimalIsNullOrExactValue(BigDecimal expectedValue, BigDecimal actualValue) {
     if (isNull(expectedValue)) {
       assertNull(actualValue);
@@ -0,0 +1,352 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+@Tag("slow")
+class TripFollowerTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T08:00:00Z"), ZoneOffset.UTC);
+  private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+  private static ForkJoinPool pool;
+
+  @TempDir
+  Path folder;
+
+  @BeforeAll
+  static void setUpClass() {
+    pool = new ForkJoinPool(2);
+  }
+
+  @AfterAll
+  static void tearDownClass() {
+    pool.shutdown();
+  }
+
+  private static void append(Path tripLog, String trips) throws IOException {
+    Files.writeString(tripLog, trips, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    var deadline = System.nanoTime() + 30_000_000_000L;
+
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+  }
+
+  private static TripAggregator.Totals totals(String total, long trips, String... subtotals) {
+    var vehicles = new TreeMap<String, BigDecimal>();
+
+    for (int i = 0; i < subtotals.length; i += 2) {
+      vehicles.put(subtotals[i], new BigDecimal(subtotals[i + 1]));
+    }
+
+    return new TripAggregator.Totals(new BigDecimal(total), vehicles, trips);
+  }
+
+  private TripFollower follower(Path tripLog) {
+    return follower(tripLog, null);
+  }
+
+  private TripFollower follower(Path tripLog, TripAggregator.Rejects rejects) {
+    return new TripFollower(tripLog, folder.resolve("trips.log.checkpoint"), MappedTripReader.Trip::distance,
+        rejects, CLOCK);
+  }
+
+  @DisplayName("Only complete lines are read")
+  @Test
+  void completeLines() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+
+    append(tripLog, "car,100\nvan,50\ncar,1");
+
+    // when
+    var firstDay = follower.update(pool);
+    var firstOffset = follower.offset();
+
+    append(tripLog, "0\n");
+
+    var secondDay = follower.update(pool);
+    var thirdDay = follower.update(pool);
+
+    // then
+    assertAll("Complete lines", () -> assertEquals(DAY, firstDay), () -> assertEquals(15, firstOffset),
+        () -> assertEquals(DAY, secondDay), () -> assertNull(thirdDay),
+        () -> assertEquals(Files.size(tripLog), follower.offset()),
+        () -> assertEquals(Map.of(DAY, totals("160", 3, "car", "110", "van", "50")), follower.days()));
+  }
+
+  @DisplayName("A restart resumes at the checkpoint")
+  @Test
+  void resume() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+
+    append(tripLog, "car,100\n25\n");
+    follower.update(pool);
+    append(tripLog, "van,50\n");
+
+    // when
+    var restarted = follower(tripLog);
+
+    restarted.restore();
+    restarted.update(pool);
+
+    // then
+    var checkpointProperties = new Properties();
+
+    try (var checkpointReader = Files.newBufferedReader(folder.resolve("trips.log.checkpoint"))) {
+      checkpointProperties.load(checkpointReader);
+    }
+    assertAll("Resume", () -> assertEquals(Map.of(DAY, totals("175", 3, "car", "100", "van", "50")),
+            restarted.days()), () -> assertEquals("18", checkpointProperties.getProperty("offset")),
+        () -> assertEquals("175", checkpointProperties.getProperty("2026-10-17.total")),
+        () -> assertEquals("50", checkpointProperties.getProperty("2026-10-17.vehicle.van")));
+  }
+
+  @DisplayName("A truncated log is read from the start")
+  @Test
+  void truncated() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+
+    append(tripLog, "car,100\ncar,200\n");
+    follower.update(pool);
+    Files.writeString(tripLog, "van,5\n");
+
+    // when
+    follower.update(pool);
+
+    // then
+    assertAll("Truncated", () -> assertEquals(6, follower.offset()),
+        () -> assertEquals(Map.of(DAY, totals("305", 3, "car", "300", "van", "5")), follower.days()));
+  }
+
+  @DisplayName("A rotated log is read from the start even if it is not shorter")
+  @Test
+  void rotated() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+
+    append(tripLog, "car,100\n");
+    follower.update(pool);
+    Files.move(tripLog, folder.resolve("trips.log.1"));
+    append(tripLog, "van,5\ncar,20\n");
+
+    // when
+    var restarted = follower(tripLog);
+
+    restarted.restore();
+    restarted.update(pool);
+
+    // then
+    assertAll("Rotated", () -> assertEquals(Files.size(tripLog), restarted.offset()),
+        () -> assertEquals(Map.of(DAY, totals("125", 3, "car", "120", "van", "5")), restarted.days()));
+  }
+
+  @DisplayName("Only the last days are kept")
+  @Test
+  void retainedDays() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var later = DAY.plusDays(7);
+
+    append(tripLog, "car,100\n");
+    follower(tripLog).update(pool);
+    append(tripLog, "van,5\n");
+
+    var follower = new TripFollower(tripLog, folder.resolve("trips.log.checkpoint"), MappedTripReader.Trip::distance,
+        null, Clock.fixed(Instant.parse("2026-10-24T08:00:00Z"), ZoneOffset.UTC));
+
+    // when
+    follower.restore();
+    follower.update(pool);
+
+    // then
+    var checkpointProperties = new Properties();
+
+    try (var checkpointReader = Files.newBufferedReader(folder.resolve("trips.log.checkpoint"))) {
+      checkpointProperties.load(checkpointReader);
+    }
+    assertAll("Retention", () -> assertEquals(Map.of(later, totals("5", 1, "van", "5")), follower.days()),
+        () -> assertNull(checkpointProperties.getProperty("2026-10-17.total")));
+  }
+
+  @DisplayName("An invalid line is rejected and the checkpoint moves past it")
+  @Test
+  void invalidLine() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var rejects = new ArrayList<TripAggregator.Reject>();
+    var follower = follower(tripLog, rejects::add);
+
+    append(tripLog, "car,100\n");
+    follower.update(pool);
+    append(tripLog, "car,abc\n");
+    follower.update(pool);
+    append(tripLog, "van,50\n");
+
+    // when
+    var day = follower.update(pool);
+    var restarted = follower(tripLog, rejects::add);
+
+    restarted.restore();
+
+    var restartedDay = restarted.update(pool);
+
+    // then
+    assertAll("Invalid line", () -> assertEquals(DAY, day), () -> assertNull(restartedDay),
+        () -> assertEquals(Files.size(tripLog), restarted.offset()),
+        () -> assertEquals(Map.of(DAY, totals("150", 2, "car", "100", "van", "50")), restarted.days()),
+        () -> assertEquals(List.of(new TripAggregator.Reject(2, 8, "value.not-a-number", "abc")), rejects));
+  }
+
+  @DisplayName("An invalid line without rejects is skipped")
+  @Test
+  void invalidLineWithoutRejects() throws IOException {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+
+    append(tripLog, "car,-5\nvan,50\n");
+
+    // when
+    follower.update(pool);
+
+    // then
+    assertAll("Skipped line", () -> assertEquals(Files.size(tripLog), follower.offset()),
+        () -> assertEquals(Map.of(DAY, totals("50", 1, "van", "50")), follower.days()));
+  }
+
+  @DisplayName("A missing log waits to be created")
+  @Test
+  void missingLog() throws IOException {
+    // given
+    var follower = follower(folder.resolve("trips.log"));
+
+    // when
+    var day = follower.update(pool);
+
+    // then
+    assertAll("Missing log", () -> assertNull(day), () -> assertEquals(0, follower.offset()));
+  }
+
+  @DisplayName("Appended trips are printed as they come")
+  @Test
+  void follow() throws Exception {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var follower = follower(tripLog);
+    var output = new StringWriter();
+
+    append(tripLog, "car,100\n");
+
+    var thread = new Thread(() -> {
+      try (var results = ResultWriter.of(output, ResultWriter.Format.NDJSON)) {
+        follower.follow(results, pool);
+      } catch (IOException exception) {
+        throw new RuntimeException(exception);
+      }
+    });
+
+    thread.start();
+    await(() -> output.toString().contains("\"total\":100}"));
+
+    // when
+    append(tripLog, "van,50\n");
+    await(() -> output.toString().contains("\"total\":150}"));
+    thread.interrupt();
+    thread.join(30_000);
+
+    // then
+    assertAll("Follow", () -> assertEquals("{\"day\":\"2026-10-17\",\"vehicle\":\"car\",\"cost\":100}\n"
+            + "{\"day\":\"2026-10-17\",\"total\":100}\n"
+            + "{\"day\":\"2026-10-17\",\"vehicle\":\"car\",\"cost\":100}\n"
+            + "{\"day\":\"2026-10-17\",\"vehicle\":\"van\",\"cost\":50}\n"
+            + "{\"day\":\"2026-10-17\",\"total\":150}\n", output.toString()),
+        () -> assertTrue(!thread.isAlive()));
+  }
+
+  @DisplayName("Follow the trip log from the command line")
+  @Test
+  void commandLine() throws Exception {
+    // given
+    var tripLog = folder.resolve("trips.log");
+    var instance = new RideCost(new Properties());
+    var commandLine = new CommandLine(instance);
+    var output = new StringWriter();
+    var exitCode = new int[]{-1};
+
+    commandLine.setOut(new PrintWriter(output));
+    append(tripLog, "car,100\n");
+
+    var thread = new Thread(() -> exitCode[0] = commandLine.execute("-p", "50", "-l", "4", "-2", "--format", "csv",
+        "--follow", tripLog.toString()));
+
+    // when
+    thread.start();
+    await(() -> output.toString().contains(",200.00\n"));
+    thread.interrupt();
+    thread.join(30_000);
+
+    // then
+    assertAll("Follow", () -> assertEquals(0, exitCode[0]),
+        () -> assertThat(output.toString(), containsString(",car,200.00\n")),
+        () -> assertTrue(Files.exists(folder.resolve("trips.log.checkpoint"))));
+  }
+
+  @DisplayName("Follow and batch are mutually exclusive")
+  @Test
+  void followAndBatch() {
+    // given
+    var commandLine = RideCost.commandLine(new RideCost());
+    var errors = new StringWriter();
+
+    commandLine.setErr(new PrintWriter(errors));
+
+    // when
+    var exitCode = commandLine.execute("-p", "60", "-l", "3", "--follow", "trips.log", "-b");
+
+    // then
+    assertAll("Follow and batch", () -> assertEquals(2, exitCode), () -> assertThat(errors.toString(),
+        containsString("Following a trip log cannot be combined with batch input or aggregation")));
+  }
+
+}
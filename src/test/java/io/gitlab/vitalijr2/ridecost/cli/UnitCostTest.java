@@ -0,0 +1,177 @@
+package io.gitlab.vitalijr2.ridecost.cli;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.gitlab.vitalijr2.ridecost.api.RideCostService;
+import io.gitlab.vitalijr2.ridecost.api.RideRequest;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import picocli.CommandLine;
+
+@Tag("slow")
+class UnitCostTest {
+
+  @TempDir
+  Path folder;
+
+  static Stream<Arguments> roundings() {
+    return Stream.concat(Stream.of(Arguments.of((Rounding) null)), Stream.of(Rounding.values()).map(Arguments::of));
+  }
+
+  static Stream<Arguments> staleUnitCost() {
+    return Stream.of(Arguments.of("4.3", "61.5"), Arguments.of("5.1", "59.99"), Arguments.of("4.30", "59.99"));
+  }
+
+  private static Properties savedState(Path folder, String ratio, String price) throws IOException {
+    var stateFile = new File(folder.toFile(), "ridecost.properties");
+    var instance = new RideCost(new Properties());
+    var stateProperties = new Properties();
+
+    instance.volumePerDistance = new BigDecimal(ratio);
+    instance.price = new BigDecimal(price);
+    instance.saveState(stateFile);
+    try (var stateReader = new FileReader(stateFile)) {
+      stateProperties.load(stateReader);
+    }
+
+    return stateProperties;
+  }
+
+  @DisplayName("Unit cost gives the same costs as the estimator")
+  @ParameterizedTest(name = "rounding {0}")
+  @MethodSource("roundings")
+  void sameCosts(Rounding rounding) {
+    // given
+    var estimator = RideCostEstimator.volumeByDistanceEstimator();
+    var ratio = new BigDecimal("4.3");
+    var price = new BigDecimal("59.99");
+    var random = new Random(42);
+
+    // when
+    var unitCost = UnitCost.derive(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratio, price);
+
+    // then
+    assertNotNull(unitCost);
+
+    var service = RideCostService.create().withUnitCost(ratio, price, unitCost.coefficient(),
+        unitCost.roundingMode());
+
+    for (int i = 0; i < 10_000; i++) {
+      var distance = BigDecimal.valueOf(1 + random.nextInt(1_000_000), random.nextInt(5));
+
+      assertEquals(estimator.estimateCostOfRide(ratio, price, distance, rounding),
+          service.cost(RideRequest.Ratio.VOLUME_PER_DISTANCE, ratio, price, distance, rounding), distance::toString);
+    }
+  }
+
+  @DisplayName("Fuel economy has no unit cost")
+  @Test
+  void distancePerVolume() {
+    // when
+    var unitCost = UnitCost.derive(RideRequest.Ratio.DISTANCE_PER_VOLUME, new BigDecimal("23.26"),
+        new BigDecimal("59.99"));
+
+    // then
+    assertNull(unitCost);
+  }
+
+  @DisplayName("Unit cost keeps the scale of the estimator")
+  @ParameterizedTest(name = "{0} x {1} x {2}")
+  @CsvSource({"4.3, 59.99, 1E+3", "1, 1, 1E+5", "0.001, 2.5, 0.00005", "100, 1, 3"})
+  void sameScale(String ratio, String price, String distance) {
+    // given
+    var estimator = RideCostEstimator.volumeByDistanceEstimator();
+
+    // when
+    var unitCost = UnitCost.derive(RideRequest.Ratio.VOLUME_PER_DISTANCE, new BigDecimal(ratio),
+        new BigDecimal(price));
+
+    // then
+    assertNotNull(unitCost);
+
+    var service = RideCostService.create().withUnitCost(new BigDecimal(ratio), new BigDecimal(price),
+        unitCost.coefficient(), unitCost.roundingMode());
+
+    roundings().map(arguments -> (Rounding) arguments.get()[0]).forEach(
+        rounding -> assertEquals(estimator.estimateCostOfRide(new BigDecimal(ratio), new BigDecimal(price),
+            new BigDecimal(distance), rounding), service.cost(RideRequest.Ratio.VOLUME_PER_DISTANCE,
+            new BigDecimal(ratio), new BigDecimal(price), new BigDecimal(distance), rounding),
+            String.valueOf(rounding)));
+  }
+
+  @DisplayName("Unit cost is saved with the state and used after loading")
+  @Test
+  void saveAndLoad() throws IOException {
+    // given
+    var stateProperties = savedState(folder, "4.3", "59.99");
+    var instance = new RideCost(stateProperties);
+
+    instance.spec = new CommandLine(instance).getCommandSpec();
+    instance.distance = new BigDecimal("456");
+    instance.rounding = Rounding.TWO_DECIMAL_PLACES;
+
+    // when
+    instance.resolveEngine();
+
+    // then
+    assertAll("Saved unit cost", () -> assertEquals("2.57957", stateProperties.getProperty(UnitCost.COEFFICIENT)),
+        () -> assertNotNull(instance.unitCost), () -> assertEquals(new BigDecimal("1176.28"),
+            instance.estimateRideCost()));
+  }
+
+  @DisplayName("Changed price or ratio make the unit cost stale")
+  @ParameterizedTest(name = "ratio {0}, price {1}")
+  @MethodSource
+  void staleUnitCost(String ratio, String price) throws IOException {
+    // given
+    var stateProperties = savedState(folder, "4.3", "59.99");
+    var instance = new RideCost(stateProperties);
+
+    instance.volumePerDistance = new BigDecimal(ratio);
+    instance.price = new BigDecimal(price);
+
+    // when
+    instance.resolveEngine();
+
+    // then
+    assertNull(instance.unitCost);
+  }
+
+  @DisplayName("Hand-edited price makes the unit cost stale")
+  @Test
+  void handEditedState() throws IOException {
+    // given
+    var stateProperties = savedState(folder, "4.3", "59.99");
+
+    stateProperties.setProperty("price", "61.5");
+
+    var instance = new RideCost(stateProperties);
+
+    // when
+    instance.resolveEngine();
+
+    // then
+    assertAll("Stale unit cost", () -> assertEquals(new BigDecimal("61.5"), instance.price),
+        () -> assertNull(instance.unitCost));
+  }
+
+}
@@ -0,0 +1,107 @@
+package io.gitlab.vitalijr2.ridecost.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator;
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("slow")
+class FixedPointEstimatorTest {
+
+  private static final int CORPUS_SIZE = 200_000;
+  private static final RideCostEstimator ESTIMATOR = RideCostEstimator.volumeByDistanceEstimator();
+  private static final RideCostEstimator FUEL_ECONOMY_ESTIMATOR = RideCostEstimator.distanceByVolumeEstimator();
+  private static final Rounding[] ROUNDINGS = {null, Rounding.WHOLE, Rounding.TWO_DECIMAL_PLACES,
+      Rounding.THREE_DECIMAL_PLACES, Rounding.FOUR_DECIMAL_PLACES};
+
+  @DisplayName("Same results as the exact estimator over a randomized corpus")
+  @Test
+  void sameResultsAsEstimator() {
+    // given
+    var random = new Random(20251017L);
+
+    for (var i = 0; i < CORPUS_SIZE; i++) {
+      var volumePerDistance = randomDecimal(random, 100_000, 3);
+      var price = randomDecimal(random, 1_000_000, 4);
+      var rounding = ROUNDINGS[random.nextInt(ROUNDINGS.length)];
+      var distance = randomDecimal(random, 10_000_000, 4);
+      var engine = FixedPointEstimator.volumeByDistance(volumePerDistance, price, rounding);
+
+      // when
+      var expected = ESTIMATOR.estimateCostOfRide(volumePerDistance, price, distance, rounding);
+      var actual = engine.estimate(distance);
+
+      // then
+      assertEquals(expected, actual, () -> volumePerDistance + " x " + price + " x " + distance + ", " + rounding);
+    }
+  }
+
+  @DisplayName("Fuel economy: same results as the exact estimator over a randomized corpus")
+  @Test
+  void distanceByVolumeSameResultsAsEstimator() {
+    // given
+    var random = new Random(20261017L);
+
+    for (var i = 0; i < CORPUS_SIZE; i++) {
+      var distancePerVolume = randomDecimal(random, 100_000, 3);
+      var price = randomDecimal(random, 1_000_000, 4);
+      var rounding = ROUNDINGS[random.nextInt(ROUNDINGS.length)];
+      var distance = randomDecimal(random, 10_000_000, 4);
+      var engine = FixedPointEstimator.distanceByVolume(distancePerVolume, price, rounding);
+
+      // when
+      var expected = FUEL_ECONOMY_ESTIMATOR.estimateCostOfRide(distancePerVolume, price, distance, rounding);
+      var actual = engine.estimate(distance);
+
+      // then
+      assertEquals(expected, actual, () -> distance + " / " + distancePerVolume + " x " + price + ", " + rounding);
+    }
+  }
+
+  @DisplayName("Fuel economy: exact and carried quotients")
+  @ParameterizedTest(name = "{0} / {1}")
+  @CsvSource({"1, 8", "1000000000, 1", "100, 4.00", "9999999.5, 1", "9999999.4, 1", "2.5, 0.0001", "22.5, 15",
+      "12345678912345, 3", "0.0001, 999"})
+  void distanceByVolumeQuotient(String distance, String distancePerVolume) {
+    // given
+    var price = new BigDecimal("1.25");
+
+    for (var rounding : ROUNDINGS) {
+      var engine = FixedPointEstimator.distanceByVolume(new BigDecimal(distancePerVolume), price, rounding);
+
+      // when
+      var actual = engine.estimate(new BigDecimal(distance));
+
+      // then
+      assertEquals(FUEL_ECONOMY_ESTIMATOR.estimateCostOfRide(new BigDecimal(distancePerVolume), price,
+          new BigDecimal(distance), rounding), actual, String.valueOf(rounding));
+    }
+  }
+
+  @DisplayName("Fall back to decimals on overflow")
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {"999999999999", "99999999999999999", "1E+3"})
+  void fallBackOnOverflow(String distance) {
+    // given
+    var volumePerDistance = new BigDecimal("987654321.123");
+    var price = new BigDecimal("123456789.987");
+    var engine = FixedPointEstimator.volumeByDistance(volumePerDistance, price, Rounding.TWO_DECIMAL_PLACES);
+
+    // when and then
+    assertEquals(ESTIMATOR.estimateCostOfRide(volumePerDistance, price, new BigDecimal(distance),
+        Rounding.TWO_DECIMAL_PLACES), engine.estimate(new BigDecimal(distance)));
+  }
+
+  private static BigDecimal randomDecimal(Random random, int bound, int maxScale) {
+    return BigDecimal.valueOf(1 + random.nextInt(bound), random.nextInt(maxScale + 1));
+  }
+
+}
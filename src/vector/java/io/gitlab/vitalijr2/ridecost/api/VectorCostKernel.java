@@ -0,0 +1,201 @@
+/*-
+ * ---------------LICENSE_START-----------------
+ * Ride Cost Command-Line Tool
+ * ---------------------------------------------
+ * Copyright (C) 2025 Vitalij Berdinskih
+ * ---------------------------------------------
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---------------LICENSE_END-------------------
+ */
+package io.gitlab.vitalijr2.ridecost.api;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import io.gitlab.vitalijr2.ridecost.estimator.RideCostEstimator.Rounding;
+import java.nio.LongBuffer;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// The Vector API kernel, built by the vector profile and loaded by ColumnarCosts.
+// The lanes that do not fill a vector go to the scalar loops, as well as the columns the lanes cannot hold.
+final class VectorCostKernel implements CostKernel {
+
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+  // a product below it is exact in a double, so the quotient from the reciprocal is off by one at most
+  private static final double EXACT_PRODUCT = 0x1p51;
+  // JDK 17 does not compile the D2L and L2D conversions to instructions, so the lanes use the bits of 2^52 instead:
+  // a whole number below 2^52 is the fraction of the double 2^52 + n
+  private static final long FRACTION_MASK = (1L << 52) - 1;
+  private static final long LIMIT_BITS = Double.doubleToRawLongBits(ScalarCostKernel.EXACT_LIMIT);
+  // the divisor of the fixed-point lanes is 10^shift
+  private static final int MAX_SHIFT = 15;
+
+  // the largest product of the columns if every value is positive, -1 otherwise
+  private static double maxProduct(long[] ratios, long[] prices, long[] distances) {
+    long ratio = 0;
+    long price = 0;
+    long distance = 0;
+
+    for (int i = 0; i < ratios.length; i++) {
+      if (ratios[i] <= 0 || prices[i] <= 0 || distances[i] <= 0) {
+        return -1;
+      }
+      ratio = Math.max(ratio, ratios[i]);
+      price = Math.max(price, prices[i]);
+      distance = Math.max(distance, distances[i]);
+    }
+
+    return (double) ratio * price * distance;
+  }
+
+  // the largest product of a column if every distance is positive, -1 otherwise
+  private static double maxProduct(long ratio, long price, LongBuffer distances, int offset, int length) {
+    long distance = 0;
+
+    for (int i = 0; i < length; i++) {
+      var value = distances.get(offset + i);
+
+      if (value <= 0) {
+        return -1;
+      }
+      distance = Math.max(distance, value);
+    }
+
+    return (double) ratio * price * distance;
+  }
+
+  @Override
+  public void estimate(@NotNull RideRequest.Ratio ratioKind, double[] ratios, double[] prices, double[] distances,
+      @Nullable Rounding rounding, double[] costs) {
+    var volumePerDistance = ratioKind == RideRequest.Ratio.VOLUME_PER_DISTANCE;
+    var scale = isNull(rounding) ? 0 : ScalarCostKernel.scale(rounding);
+    var upperBound = DOUBLES.loopBound(costs.length);
+    var i = 0;
+
+    for (; i < upperBound; i += DOUBLES.length()) {
+      var ratio = DoubleVector.fromArray(DOUBLES, ratios, i);
+      var price = DoubleVector.fromArray(DOUBLES, prices, i);
+      var distance = DoubleVector.fromArray(DOUBLES, distances, i);
+      var cost = volumePerDistance ? ratio.mul(price).mul(distance).div(100.0) : distance.div(ratio).mul(price);
+
+      if (nonNull(rounding)) {
+        var scaled = cost.mul(scale).add(0.5);
+        // the nearest whole number, one less if it is above
+        var nearest = scaled.add(ScalarCostKernel.EXACT_LIMIT).sub(ScalarCostKernel.EXACT_LIMIT);
+        var truncated = nearest.sub(1.0, nearest.compare(VectorOperators.GT, scaled));
+
+        cost = truncated.div(scale).blend(cost, scaled.compare(VectorOperators.GE, ScalarCostKernel.EXACT_LIMIT));
+      }
+      cost.intoArray(costs, i);
+    }
+    ScalarCostKernel.estimate(ratioKind, ratios, prices, distances, rounding, costs, i, costs.length);
+  }
+
+  @Override
+  public void estimateVolumePerDistance(long[] ratios, int ratioScale, long[] prices, int priceScale,
+      long[] distances, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    var shift = ratioScale + priceScale + distanceScale + 2 - rounding.decimalPlaces;
+    var i = 0;
+
+    // the lanes round half up like FixedPointEstimator.ROUNDING_MODE, an overflow goes to the scalar loop
+    if (0 < shift && shift <= MAX_SHIFT) {
+      var maxProduct = maxProduct(ratios, prices, distances);
+
+      if (0 < maxProduct && maxProduct < EXACT_PRODUCT) {
+        i = roundHalfUp(ratios, prices, distances, (long) Math.pow(10, shift), costs);
+      }
+    }
+    ScalarCostKernel.estimateVolumePerDistance(ratios, ratioScale, prices, priceScale, distances, distanceScale,
+        rounding, costs, i, costs.length);
+  }
+
+  @Override
+  public void estimateVolumePerDistance(long ratio, int ratioScale, long price, int priceScale, LongBuffer distances,
+      int offset, int distanceScale, @NotNull Rounding rounding, long[] costs) {
+    var shift = ratioScale + priceScale + distanceScale + 2 - rounding.decimalPlaces;
+    var i = 0;
+
+    if (0 < shift && shift <= MAX_SHIFT && 0 < ratio && 0 < price) {
+      var maxProduct = maxProduct(ratio, price, distances, offset, costs.length);
+
+      if (0 < maxProduct && maxProduct < EXACT_PRODUCT) {
+        i = roundHalfUp(ratio * price, distances, offset, (long) Math.pow(10, shift), costs);
+      }
+    }
+    ScalarCostKernel.estimateVolumePerDistance(ratio, ratioScale, price, priceScale, distances, offset,
+        distanceScale, rounding, costs, i, costs.length);
+  }
+
+  // returns the index of the tail
+  private int roundHalfUp(long[] ratios, long[] prices, long[] distances, long divisor, long[] costs) {
+    var reciprocal = 1.0 / divisor;
+    var upperBound = LONGS.loopBound(costs.length);
+    var i = 0;
+
+    for (; i < upperBound; i += LONGS.length()) {
+      var product = LongVector.fromArray(LONGS, ratios, i).mul(LongVector.fromArray(LONGS, prices, i))
+          .mul(LongVector.fromArray(LONGS, distances, i));
+
+      roundHalfUp(product, divisor, reciprocal).intoArray(costs, i);
+    }
+
+    return i;
+  }
+
+  // a heap buffer is read in place, a mapped one a vector at a time
+  private int roundHalfUp(long ratioPrice, LongBuffer distances, int offset, long divisor, long[] costs) {
+    var reciprocal = 1.0 / divisor;
+    var upperBound = LONGS.loopBound(costs.length);
+    var lane = distances.hasArray() ? null : new long[LONGS.length()];
+    var i = 0;
+
+    for (; i < upperBound; i += LONGS.length()) {
+      LongVector distance;
+
+      if (isNull(lane)) {
+        distance = LongVector.fromArray(LONGS, distances.array(), distances.arrayOffset() + offset + i);
+      } else {
+        distances.get(offset + i, lane);
+        distance = LongVector.fromArray(LONGS, lane, 0);
+      }
+      roundHalfUp(distance.mul(ratioPrice), divisor, reciprocal).intoArray(costs, i);
+    }
+
+    return i;
+  }
+
+  private static LongVector roundHalfUp(LongVector product, long divisor, double reciprocal) {
+    // the product and the quotient are below 2^51
+    var quotient = product.or(LIMIT_BITS).reinterpretAsDoubles().sub(ScalarCostKernel.EXACT_LIMIT).mul(reciprocal)
+        .add(ScalarCostKernel.EXACT_LIMIT).reinterpretAsLongs().and(FRACTION_MASK);
+    var remainder = product.sub(quotient.mul(divisor));
+    var low = remainder.compare(VectorOperators.LT, 0L);
+
+    quotient = quotient.sub(1L, low);
+    remainder = remainder.add(divisor, low);
+
+    var high = remainder.compare(VectorOperators.GE, divisor);
+
+    quotient = quotient.add(1L, high);
+    remainder = remainder.sub(divisor, high);
+
+    return quotient.add(1L, remainder.add(remainder).compare(VectorOperators.GE, divisor));
+  }
+
+}